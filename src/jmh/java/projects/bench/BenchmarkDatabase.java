@@ -0,0 +1,131 @@
+package projects.bench;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import projects.dao.DbConnection;
+import projects.dao.ProjectDao;
+import projects.entity.Category;
+import projects.entity.Material;
+import projects.entity.Project;
+import projects.entity.Step;
+
+/**
+ * Test data for the DAO benchmarks. The benchmarks run against a scratch schema, by default
+ * {@code projects_bench}, which is dropped and recreated from {@code projects-schema.sql} at the
+ * start of every trial. Set {@code -Dprojects.db.schema=...} to use a different one. Never point it
+ * at a schema holding real data.
+ */
+public final class BenchmarkDatabase {
+  public static final String DEFAULT_SCHEMA = "projects_bench";
+
+  private static final int CATEGORY_COUNT = 10;
+
+  private BenchmarkDatabase() {
+  }
+
+  /**
+   * Selects the benchmark schema. Must be called before anything touches {@link DbConnection},
+   * because the connection settings are read once.
+   */
+  public static void useBenchmarkSchema() {
+    if (Objects.isNull(System.getProperty("projects.db.schema"))) {
+      System.setProperty("projects.db.schema", DEFAULT_SCHEMA);
+    }
+  }
+
+  /**
+   * Recreates the tables from {@code projects-schema.sql} and adds {@value #CATEGORY_COUNT}
+   * categories.
+   */
+  public static void resetSchema() throws SQLException, IOException {
+    useBenchmarkSchema();
+
+    String script;
+
+    try (InputStream in = BenchmarkDatabase.class.getClassLoader()
+        .getResourceAsStream("projects-schema.sql")) {
+      script = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+    }
+
+    try (Connection conn = DbConnection.getConnection(); Statement stmt = conn.createStatement()) {
+      for (String sql : script.split(";")) {
+        if (!sql.isBlank()) {
+          stmt.execute(sql);
+        }
+      }
+
+      try (PreparedStatement insert =
+          conn.prepareStatement("INSERT INTO category (category_name) VALUES (?)")) {
+        for (int index = 1; index <= CATEGORY_COUNT; index++) {
+          insert.setString(1, "category " + index);
+          insert.addBatch();
+        }
+
+        insert.executeBatch();
+      }
+    }
+
+    new ProjectDao().refreshCategories();
+  }
+
+  /**
+   * Inserts projects, each with {@code fanOut} materials, {@code fanOut} steps and up to
+   * {@code fanOut} categories.
+   *
+   * @return The IDs of the new projects in insert order.
+   */
+  public static List<Integer> seed(int projectCount, int fanOut) {
+    List<Project> projects = new ArrayList<>(projectCount);
+
+    for (int index = 0; index < projectCount; index++) {
+      projects.add(newProject(index, fanOut));
+    }
+
+    List<Integer> projectIds = new ArrayList<>(projectCount);
+    new ProjectDao().insertProjects(projects).forEach(p -> projectIds.add(p.getProjectId()));
+
+    return projectIds;
+  }
+
+  /**
+   * Builds an unsaved project with realistic column sizes, including a few hundred bytes of notes.
+   */
+  public static Project newProject(int index, int fanOut) {
+    Project project = new Project();
+
+    project.setProjectName(String.format("Project %08d", index));
+    project.setEstimatedHours(new BigDecimal("12.50"));
+    project.setActualHours(new BigDecimal("10.25"));
+    project.setDifficulty(index % 5 + 1);
+    project.setNotes(("Notes for project " + index + ". ").repeat(12));
+
+    for (int child = 0; child < fanOut; child++) {
+      Material material = new Material();
+      material.setMaterialName("Material " + child);
+      material.setNumRequired(child + 1);
+      material.setCost(new BigDecimal("3.99"));
+      project.getMaterials().add(material);
+
+      Step step = new Step();
+      step.setStepText("Step " + child + " of project " + index);
+      project.getSteps().add(step);
+
+      if (child < CATEGORY_COUNT) {
+        Category category = new Category();
+        category.setCategoryId(child + 1);
+        project.getCategories().add(category);
+      }
+    }
+
+    return project;
+  }
+}
@@ -0,0 +1,113 @@
+package projects.dao;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import projects.bench.BenchmarkDatabase;
+import projects.entity.Project;
+import projects.entity.ProjectSummary;
+
+/**
+ * End-to-end DAO benchmarks against MySQL. The table is rebuilt for every trial with
+ * {@code datasetSize} projects, each with {@code fanOut} materials, steps and categories, so the
+ * cost of the list queries can be compared across table sizes and of the aggregate fetches across
+ * child counts.
+ *
+ * The two fetchProjectById variants differ mainly in round trips (four against one), so compare
+ * them with added network latency as well, e.g. {@code tc qdisc add dev lo root netem delay 2ms}
+ * on a local server.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProjectDaoBenchmark {
+  @Param({"100", "10000"})
+  private int datasetSize;
+
+  @Param({"0", "10"})
+  private int fanOut;
+
+  private final ProjectDao projectDao = new ProjectDao();
+  private List<Integer> projectIds;
+
+  @Setup(Level.Trial)
+  public void setUp() throws SQLException, IOException {
+    BenchmarkDatabase.resetSchema();
+    projectIds = BenchmarkDatabase.seed(datasetSize, fanOut);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    System.out.println("\nPool: " + DbConnection.getPoolStats());
+    DbConnection.shutdown();
+  }
+
+  @Benchmark
+  public Project insertProject() {
+    return projectDao.insertProject(BenchmarkDatabase.newProject(datasetSize, 0));
+  }
+
+  @Benchmark
+  public List<Project> insertProjectsBatch100() {
+    return projectDao.insertProjects(
+        Stream.generate(() -> BenchmarkDatabase.newProject(datasetSize, fanOut)).limit(100)
+            .collect(Collectors.toList()));
+  }
+
+  @Benchmark
+  public List<Project> fetchAllProjects() {
+    return projectDao.fetchAllProjects();
+  }
+
+  @Benchmark
+  public void streamAllProjects(Blackhole bh) {
+    try (Stream<Project> projects = projectDao.streamAllProjects()) {
+      projects.forEach(bh::consume);
+    }
+  }
+
+  @Benchmark
+  public List<ProjectSummary> fetchProjectSummaries() {
+    return projectDao.fetchProjectSummaries();
+  }
+
+  @Benchmark
+  public Project fetchProjectById() {
+    Integer projectId = projectIds.get(ThreadLocalRandom.current().nextInt(projectIds.size()));
+    return projectDao.fetchProjectById(projectId).orElseThrow();
+  }
+
+  @Benchmark
+  public Project fetchProjectByIdJsonAggregate() {
+    Integer projectId = projectIds.get(ThreadLocalRandom.current().nextInt(projectIds.size()));
+    return projectDao.fetchProjectById(projectId, FetchMode.JSON_AGGREGATE).orElseThrow();
+  }
+
+  @Benchmark
+  public List<Project> fetchProjectsByIds100() {
+    int from = ThreadLocalRandom.current().nextInt(Math.max(1, projectIds.size() - 100));
+    return projectDao.fetchProjectsByIds(
+        projectIds.subList(from, Math.min(from + 100, projectIds.size())));
+  }
+}
@@ -0,0 +1,59 @@
+package projects.dao;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import projects.bench.BenchmarkDatabase;
+import projects.entity.Project;
+
+/**
+ * Measures {@link ProjectDao#fetchProjectById(Integer)} with the per-connection statement cache
+ * disabled (every call prepares its four statements on the server) and enabled (each statement is
+ * prepared once per pooled connection). Each parameter value runs in its own fork, so the pool is
+ * created with the cache size under test.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StatementCacheBenchmark {
+  @Param({"0", "64"})
+  private String statementCacheSize;
+
+  private final ProjectDao projectDao = new ProjectDao();
+  private Integer projectId;
+
+  @Setup(Level.Trial)
+  public void setUp() throws SQLException, IOException {
+    System.setProperty("projects.db.pool.statementCacheSize", statementCacheSize);
+
+    BenchmarkDatabase.resetSchema();
+    projectId = BenchmarkDatabase.seed(1, 5).get(0);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    System.out.println("\nPool: " + DbConnection.getPoolStats());
+    DbConnection.shutdown();
+  }
+
+  @Benchmark
+  public Project fetchProjectById() {
+    return projectDao.fetchProjectById(projectId).orElseThrow();
+  }
+}
@@ -0,0 +1,106 @@
+package projects.service;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import projects.bench.BenchmarkDatabase;
+import projects.dao.DbConnection;
+import projects.entity.Project;
+
+/**
+ * Throughput of 1,000 concurrent project lookups: the synchronous service called from 1,000
+ * platform threads versus the async facade called from one thread. One benchmark operation is a
+ * round of 1,000 lookups of distinct projects. The cache time to live is zero, so every lookup goes
+ * to the database.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Dprojects.cache.ttlSeconds=0")
+public class AsyncThroughputBenchmark {
+  private static final int CALLERS = 1000;
+
+  private ProjectService projectService;
+  private ProjectAsyncService asyncService;
+  private ExecutorService platformCallers;
+  private List<Integer> projectIds;
+
+  @Setup(Level.Trial)
+  public void setUp() throws SQLException, IOException {
+    BenchmarkDatabase.resetSchema();
+
+    projectService = new ProjectService();
+    asyncService = new ProjectAsyncService(projectService);
+    platformCallers = Executors.newFixedThreadPool(CALLERS);
+
+    projectIds = BenchmarkDatabase.seed(CALLERS, 3);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    platformCallers.shutdownNow();
+    asyncService.close();
+    DbConnection.shutdown();
+  }
+
+  @Benchmark
+  public int synchronousPlatformThreads() throws InterruptedException, ExecutionException {
+    List<Callable<Project>> calls = new ArrayList<>(CALLERS);
+
+    for (Integer projectId : projectIds) {
+      calls.add(() -> projectService.fetchProjectById(projectId));
+    }
+
+    int loaded = 0;
+
+    for (Future<Project> result : platformCallers.invokeAll(calls)) {
+      loaded += result.get().getSteps().size();
+    }
+
+    return loaded;
+  }
+
+  @Benchmark
+  public int asyncParallelChildren() {
+    List<CompletableFuture<Project>> results = new ArrayList<>(CALLERS);
+
+    for (Integer projectId : projectIds) {
+      results.add(asyncService.fetchProjectById(projectId));
+    }
+
+    return results.stream().mapToInt(result -> result.join().getSteps().size()).sum();
+  }
+
+  @Benchmark
+  public int asyncConsistentSnapshot() {
+    List<CompletableFuture<Project>> results = new ArrayList<>(CALLERS);
+
+    for (Integer projectId : projectIds) {
+      results.add(asyncService.fetchProjectByIdConsistent(projectId));
+    }
+
+    return results.stream().mapToInt(result -> result.join().getSteps().size()).sum();
+  }
+}
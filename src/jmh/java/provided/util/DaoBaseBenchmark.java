@@ -0,0 +1,79 @@
+package provided.util;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import projects.bench.BenchmarkDatabase;
+import projects.dao.DbConnection;
+
+/**
+ * Micro benchmarks of the DaoBase helpers that run for every parameter and every column. The
+ * prepared statement is a real driver statement, but nothing is executed, so only client-side work
+ * is measured.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DaoBaseBenchmark extends DaoBase {
+  private static final BigDecimal HOURS = new BigDecimal("12.50");
+
+  private Connection conn;
+  private PreparedStatement stmt;
+
+  @Setup(Level.Trial)
+  public void setUp() throws SQLException, IOException {
+    BenchmarkDatabase.resetSchema();
+    conn = DbConnection.getConnection();
+    stmt = conn.prepareStatement("INSERT INTO project "
+        + "(project_name, estimated_hours, actual_hours, difficulty, notes) VALUES (?, ?, ?, ?, ?)");
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws SQLException {
+    stmt.close();
+    conn.close();
+    DbConnection.shutdown();
+  }
+
+  @Benchmark
+  public void setParameterProjectRow() throws SQLException {
+    setParameter(stmt, 1, "Bookshelf", String.class);
+    setParameter(stmt, 2, HOURS, BigDecimal.class);
+    setParameter(stmt, 3, null, BigDecimal.class);
+    setParameter(stmt, 4, 3, Integer.class);
+    setParameter(stmt, 5, "Sand before staining.", String.class);
+  }
+
+  @Benchmark
+  public String camelCaseToSnakeCaseShort() {
+    return camelCaseToSnakeCase("notes");
+  }
+
+  @Benchmark
+  public String camelCaseToSnakeCaseLong() {
+    return camelCaseToSnakeCase("estimatedHours");
+  }
+
+  @Benchmark
+  public String inListMarkers100() {
+    return inListMarkers(inListSize(100));
+  }
+}
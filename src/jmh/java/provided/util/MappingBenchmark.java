@@ -0,0 +1,91 @@
+package provided.util;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import projects.bench.BenchmarkDatabase;
+import projects.dao.DbConnection;
+import projects.entity.Project;
+
+/**
+ * Compares the original reflective extract with the cached {@link RowMapper} plan. The rows are
+ * fetched once into a scrollable, fully buffered result set so only the mapping is measured, not
+ * the network.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MappingBenchmark extends DaoBase {
+  @Param({"100", "1000"})
+  private int rows;
+
+  private Connection conn;
+  private PreparedStatement query;
+  private ResultSet rs;
+
+  @Setup(Level.Trial)
+  public void setUp() throws SQLException, IOException {
+    BenchmarkDatabase.resetSchema();
+    BenchmarkDatabase.seed(rows, 0);
+
+    conn = DbConnection.getConnection();
+    query = conn.prepareStatement("SELECT * FROM project ORDER BY project_id",
+        ResultSet.TYPE_SCROLL_INSENSITIVE, ResultSet.CONCUR_READ_ONLY);
+    rs = query.executeQuery();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws SQLException {
+    query.close();
+    conn.close();
+    DbConnection.shutdown();
+  }
+
+  @Benchmark
+  public void reflectiveExtract(Blackhole bh) throws SQLException {
+    rs.beforeFirst();
+
+    while(rs.next()) {
+      bh.consume(ReflectiveExtractor.extract(rs, Project.class));
+    }
+  }
+
+  @Benchmark
+  public void cachedExtract(Blackhole bh) throws SQLException {
+    rs.beforeFirst();
+
+    while(rs.next()) {
+      bh.consume(extract(rs, Project.class));
+    }
+  }
+
+  @Benchmark
+  public void rowMapper(Blackhole bh) throws SQLException {
+    rs.beforeFirst();
+    RowMapper<Project> mapper = rowMapper(rs, Project.class);
+
+    while(rs.next()) {
+      bh.consume(mapper.map(rs));
+    }
+  }
+}
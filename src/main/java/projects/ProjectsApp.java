@@ -5,7 +5,9 @@ import java.util.List;
 import java.util.Objects;
 import java.util.Scanner;
 import projects.entity.Project;
+import projects.entity.ProjectPage;
 import projects.exception.DbException;
+import projects.metrics.Metrics;
 import projects.service.ProjectService;
 
 public class ProjectsApp {
@@ -13,9 +15,13 @@ public class ProjectsApp {
   private List<String> operations = List.of(
       "1) Add a project.",
       "2) List projects.",
-      "3) Select a project."
+      "3) Select a project.",
+      "4) Show database metrics.",
+      "5) Update project details.",
+      "6) Delete a project."
   );
   // @formatter:on
+  private static final int PAGE_SIZE = 20;
   private Scanner scanner = new Scanner(System.in);
   private ProjectService projectService = new ProjectService();
   private Project curProject;
@@ -57,6 +63,18 @@ public class ProjectsApp {
             selectProject();
             break;
 
+          case 4:
+            showMetrics();
+            break;
+
+          case 5:
+            updateProjectDetails();
+            break;
+
+          case 6:
+            deleteProject();
+            break;
+
           default:
             System.out.println("\n" + selection + " is not a valid selection. Try again.");
         }
@@ -67,6 +85,90 @@ public class ProjectsApp {
     }
   }
 
+  private void showMetrics() {
+    // prints the DAO latency and row counters; collected only with -Dprojects.metrics.enabled=true
+    System.out.println("\n" + Metrics.dump());
+  }
+
+  private void updateProjectDetails() {
+    /*
+     * asks for each detail of the selected project, showing the current value; pressing Enter
+     * keeps it, so only the details that are changed are written
+     * 
+     * the project is edited on a fresh copy from fetchProjectForUpdate(), since curProject is
+     * shared through the service's cache; if someone else changed the project in the meantime,
+     * the update fails and the project has to be selected again
+     */
+    if (Objects.isNull(curProject)) {
+      System.out.println("\nPlease select a project.");
+      return;
+    }
+
+    Project project = projectService.fetchProjectForUpdate(curProject.getProjectId());
+
+    String projectName =
+        getStringInput("Enter the project name [" + project.getProjectName() + "]");
+    BigDecimal estimatedHours =
+        getDecimalInput("Enter the estimated hours [" + project.getEstimatedHours() + "]");
+    BigDecimal actualHours =
+        getDecimalInput("Enter the actual hours [" + project.getActualHours() + "]");
+    Integer difficulty =
+        getIntInput("Enter the project difficulty (1-5) [" + project.getDifficulty() + "]");
+    String notes = getStringInput("Enter the project notes [" + project.getNotes() + "]");
+
+    if (Objects.nonNull(projectName)) {
+      project.setProjectName(projectName);
+    }
+
+    if (Objects.nonNull(estimatedHours)) {
+      project.setEstimatedHours(estimatedHours);
+    }
+
+    if (Objects.nonNull(actualHours)) {
+      project.setActualHours(actualHours);
+    }
+
+    if (Objects.nonNull(difficulty)) {
+      project.setDifficulty(difficulty);
+    }
+
+    if (Objects.nonNull(notes)) {
+      project.setNotes(notes);
+    }
+
+    if (!project.isDirty()) {
+      System.out.println("\nNothing was changed.");
+      return;
+    }
+
+    projectService.modifyProject(project);
+    curProject = projectService.fetchProjectById(project.getProjectId());
+  }
+
+  private void deleteProject() {
+    /*
+     * lists the projects, asks for the ID of the one to delete and deletes it with its materials,
+     * steps and category links; deselects it if it was the selected project
+     */
+    listProjects();
+
+    Integer projectId = getIntInput("\nEnter the ID of the project to delete");
+
+    if (Objects.isNull(projectId)) {
+      return;
+    }
+
+    Project project = projectService.fetchProjectRowForUpdate(projectId);
+
+    if (projectService.deleteProject(project)) {
+      System.out.println("\nProject " + projectId + " was deleted.");
+    }
+
+    if (Objects.nonNull(curProject) && curProject.getProjectId().equals(projectId)) {
+      curProject = null;
+    }
+  }
+
   private void selectProject() {
     /*
      * list the available projects
@@ -85,13 +187,24 @@ public class ProjectsApp {
   }
 
   private void listProjects() {
-    //fetch the projects from projectDao through projectService and list them
-    List<Project> projects = projectService.fetchAllProjects();
+    /*
+     * fetch the project ids and names from projectDao through projectService one page at a time
+     * and list them; after each full page, pressing Enter shows the next page and any other input
+     * stops the listing
+     */
+    String pageToken = null;
 
     System.out.println("\nProjects:");
 
-    projects.forEach(project -> System.out.println
-        ("   " + project.getProjectId() + ": " + project.getProjectName()));
+    do {
+      ProjectPage page = projectService.fetchProjectPage(pageToken, PAGE_SIZE);
+
+      page.getProjects().forEach(project -> System.out.println
+          ("   " + project.getProjectId() + ": " + project.getProjectName()));
+
+      pageToken = page.getNextPageToken();
+    } while (Objects.nonNull(pageToken) && Objects
+        .isNull(getStringInput("Press Enter for more projects, or type any text to stop")));
 
   }
 
@@ -0,0 +1,157 @@
+package projects.bulk;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Objects;
+import projects.entity.Category;
+import projects.entity.Material;
+import projects.entity.Project;
+import projects.entity.Step;
+
+/**
+ * Reads projects from CSV. The first field of each row says what the row is, and child rows
+ * belong to the project row before them:
+ *
+ * <pre>
+ * project,&lt;name&gt;,&lt;estimated hours&gt;,&lt;actual hours&gt;,&lt;difficulty&gt;,
+ *     &lt;notes&gt;
+ * material,&lt;name&gt;,&lt;number required&gt;,&lt;cost&gt;
+ * step,&lt;text&gt;
+ * category,&lt;name&gt;
+ * </pre>
+ *
+ * Empty fields are null. A row whose first field is {@code type} is a header and is skipped.
+ */
+class CsvProjectParser implements ProjectParser {
+  private final CsvReader csv;
+  private List<String> pending;
+  private long recordNumber;
+
+  CsvProjectParser(BufferedReader in) {
+    this.csv = new CsvReader(in);
+  }
+
+  @Override
+  public ImportRecord next() throws IOException {
+    List<String> row = Objects.nonNull(pending) ? pending : nextRow();
+    pending = null;
+
+    if (Objects.isNull(row)) {
+      return null;
+    }
+
+    long number = recordNumber++;
+    long line = csv.getRecordLine();
+    String error = null;
+    Project project = new Project();
+
+    if (!"project".equals(row.get(0))) {
+      error = "Line " + line + ": expected a project row but found '" + row.get(0) + "'";
+    } else {
+      error = parseProject(row, project, line);
+    }
+
+    /* the children are read even if the project row is bad, so they aren't taken for a project */
+    while (Objects.nonNull(row = nextRow()) && !"project".equals(row.get(0))) {
+      line = csv.getRecordLine();
+
+      if (Objects.isNull(error)) {
+        error = parseChild(row, project, line);
+      }
+    }
+
+    pending = row;
+
+    return Objects.isNull(error) ? ImportRecord.valid(number, project)
+        : ImportRecord.invalid(number, error);
+  }
+
+  @Override
+  public void close() throws IOException {
+    csv.close();
+  }
+
+  private List<String> nextRow() throws IOException {
+    List<String> row;
+
+    do {
+      row = csv.next();
+    } while (Objects.nonNull(row) && "type".equals(row.get(0)));
+
+    return row;
+  }
+
+  private String parseProject(List<String> row, Project project, long line) {
+    if (row.size() != 6) {
+      return "Line " + line + ": a project row has 6 fields, found " + row.size();
+    }
+
+    try {
+      project.setProjectName(text(row.get(1)));
+      project.setEstimatedHours(decimal(row.get(2)));
+      project.setActualHours(decimal(row.get(3)));
+      project.setDifficulty(integer(row.get(4)));
+      project.setNotes(text(row.get(5)));
+      return null;
+    } catch (NumberFormatException e) {
+      return "Line " + line + ": invalid number in project row";
+    }
+  }
+
+  private String parseChild(List<String> row, Project project, long line) {
+    try {
+      switch (row.get(0)) {
+        case "material":
+          if (row.size() != 4) {
+            return "Line " + line + ": a material row has 4 fields, found " + row.size();
+          }
+
+          Material material = new Material();
+          material.setMaterialName(text(row.get(1)));
+          material.setNumRequired(integer(row.get(2)));
+          material.setCost(decimal(row.get(3)));
+          project.getMaterials().add(material);
+          return null;
+
+        case "step":
+          if (row.size() != 2) {
+            return "Line " + line + ": a step row has 2 fields, found " + row.size();
+          }
+
+          Step step = new Step();
+          step.setStepText(text(row.get(1)));
+          project.getSteps().add(step);
+          return null;
+
+        case "category":
+          if (row.size() != 2) {
+            return "Line " + line + ": a category row has 2 fields, found " + row.size();
+          }
+
+          Category category = new Category();
+          category.setCategoryName(text(row.get(1)));
+          project.getCategories().add(category);
+          return null;
+
+        default:
+          return "Line " + line + ": unknown row type '" + row.get(0) + "'";
+      }
+    } catch (NumberFormatException e) {
+      return "Line " + line + ": invalid number in " + row.get(0) + " row";
+    }
+  }
+
+  private String text(String field) {
+    return field.isEmpty() ? null : field;
+  }
+
+  private BigDecimal decimal(String field) {
+    return field.isBlank() ? null : new BigDecimal(field.trim());
+  }
+
+  private Integer integer(String field) {
+    return field.isBlank() ? null : Integer.valueOf(field.trim());
+  }
+}
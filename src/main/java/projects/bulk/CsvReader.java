@@ -0,0 +1,130 @@
+package projects.bulk;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+import projects.exception.DbException;
+
+/**
+ * Reads RFC 4180 CSV records: fields separated by commas, optionally enclosed in double quotes,
+ * with {@code ""} for a quote inside a quoted field. A quoted field may span lines. Lines may end
+ * with LF or CRLF; blank lines are skipped.
+ */
+class CsvReader implements AutoCloseable {
+  private final Reader in;
+  private int pushedBack = -2;
+  private long line = 1;
+  private long recordLine = 1;
+
+  CsvReader(Reader in) {
+    this.in = in;
+  }
+
+  /**
+   * @return The fields of the next record, or null at the end of the input.
+   */
+  List<String> next() throws IOException {
+    List<String> fields = new ArrayList<>();
+    StringBuilder field = new StringBuilder();
+    boolean quoted = false;
+    boolean fieldStarted = false;
+
+    recordLine = line;
+
+    while (true) {
+      int c = read();
+
+      if (quoted) {
+        if (c == -1) {
+          throw new DbException("Unterminated quoted field at line " + line);
+        }
+
+        if (c == '"') {
+          int next = read();
+
+          if (next == '"') {
+            field.append('"');
+          } else {
+            quoted = false;
+            unread(next);
+          }
+        } else {
+          if (c == '\n') {
+            line++;
+          }
+
+          field.append((char) c);
+        }
+        continue;
+      }
+
+      switch (c) {
+        case '"':
+          if (field.length() > 0) {
+            throw new DbException("Unexpected quote inside a field at line " + line);
+          }
+
+          quoted = true;
+          fieldStarted = true;
+          break;
+
+        case ',':
+          fields.add(field.toString());
+          field.setLength(0);
+          fieldStarted = true;
+          break;
+
+        case '\r':
+          break;
+
+        case '\n':
+        case -1:
+          if (c == '\n') {
+            line++;
+          }
+
+          if (fields.isEmpty() && field.length() == 0 && !fieldStarted) {
+            if (c == -1) {
+              return null;
+            }
+
+            recordLine = line;
+            break;
+          }
+
+          fields.add(field.toString());
+          return fields;
+
+        default:
+          field.append((char) c);
+      }
+    }
+  }
+
+  /**
+   * @return The line on which the last record returned by {@link #next()} starts.
+   */
+  long getRecordLine() {
+    return recordLine;
+  }
+
+  @Override
+  public void close() throws IOException {
+    in.close();
+  }
+
+  private int read() throws IOException {
+    if (pushedBack != -2) {
+      int c = pushedBack;
+      pushedBack = -2;
+      return c;
+    }
+
+    return in.read();
+  }
+
+  private void unread(int c) {
+    pushedBack = c;
+  }
+}
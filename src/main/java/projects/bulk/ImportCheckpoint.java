@@ -0,0 +1,121 @@
+package projects.bulk;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.BitSet;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.StringJoiner;
+import projects.exception.DbException;
+
+/**
+ * Remembers which batches of an import have been committed, so that an interrupted import can be
+ * run again and skip them. The file is rewritten (to a temporary file, then moved into place)
+ * after every committed batch.
+ *
+ * A batch is committed to the database before the checkpoint is written. If the process dies in
+ * between, that one batch is imported again on resume.
+ */
+class ImportCheckpoint {
+  private final Path file;
+  private final Path source;
+  private final int batchSize;
+  private final BitSet committed = new BitSet();
+
+  private ImportCheckpoint(Path file, Path source, int batchSize) {
+    this.file = file;
+    this.source = source;
+    this.batchSize = batchSize;
+  }
+
+  /**
+   * Loads the checkpoint if the file exists, or starts an empty one.
+   *
+   * @throws DbException Thrown if the checkpoint belongs to a different file or batch size.
+   */
+  static ImportCheckpoint open(Path file, Path source, int batchSize) throws IOException {
+    ImportCheckpoint checkpoint = new ImportCheckpoint(file, source, batchSize);
+
+    if (Objects.isNull(file) || !Files.exists(file)) {
+      return checkpoint;
+    }
+
+    Properties saved = new Properties();
+
+    try (InputStream in = Files.newInputStream(file)) {
+      saved.load(in);
+    }
+
+    String savedSource = saved.getProperty("source");
+    String savedBatchSize = saved.getProperty("batchSize");
+
+    if (!source.toAbsolutePath().toString().equals(savedSource)
+        || !String.valueOf(batchSize).equals(savedBatchSize)) {
+      throw new DbException("Checkpoint " + file + " was written for " + savedSource
+          + " with batch size " + savedBatchSize + "; delete it to start over.");
+    }
+
+    for (String range : saved.getProperty("committed", "").split(",")) {
+      if (!range.isBlank()) {
+        String[] bounds = range.trim().split("-");
+        int from = Integer.parseInt(bounds[0]);
+        int to = bounds.length > 1 ? Integer.parseInt(bounds[1]) : from;
+        checkpoint.committed.set(from, to + 1);
+      }
+    }
+
+    return checkpoint;
+  }
+
+  synchronized boolean isCommitted(int batch) {
+    return committed.get(batch);
+  }
+
+  synchronized int getCommittedCount() {
+    return committed.cardinality();
+  }
+
+  /**
+   * Records a committed batch and saves the checkpoint.
+   */
+  synchronized void markCommitted(int batch) throws IOException {
+    committed.set(batch);
+
+    if (Objects.isNull(file)) {
+      return;
+    }
+
+    Properties saved = new Properties();
+    saved.setProperty("source", source.toAbsolutePath().toString());
+    saved.setProperty("batchSize", String.valueOf(batchSize));
+    saved.setProperty("committed", ranges());
+
+    Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+
+    try (OutputStream out = Files.newOutputStream(temp)) {
+      saved.store(out, "Project import checkpoint");
+    }
+
+    Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  /*
+   * Writes the committed batches as ranges, e.g. "0-41,43", so the file stays small.
+   */
+  private String ranges() {
+    StringJoiner text = new StringJoiner(",");
+    int from = committed.nextSetBit(0);
+
+    while (from >= 0) {
+      int to = committed.nextClearBit(from) - 1;
+      text.add(from == to ? String.valueOf(from) : from + "-" + to);
+      from = committed.nextSetBit(to + 1);
+    }
+
+    return text.toString();
+  }
+}
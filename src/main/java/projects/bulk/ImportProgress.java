@@ -0,0 +1,80 @@
+package projects.bulk;
+
+import java.time.Duration;
+
+/**
+ * A snapshot of a running or finished import.
+ */
+public class ImportProgress {
+  private final long recordsRead;
+  private final long projectsImported;
+  private final long recordsRejected;
+  private final long recordsSkipped;
+  private final long batchesCommitted;
+  private final Duration elapsed;
+  private final boolean finished;
+
+  ImportProgress(long recordsRead, long projectsImported, long recordsRejected,
+      long recordsSkipped, long batchesCommitted, Duration elapsed, boolean finished) {
+    this.recordsRead = recordsRead;
+    this.projectsImported = projectsImported;
+    this.recordsRejected = recordsRejected;
+    this.recordsSkipped = recordsSkipped;
+    this.batchesCommitted = batchesCommitted;
+    this.elapsed = elapsed;
+    this.finished = finished;
+  }
+
+  /**
+   * @return Records parsed from the file so far, including skipped and rejected ones.
+   */
+  public long getRecordsRead() {
+    return recordsRead;
+  }
+
+  public long getProjectsImported() {
+    return projectsImported;
+  }
+
+  /**
+   * @return Records that could not be parsed or failed validation.
+   */
+  public long getRecordsRejected() {
+    return recordsRejected;
+  }
+
+  /**
+   * @return Records in batches that an earlier run had already committed.
+   */
+  public long getRecordsSkipped() {
+    return recordsSkipped;
+  }
+
+  public long getBatchesCommitted() {
+    return batchesCommitted;
+  }
+
+  public Duration getElapsed() {
+    return elapsed;
+  }
+
+  public boolean isFinished() {
+    return finished;
+  }
+
+  /**
+   * @return Projects imported per second since the import started.
+   */
+  public double getProjectsPerSecond() {
+    double seconds = elapsed.toMillis() / 1000.0;
+    return seconds > 0 ? projectsImported / seconds : 0;
+  }
+
+  @Override
+  public String toString() {
+    return String.format(
+        "%s: read=%d, imported=%d, rejected=%d, skipped=%d, batches=%d, %.0f projects/s, %ds",
+        finished ? "Finished" : "Importing", recordsRead, projectsImported, recordsRejected,
+        recordsSkipped, batchesCommitted, getProjectsPerSecond(), elapsed.toSeconds());
+  }
+}
@@ -0,0 +1,39 @@
+package projects.bulk;
+
+import projects.entity.Project;
+
+/**
+ * One project read from an import file, or the reason it couldn't be read. Records are numbered
+ * from zero in file order; the number decides which batch a record belongs to.
+ */
+class ImportRecord {
+  private final long recordNumber;
+  private final Project project;
+  private final String error;
+
+  private ImportRecord(long recordNumber, Project project, String error) {
+    this.recordNumber = recordNumber;
+    this.project = project;
+    this.error = error;
+  }
+
+  static ImportRecord valid(long recordNumber, Project project) {
+    return new ImportRecord(recordNumber, project, null);
+  }
+
+  static ImportRecord invalid(long recordNumber, String error) {
+    return new ImportRecord(recordNumber, null, error);
+  }
+
+  long getRecordNumber() {
+    return recordNumber;
+  }
+
+  Project getProject() {
+    return project;
+  }
+
+  String getError() {
+    return error;
+  }
+}
@@ -0,0 +1,59 @@
+package projects.bulk;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.Objects;
+import projects.exception.JsonException;
+import projects.json.JsonReader;
+import projects.json.JsonToken;
+import projects.json.ProjectJson;
+
+/**
+ * Reads newline-delimited JSON: one project object per line, in the format of
+ * {@link ProjectJson}. Blank lines are skipped. Ids and versions in the file are ignored on
+ * import; categories are matched by id or name.
+ */
+class NdjsonProjectParser implements ProjectParser {
+  private final BufferedReader in;
+  private long recordNumber;
+  private long lineNumber;
+
+  NdjsonProjectParser(BufferedReader in) {
+    this.in = in;
+  }
+
+  @Override
+  public ImportRecord next() throws IOException {
+    String line;
+
+    do {
+      line = in.readLine();
+      lineNumber++;
+
+      if (Objects.isNull(line)) {
+        return null;
+      }
+    } while (line.isBlank());
+
+    long number = recordNumber++;
+
+    try {
+      JsonReader reader = JsonReader.of(line);
+      ImportRecord record = ImportRecord.valid(number, ProjectJson.readProject(reader));
+
+      if (reader.peek() != JsonToken.END_DOCUMENT) {
+        return ImportRecord.invalid(number,
+            "Line " + lineNumber + ": unexpected text after the project object");
+      }
+
+      return record;
+    } catch (JsonException e) {
+      return ImportRecord.invalid(number, "Line " + lineNumber + ": " + e.getMessage());
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    in.close();
+  }
+}
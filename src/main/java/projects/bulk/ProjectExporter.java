@@ -0,0 +1,114 @@
+package projects.bulk;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+import projects.entity.Project;
+import projects.exception.DbException;
+import projects.json.JsonWriter;
+import projects.json.ProjectJson;
+import projects.service.ProjectService;
+
+/**
+ * Writes every project, with its materials, steps and categories, to a newline-delimited JSON file
+ * that {@link ProjectImporter} can read back. Projects are streamed from the database and written
+ * one at a time, so memory use doesn't depend on the number of projects.
+ *
+ * The file is written under a temporary name next to the target and moved into place when it is
+ * complete, so a failed export never leaves a truncated file behind. A target ending in ".gz" is
+ * gzip-compressed. Run from the command line with:
+ *
+ * <pre>
+ * java projects.bulk.ProjectExporter &lt;file&gt;
+ * </pre>
+ */
+public class ProjectExporter {
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private final ProjectService projectService;
+
+  public ProjectExporter(ProjectService projectService) {
+    this.projectService = projectService;
+  }
+
+  /**
+   * @return The number of projects written.
+   * @throws DbException Thrown if the projects can't be read; the target is left untouched.
+   */
+  public long exportTo(Path file) throws IOException {
+    Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+    long count = 0;
+
+    boolean gzip = file.getFileName().toString().endsWith(".gz");
+
+    try (JsonWriter writer = new JsonWriter(open(temp, gzip));
+        Stream<Project> projects = projectService.streamProjectAggregates()) {
+      Iterator<Project> iterator = projects.iterator();
+
+      while (iterator.hasNext()) {
+        ProjectJson.writeProject(writer, iterator.next());
+        writer.newline();
+        count++;
+      }
+    } catch (IOException | RuntimeException e) {
+      Files.deleteIfExists(temp);
+      throw e;
+    }
+
+    Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    return count;
+  }
+
+  /*
+   * The file channel is written in BUFFER_SIZE chunks: the characters are buffered before
+   * encoding and, when compressing, the deflater output is buffered again before it reaches the
+   * channel.
+   */
+  private static BufferedWriter open(Path file, boolean gzip) throws IOException {
+    OutputStream out = Channels.newOutputStream(FileChannel.open(file,
+        StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE));
+
+    if (gzip) {
+      out = new GZIPOutputStream(out, BUFFER_SIZE);
+    } else {
+      out = new BufferedOutputStream(out, BUFFER_SIZE);
+    }
+
+    return new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+  }
+
+  public static void main(String[] args) throws IOException {
+    if (args.length != 1) {
+      System.err.println("Usage: ProjectExporter <file>");
+      System.exit(2);
+    }
+
+    Path file = Paths.get(args[0]);
+    long start = System.nanoTime();
+
+    try {
+      long count = new ProjectExporter(new ProjectService()).exportTo(file);
+      Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+
+      System.out.printf("Exported %d projects to %s in %d s%n", count, file,
+          elapsed.toSeconds());
+    } catch (DbException e) {
+      System.err.println("\nError: " + e.getMessage());
+      System.exit(1);
+    }
+  }
+}
@@ -0,0 +1,378 @@
+package projects.bulk;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+import java.util.zip.GZIPInputStream;
+import projects.entity.Project;
+import projects.exception.DbException;
+import projects.service.ProjectService;
+
+/**
+ * Loads projects from a CSV or NDJSON file without going through the interactive prompts. The file
+ * is parsed on the calling thread and cut into batches of {@code batchSize} records; worker threads
+ * validate each batch and insert its valid projects with one {@link ProjectService#addProjects}
+ * call, i.e. one transaction per batch. The queue between the two holds at most two batches per
+ * worker, so a parser that is faster than the database waits instead of filling the heap.
+ *
+ * Records that can't be parsed or fail validation are logged and counted, and the import goes on.
+ * A database error stops the import: batches already committed stay committed, and with a
+ * checkpoint file the next run skips them. Because the checkpoint is written after the commit, a
+ * batch that was committed just before a crash is imported twice.
+ *
+ * Files ending in ".gz" are decompressed on the fly. Run from the command line with:
+ *
+ * <pre>
+ * java projects.bulk.ProjectImporter &lt;file&gt; [--format csv|ndjson] [--checkpoint &lt;file&gt;]
+ *     [--workers n] [--batch-size n]
+ * </pre>
+ */
+public class ProjectImporter {
+  private static final Logger LOG = Logger.getLogger(ProjectImporter.class.getName());
+
+  private static final Batch END = new Batch(-1, List.of());
+
+  private final ProjectService projectService;
+  private final int workers;
+  private final int batchSize;
+  private Consumer<ImportProgress> progressListener = progress -> {};
+  private Duration progressInterval = Duration.ofSeconds(5);
+
+  public ProjectImporter(ProjectService projectService, int workers, int batchSize) {
+    if (workers < 1 || batchSize < 1) {
+      throw new IllegalArgumentException("workers and batchSize must be at least 1");
+    }
+
+    this.projectService = projectService;
+    this.workers = workers;
+    this.batchSize = batchSize;
+  }
+
+  /**
+   * Sets a callback that receives a progress snapshot every {@code interval} while an import runs,
+   * and once more when it ends. The callback runs on its own thread.
+   */
+  public void setProgressListener(Consumer<ImportProgress> listener, Duration interval) {
+    this.progressListener = Objects.requireNonNull(listener);
+    this.progressInterval = Objects.requireNonNull(interval);
+  }
+
+  /**
+   * Imports a file, guessing the format from its name.
+   *
+   * @param checkpointFile Where to record committed batches, or null to always start over.
+   */
+  public ImportProgress importFile(Path file, Path checkpointFile) throws IOException {
+    return importFile(file, formatOf(file), checkpointFile);
+  }
+
+  /**
+   * Imports a file.
+   *
+   * @param format "csv" or "ndjson".
+   * @param checkpointFile Where to record committed batches, or null to always start over.
+   * @return The final progress.
+   * @throws DbException Thrown if a batch can't be written. The batches committed before that are
+   *         kept.
+   */
+  public ImportProgress importFile(Path file, String format, Path checkpointFile)
+      throws IOException {
+    ImportCheckpoint checkpoint = ImportCheckpoint.open(checkpointFile, file, batchSize);
+    Run run = new Run(checkpoint, new ProjectValidator(projectService.fetchAllCategories()));
+
+    ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "project-import-progress");
+      thread.setDaemon(true);
+      return thread;
+    });
+
+    long intervalMillis = Math.max(progressInterval.toMillis(), 1);
+    reporter.scheduleAtFixedRate(() -> progressListener.accept(run.progress(false)),
+        intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+
+    List<Thread> threads = new ArrayList<>();
+
+    for (int index = 1; index <= workers; index++) {
+      Thread thread = new Thread(run::work, "project-import-" + index);
+      thread.setDaemon(true);
+      thread.start();
+      threads.add(thread);
+    }
+
+    try (ProjectParser parser = ProjectParser.forFormat(format, open(file))) {
+      run.parse(parser);
+    } finally {
+      for (int index = 0; index < workers; index++) {
+        run.put(END, true);
+      }
+
+      for (Thread thread : threads) {
+        joinUninterruptibly(thread);
+      }
+
+      reporter.shutdownNow();
+    }
+
+    ImportProgress progress = run.progress(true);
+    progressListener.accept(progress);
+
+    Throwable failure = run.failure.get();
+
+    if (Objects.nonNull(failure)) {
+      throw failure instanceof DbException ? (DbException) failure
+          : new DbException("Import of " + file + " failed", failure);
+    }
+
+    return progress;
+  }
+
+  private static BufferedReader open(Path file) throws IOException {
+    InputStream in = Files.newInputStream(file);
+
+    if (file.getFileName().toString().endsWith(".gz")) {
+      in = new GZIPInputStream(in, 64 * 1024);
+    }
+
+    return new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), 64 * 1024);
+  }
+
+  private static String formatOf(Path file) {
+    String name = file.getFileName().toString().toLowerCase();
+
+    if (name.endsWith(".gz")) {
+      name = name.substring(0, name.length() - 3);
+    }
+
+    if (name.endsWith(".csv")) {
+      return "csv";
+    }
+
+    if (name.endsWith(".ndjson") || name.endsWith(".jsonl")) {
+      return "ndjson";
+    }
+
+    throw new IllegalArgumentException("Can't tell the format of " + file + "; use --format.");
+  }
+
+  private static void joinUninterruptibly(Thread thread) {
+    boolean interrupted = false;
+
+    while (thread.isAlive()) {
+      try {
+        thread.join();
+      } catch (InterruptedException e) {
+        interrupted = true;
+      }
+    }
+
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * The records of one batch. Batch n holds records n * batchSize up to (n + 1) * batchSize - 1,
+   * so the same file cut with the same batch size always gives the same batches.
+   */
+  private static class Batch {
+    private final int number;
+    private final List<ImportRecord> records;
+
+    private Batch(int number, List<ImportRecord> records) {
+      this.number = number;
+      this.records = records;
+    }
+  }
+
+  /**
+   * The state shared by the parser and the workers during one import.
+   */
+  private class Run {
+    private final ImportCheckpoint checkpoint;
+    private final ProjectValidator validator;
+    private final BlockingQueue<Batch> queue = new ArrayBlockingQueue<>(workers * 2);
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+    private final long started = System.nanoTime();
+
+    private final LongAdder recordsRead = new LongAdder();
+    private final LongAdder projectsImported = new LongAdder();
+    private final LongAdder recordsRejected = new LongAdder();
+    private final LongAdder recordsSkipped = new LongAdder();
+    private final LongAdder batchesCommitted = new LongAdder();
+
+    private Run(ImportCheckpoint checkpoint, ProjectValidator validator) {
+      this.checkpoint = checkpoint;
+      this.validator = validator;
+    }
+
+    private void parse(ProjectParser parser) throws IOException {
+      List<ImportRecord> records = new ArrayList<>(batchSize);
+      int batch = 0;
+      ImportRecord record;
+
+      while (Objects.isNull(failure.get()) && Objects.nonNull(record = parser.next())) {
+        recordsRead.increment();
+        records.add(record);
+
+        if (records.size() == batchSize) {
+          submit(batch++, records);
+          records = new ArrayList<>(batchSize);
+        }
+      }
+
+      if (!records.isEmpty()) {
+        submit(batch, records);
+      }
+    }
+
+    private void submit(int batch, List<ImportRecord> records) {
+      if (checkpoint.isCommitted(batch)) {
+        recordsSkipped.add(records.size());
+      } else {
+        put(new Batch(batch, records), false);
+      }
+    }
+
+    /*
+     * Blocks while the queue is full. Once the import has failed, batches are dropped instead;
+     * the end markers are always delivered so every worker stops.
+     */
+    private void put(Batch batch, boolean always) {
+      try {
+        while (always || Objects.isNull(failure.get())) {
+          if (queue.offer(batch, 100, TimeUnit.MILLISECONDS)) {
+            return;
+          }
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        failure.compareAndSet(null, e);
+      }
+    }
+
+    private void work() {
+      try {
+        Batch batch;
+
+        while ((batch = queue.take()) != END) {
+          if (Objects.isNull(failure.get())) {
+            write(batch);
+          }
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        failure.compareAndSet(null, e);
+      } catch (RuntimeException | IOException e) {
+        failure.compareAndSet(null, e);
+        drainUntilEnd();
+      }
+    }
+
+    private void write(Batch batch) throws IOException {
+      List<Project> projects = new ArrayList<>(batch.records.size());
+
+      for (ImportRecord record : batch.records) {
+        String error = record.getError();
+
+        if (Objects.isNull(error)) {
+          error = validator.validate(record.getProject());
+        }
+
+        if (Objects.isNull(error)) {
+          projects.add(record.getProject());
+        } else {
+          recordsRejected.increment();
+          LOG.warning("Record " + record.getRecordNumber() + " rejected: " + error);
+        }
+      }
+
+      if (!projects.isEmpty()) {
+        projectService.addProjects(projects, projects.size());
+        projectsImported.add(projects.size());
+      }
+
+      checkpoint.markCommitted(batch.number);
+      batchesCommitted.increment();
+    }
+
+    /*
+     * Keeps taking batches after a failure so the parser is never left blocked on a full queue.
+     */
+    private void drainUntilEnd() {
+      try {
+        while (queue.take() != END) {
+          // discarded
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+
+    private ImportProgress progress(boolean finished) {
+      return new ImportProgress(recordsRead.sum(), projectsImported.sum(), recordsRejected.sum(),
+          recordsSkipped.sum(), batchesCommitted.sum(),
+          Duration.ofNanos(System.nanoTime() - started), finished);
+    }
+  }
+
+  public static void main(String[] args) throws IOException {
+    Path file = null;
+    String format = null;
+    Path checkpointFile = null;
+    int workers = 4;
+    int batchSize = 500;
+
+    for (int index = 0; index < args.length; index++) {
+      switch (args[index]) {
+        case "--format":
+          format = args[++index];
+          break;
+        case "--checkpoint":
+          checkpointFile = Paths.get(args[++index]);
+          break;
+        case "--workers":
+          workers = Integer.parseInt(args[++index]);
+          break;
+        case "--batch-size":
+          batchSize = Integer.parseInt(args[++index]);
+          break;
+        default:
+          file = Paths.get(args[index]);
+      }
+    }
+
+    if (Objects.isNull(file)) {
+      System.err.println("Usage: ProjectImporter <file> [--format csv|ndjson]"
+          + " [--checkpoint <file>] [--workers n] [--batch-size n]");
+      System.exit(2);
+    }
+
+    ProjectImporter importer = new ProjectImporter(new ProjectService(), workers, batchSize);
+    importer.setProgressListener(System.out::println, Duration.ofSeconds(5));
+
+    try {
+      importer.importFile(file, Objects.isNull(format) ? formatOf(file) : format, checkpointFile);
+    } catch (DbException e) {
+      System.err.println("\nError: " + e.getMessage());
+      System.exit(1);
+    }
+  }
+}
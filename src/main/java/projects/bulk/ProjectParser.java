@@ -0,0 +1,33 @@
+package projects.bulk;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+
+/**
+ * Turns an import file into a sequence of {@link ImportRecord}s. A record that can't be parsed is
+ * returned as an invalid record so the import can go on with the next one; only an I/O error or
+ * input so broken that the record boundaries are lost stops the import.
+ */
+interface ProjectParser extends AutoCloseable {
+  /**
+   * @return The next record, or null at the end of the file.
+   */
+  ImportRecord next() throws IOException;
+
+  @Override
+  void close() throws IOException;
+
+  /**
+   * @param format "csv" or "ndjson".
+   */
+  static ProjectParser forFormat(String format, BufferedReader in) {
+    switch (format) {
+      case "csv":
+        return new CsvProjectParser(in);
+      case "ndjson":
+        return new NdjsonProjectParser(in);
+      default:
+        throw new IllegalArgumentException("Unknown import format: " + format);
+    }
+  }
+}
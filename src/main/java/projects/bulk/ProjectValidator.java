@@ -0,0 +1,152 @@
+package projects.bulk;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import projects.dao.ProjectDao;
+import projects.entity.Category;
+import projects.entity.Material;
+import projects.entity.Project;
+import projects.entity.Step;
+import projects.exception.DbException;
+
+/**
+ * Checks an imported project against the column limits of the schema before it is written, so a
+ * bad record is rejected on its own instead of failing the whole batch. Categories are looked up
+ * by id or, failing that, by name (ignoring case) and replaced by the stored category; categories
+ * are never created by an import.
+ *
+ * Thread-safe once constructed.
+ */
+class ProjectValidator {
+  private static final int MAX_NAME_LENGTH = 128;
+  private static final int MAX_TEXT_LENGTH = 65_535;
+  private static final BigDecimal MAX_DECIMAL = new BigDecimal("99999.99");
+
+  private final Map<Integer, Category> categoriesById = new HashMap<>();
+  private final Map<String, Category> categoriesByName = new HashMap<>();
+
+  ProjectValidator(List<Category> categories) {
+    for (Category category : categories) {
+      categoriesById.put(category.getCategoryId(), category);
+      categoriesByName.put(category.getCategoryName().toLowerCase(Locale.ROOT), category);
+    }
+  }
+
+  /**
+   * Validates the project and resolves its categories.
+   *
+   * @return Null if the project can be inserted, otherwise the reason it can't.
+   */
+  String validate(Project project) {
+    String error = checkName("projectName", project.getProjectName());
+
+    if (Objects.isNull(error)) {
+      error = checkDecimal("estimatedHours", project.getEstimatedHours());
+    }
+
+    if (Objects.isNull(error)) {
+      error = checkDecimal("actualHours", project.getActualHours());
+    }
+
+    if (Objects.isNull(error)) {
+      error = checkText("notes", project.getNotes(), false);
+    }
+
+    for (Material material : project.getMaterials()) {
+      if (Objects.isNull(error)) {
+        error = checkName("materialName", material.getMaterialName());
+      }
+
+      if (Objects.isNull(error)) {
+        error = checkDecimal("cost", material.getCost());
+      }
+    }
+
+    for (Step step : project.getSteps()) {
+      if (Objects.isNull(error)) {
+        error = checkText("stepText", step.getStepText(), true);
+      }
+    }
+
+    /* orders are assigned here as the insert would, so the resulting set is what gets checked */
+    if (Objects.isNull(error)) {
+      try {
+        ProjectDao.assignStepOrders(project.getSteps());
+      } catch (DbException e) {
+        error = e.getMessage();
+      }
+    }
+
+    if (Objects.isNull(error)) {
+      error = resolveCategories(project);
+    }
+
+    return error;
+  }
+
+  private String resolveCategories(Project project) {
+    List<Category> categories = project.getCategories();
+
+    for (int index = 0; index < categories.size(); index++) {
+      Category requested = categories.get(index);
+      Category stored = Objects.nonNull(requested.getCategoryId())
+          ? categoriesById.get(requested.getCategoryId())
+          : Objects.isNull(requested.getCategoryName()) ? null
+              : categoriesByName.get(requested.getCategoryName().toLowerCase(Locale.ROOT));
+
+      if (Objects.isNull(stored)) {
+        return "Unknown category " + (Objects.nonNull(requested.getCategoryId())
+            ? "ID " + requested.getCategoryId()
+            : "'" + requested.getCategoryName() + "'");
+      }
+
+      categories.set(index, stored);
+    }
+
+    /* the same category twice would violate the unique key on project_category */
+    if (categories.stream().map(Category::getCategoryId).distinct().count() != categories.size()) {
+      return "A category is listed more than once";
+    }
+
+    return null;
+  }
+
+  private String checkName(String field, String value) {
+    if (Objects.isNull(value) || value.isBlank()) {
+      return field + " is required";
+    }
+
+    if (value.length() > MAX_NAME_LENGTH) {
+      return field + " is longer than " + MAX_NAME_LENGTH + " characters";
+    }
+
+    return null;
+  }
+
+  private String checkText(String field, String value, boolean required) {
+    if (Objects.isNull(value)) {
+      return required ? field + " is required" : null;
+    }
+
+    /* TEXT holds 65,535 bytes; a UTF-8 character takes up to four */
+    if (value.length() * 4 > MAX_TEXT_LENGTH
+        && value.getBytes(StandardCharsets.UTF_8).length > MAX_TEXT_LENGTH) {
+      return field + " is longer than " + MAX_TEXT_LENGTH + " bytes";
+    }
+
+    return null;
+  }
+
+  private String checkDecimal(String field, BigDecimal value) {
+    if (Objects.nonNull(value) && value.abs().compareTo(MAX_DECIMAL) > 0) {
+      return field + " " + value + " is out of range for DECIMAL(7,2)";
+    }
+
+    return null;
+  }
+}
@@ -0,0 +1,33 @@
+package projects.bulk;
+
+import java.time.Duration;
+import projects.exception.DbException;
+import projects.service.ProjectService;
+
+/**
+ * Recomputes the project_rollup table from the material and step tables, then the category_rollup
+ * table from the project rollups and category links. The rollups are kept up to date as projects,
+ * materials and steps are written; run this once after adding the tables to an existing database,
+ * or after rows were changed outside the application. It is safe to run while the application is
+ * in use.
+ *
+ * <pre>
+ * java projects.bulk.RollupRebuilder
+ * </pre>
+ */
+public class RollupRebuilder {
+  public static void main(String[] args) {
+    long start = System.nanoTime();
+
+    try {
+      long count = new ProjectService().rebuildProjectRollups();
+      Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+
+      System.out.printf("Rebuilt the rollups of %d projects in %d s%n", count,
+          elapsed.toSeconds());
+    } catch (DbException e) {
+      System.err.println("\nError: " + e.getMessage());
+      System.exit(1);
+    }
+  }
+}
@@ -0,0 +1,156 @@
+package projects.dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import projects.entity.Category;
+import projects.exception.DbException;
+
+/**
+ * The whole category table, loaded once and shared: every project in a category references the
+ * same immutable {@link Category} instance, so loading a project reads only the category ids from
+ * project_category instead of joining category and creating new objects.
+ *
+ * The table is reloaded when it is older than the time to live, when an id is looked up that isn't
+ * loaded (a category added since, at most once per {@value #MISS_RELOAD_MILLIS} ms, so unknown ids
+ * don't each cost a reload), and after {@link #invalidate()}. One thread loads at a time, on a
+ * primary connection the cache borrows itself, so the shared copy never goes back in time; while
+ * it reloads an expired copy, other threads keep using that copy instead of waiting.
+ *
+ * Thread-safe.
+ */
+class CategoryCache {
+  private static final String ALL_CATEGORIES_SQL =
+      "SELECT category_id, category_name FROM category ORDER BY category_name, category_id";
+
+  private static final long MISS_RELOAD_MILLIS = 1000;
+  private static final long MISS_RELOAD_NANOS = TimeUnit.MILLISECONDS.toNanos(MISS_RELOAD_MILLIS);
+
+  /* a lock rather than a monitor, so a virtual thread waiting on a load doesn't pin its carrier */
+  private final ReentrantLock loadLock = new ReentrantLock();
+  private final long ttlNanos;
+  private volatile Loaded loaded;
+
+  CategoryCache(long ttl, TimeUnit unit) {
+    this.ttlNanos = unit.toNanos(ttl);
+  }
+
+  /**
+   * @throws DbException Thrown if there is no category with the id.
+   */
+  Category get(Integer categoryId) throws SQLException {
+    Category category = current().byId.get(categoryId);
+
+    if (Objects.isNull(category)) {
+      category = reloadForMiss().byId.get(categoryId);
+    }
+
+    if (Objects.isNull(category)) {
+      throw new DbException("Category with category ID=" + categoryId + " does not exist.");
+    }
+
+    return category;
+  }
+
+  /**
+   * @return Every category, in name order. The list can't be modified.
+   */
+  List<Category> all() throws SQLException {
+    return current().byName;
+  }
+
+  void invalidate() {
+    loaded = null;
+  }
+
+  private Loaded current() throws SQLException {
+    Loaded current = loaded;
+
+    if (Objects.nonNull(current) && System.nanoTime() - current.loadedAt <= ttlNanos) {
+      return current;
+    }
+
+    if (Objects.isNull(current)) {
+      loadLock.lock();
+    } else if (!loadLock.tryLock()) {
+      return current;
+    }
+
+    try {
+      current = loaded;
+
+      if (Objects.isNull(current) || System.nanoTime() - current.loadedAt > ttlNanos) {
+        current = load();
+      }
+
+      return current;
+    } finally {
+      loadLock.unlock();
+    }
+  }
+
+  private Loaded reloadForMiss() throws SQLException {
+    Loaded current = loaded;
+
+    if (Objects.nonNull(current) && System.nanoTime() - current.loadedAt < MISS_RELOAD_NANOS) {
+      return current;
+    }
+
+    loadLock.lock();
+
+    try {
+      current = loaded;
+
+      if (Objects.isNull(current) || System.nanoTime() - current.loadedAt >= MISS_RELOAD_NANOS) {
+        current = load();
+      }
+
+      return current;
+    } finally {
+      loadLock.unlock();
+    }
+  }
+
+  /* called with loadLock held */
+  private Loaded load() throws SQLException {
+    try (Connection conn = DbConnection.getPrimaryReadConnection()) {
+      return loaded = read(conn);
+    }
+  }
+
+  private static Loaded read(Connection conn) throws SQLException {
+    try (PreparedStatement stmt = conn.prepareStatement(ALL_CATEGORIES_SQL);
+        ResultSet rs = stmt.executeQuery()) {
+      List<Category> byName = new ArrayList<>();
+      Map<Integer, Category> byId = new HashMap<>();
+
+      while (rs.next()) {
+        Category category = Category.immutable(rs.getInt(1), rs.getString(2));
+        byName.add(category);
+        byId.put(category.getCategoryId(), category);
+      }
+
+      return new Loaded(Collections.unmodifiableList(byName), byId);
+    }
+  }
+
+  private static class Loaded {
+    private final long loadedAt = System.nanoTime();
+    private final List<Category> byName;
+    private final Map<Integer, Category> byId;
+
+    private Loaded(List<Category> byName, Map<Integer, Category> byId) {
+      this.byName = byName;
+      this.byId = byId;
+    }
+  }
+}
@@ -0,0 +1,448 @@
+package projects.dao;
+
+import com.mysql.cj.jdbc.JdbcConnection;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import projects.jfr.ConnectionIds;
+
+/**
+ * A bounded pool of physical MySQL connections. Callers receive a proxy whose {@code close()}
+ * returns the physical connection to the pool instead of closing the socket, so the existing
+ * try-with-resources blocks in the DAO work unchanged.
+ * <ul>
+ * <li>At most {@code maxSize} connections exist at once. A caller that cannot get one within the
+ * acquire timeout gets an {@link SQLException}.</li>
+ * <li>A connection that has been idle for a while is validated with {@link Connection#isValid(int)}
+ * before it is handed out. Recently used connections skip the check to save a round trip.</li>
+ * <li>A background thread closes connections idle longer than the idle timeout (down to
+ * {@code minSize}), tops the pool back up to {@code minSize} and reports connections that have been
+ * borrowed longer than the leak detection threshold.</li>
+ * <li>On return, an open transaction, including a read-only one started in auto-commit mode, is
+ * rolled back and auto-commit and read-only are reset so the next borrower gets a clean
+ * session.</li>
+ * <li>Each physical connection keeps a {@link StatementCache}, so prepared statements survive from
+ * one borrow to the next.</li>
+ * <li>While the {@link SlowQueryLog} is enabled or a flight recording has {@code projects.Query}
+ * enabled, prepared statements are wrapped in a {@link TracedStatement} that times every
+ * execution.</li>
+ * </ul>
+ */
+public class ConnectionPool implements AutoCloseable {
+  private static final Logger LOG = Logger.getLogger(ConnectionPool.class.getName());
+
+  /* Connections used more recently than this are handed out without a validation round trip. */
+  private static final long VALIDATION_BYPASS_NANOS = TimeUnit.MILLISECONDS.toNanos(500);
+  private static final long HOUSEKEEPING_PERIOD_MILLIS = 30_000;
+
+  private final String url;
+  private final Properties credentials = new Properties();
+  private final int minSize;
+  private final int maxSize;
+  private final long acquireTimeoutMillis;
+  private final long idleTimeoutNanos;
+  private final int validationTimeoutSeconds;
+  private final long leakDetectionThresholdNanos;
+  private final int statementCacheSize;
+  private final SlowQueryLog slowQueryLog;
+
+  private final LinkedBlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<>();
+  private final Set<PooledConnection> borrowed = ConcurrentHashMap.newKeySet();
+  private final Semaphore permits;
+  private final AtomicInteger total = new AtomicInteger();
+  private final ScheduledExecutorService housekeeper;
+
+  private final LongAdder created = new LongAdder();
+  private final LongAdder destroyed = new LongAdder();
+  private final LongAdder borrows = new LongAdder();
+  private final LongAdder acquireTimeouts = new LongAdder();
+  private final LongAdder validationFailures = new LongAdder();
+  private final LongAdder leaksDetected = new LongAdder();
+  private final LongAdder acquireNanos = new LongAdder();
+  private final StatementCache.Counters statementCounters = new StatementCache.Counters();
+
+  private volatile boolean closed;
+
+  public ConnectionPool(DbConfig config) {
+    this(config, config.getHost(), config.getPort());
+  }
+
+  /**
+   * Creates a pool for the given server, e.g. a read replica, with the settings of config.
+   */
+  public ConnectionPool(DbConfig config, String host, int port) {
+    url = config.getJdbcUrl(host, port);
+    credentials.setProperty("user", config.getUser());
+    credentials.setProperty("password", config.getPassword());
+    minSize = config.getPoolMinSize();
+    maxSize = config.getPoolMaxSize();
+    acquireTimeoutMillis = config.getAcquireTimeoutMillis();
+    idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(config.getIdleTimeoutMillis());
+    validationTimeoutSeconds = config.getValidationTimeoutSeconds();
+    leakDetectionThresholdNanos =
+        TimeUnit.MILLISECONDS.toNanos(config.getLeakDetectionThresholdMillis());
+    statementCacheSize = config.getStatementCacheSize();
+    slowQueryLog = config.getSlowQueryThresholdMillis() > 0
+        ? new SlowQueryLog(this, config.getSlowQueryThresholdMillis(),
+            config.isSlowQueryRedactParameters(), config.getSlowQueryExplainsPerMinute())
+        : null;
+    permits = new Semaphore(maxSize, true);
+
+    housekeeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "projects-pool-housekeeper");
+      thread.setDaemon(true);
+      return thread;
+    });
+
+    housekeeper.scheduleWithFixedDelay(this::housekeep, HOUSEKEEPING_PERIOD_MILLIS,
+        HOUSEKEEPING_PERIOD_MILLIS, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Borrows a connection, waiting up to the acquire timeout for one to become available. The
+   * returned connection must be closed to give it back to the pool.
+   *
+   * @return A proxy for a validated physical connection.
+   * @throws SQLException Thrown if the pool is closed, the timeout expires or a new connection
+   *         cannot be opened.
+   */
+  public Connection borrow() throws SQLException {
+    return borrow(null);
+  }
+
+  /**
+   * Borrows a connection like {@link #borrow()} and runs {@code onReturn} on the thread that
+   * closes it, after it is back in the pool.
+   */
+  Connection borrow(Runnable onReturn) throws SQLException {
+    if (closed) {
+      throw new SQLException("The connection pool has been closed.");
+    }
+
+    long start = System.nanoTime();
+
+    try {
+      if (!permits.tryAcquire(acquireTimeoutMillis, TimeUnit.MILLISECONDS)) {
+        acquireTimeouts.increment();
+        throw new SQLException("Timed out after " + acquireTimeoutMillis
+            + " ms waiting for a connection (active=" + borrowed.size() + ", max=" + maxSize + ")");
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new SQLException("Interrupted while waiting for a connection.", e);
+    }
+
+    try {
+      PooledConnection pooled = takeIdleOrCreate();
+
+      pooled.borrowedAt = System.nanoTime();
+      pooled.borrowSite = leakDetectionThresholdNanos > 0 ? new Exception("Borrowed here") : null;
+      pooled.leakReported = false;
+      borrowed.add(pooled);
+
+      borrows.increment();
+      acquireNanos.add(pooled.borrowedAt - start);
+
+      return pooled.lease(onReturn);
+    } catch (SQLException | RuntimeException e) {
+      permits.release();
+      throw e;
+    }
+  }
+
+  /**
+   * @return The number of connections currently borrowed.
+   */
+  int getActiveCount() {
+    return borrowed.size();
+  }
+
+  /**
+   * @return A point-in-time snapshot of the pool counters.
+   */
+  public PoolStats getStats() {
+    return new PoolStats(total.get(), idle.size(), borrowed.size(), permits.getQueueLength(),
+        created.sum(), destroyed.sum(), borrows.sum(), acquireTimeouts.sum(),
+        validationFailures.sum(), leaksDetected.sum(), acquireNanos.sum(),
+        statementCounters.hits.sum(), statementCounters.misses.sum(),
+        statementCounters.evictions.sum());
+  }
+
+  /**
+   * Closes all idle connections and stops the housekeeping thread. Borrowed connections are closed
+   * when they are returned.
+   */
+  @Override
+  public void close() {
+    closed = true;
+    housekeeper.shutdownNow();
+
+    if (Objects.nonNull(slowQueryLog)) {
+      slowQueryLog.close();
+    }
+
+    PooledConnection pooled;
+
+    while (Objects.nonNull(pooled = idle.pollFirst())) {
+      destroy(pooled);
+    }
+  }
+
+  private PooledConnection takeIdleOrCreate() throws SQLException {
+    PooledConnection pooled;
+
+    /* LIFO: the most recently returned connection is the one least likely to have gone stale. */
+    while (Objects.nonNull(pooled = idle.pollFirst())) {
+      if (System.nanoTime() - pooled.lastUsed < VALIDATION_BYPASS_NANOS || isValid(pooled)) {
+        return pooled;
+      }
+
+      validationFailures.increment();
+      destroy(pooled);
+    }
+
+    return create();
+  }
+
+  private boolean isValid(PooledConnection pooled) {
+    try {
+      return pooled.physical.isValid(validationTimeoutSeconds);
+    } catch (SQLException e) {
+      return false;
+    }
+  }
+
+  private PooledConnection create() throws SQLException {
+    Connection physical = DriverManager.getConnection(url, credentials);
+
+    total.incrementAndGet();
+    created.increment();
+
+    return new PooledConnection(physical);
+  }
+
+  private void destroy(PooledConnection pooled) {
+    total.decrementAndGet();
+    destroyed.increment();
+
+    try {
+      if (Objects.nonNull(pooled.statementCache)) {
+        pooled.statementCache.closeAll();
+      }
+
+      pooled.physical.close();
+    } catch (SQLException e) {
+      LOG.log(Level.FINE, "Error closing pooled connection", e);
+    }
+  }
+
+  private void giveBack(PooledConnection pooled) {
+    borrowed.remove(pooled);
+
+    try {
+      if (closed || !reset(pooled.physical)) {
+        destroy(pooled);
+      } else {
+        pooled.lastUsed = System.nanoTime();
+        idle.offerFirst(pooled);
+      }
+    } finally {
+      permits.release();
+    }
+  }
+
+  private boolean reset(Connection physical) {
+    try {
+      if (physical.isClosed()) {
+        return false;
+      }
+
+      if (!physical.getAutoCommit()) {
+        physical.rollback();
+        physical.setAutoCommit(true);
+      } else if (inTransactionOnServer(physical)) {
+        /* a START TRANSACTION READ ONLY that was never ended; commit() refuses in auto-commit */
+        try (Statement stmt = physical.createStatement()) {
+          stmt.execute("ROLLBACK");
+        }
+      }
+
+      if (physical.isReadOnly()) {
+        physical.setReadOnly(false);
+      }
+
+      return true;
+    } catch (SQLException e) {
+      LOG.log(Level.FINE, "Discarding connection that could not be reset", e);
+      return false;
+    }
+  }
+
+  private static boolean inTransactionOnServer(Connection physical) throws SQLException {
+    // read from the status flags of the last reply, so it costs no round trip
+    return physical.isWrapperFor(JdbcConnection.class) && physical.unwrap(JdbcConnection.class)
+        .getSession().getServerSession().inTransactionOnServer();
+  }
+
+  private void housekeep() {
+    try {
+      long now = System.nanoTime();
+
+      for (PooledConnection pooled : idle) {
+        if (total.get() > minSize && now - pooled.lastUsed > idleTimeoutNanos
+            && idle.remove(pooled)) {
+          destroy(pooled);
+        }
+      }
+
+      while (!closed && total.get() < minSize && permits.tryAcquire()) {
+        try {
+          PooledConnection pooled = create();
+          pooled.lastUsed = System.nanoTime();
+          idle.offerLast(pooled);
+        } finally {
+          permits.release();
+        }
+      }
+
+      if (leakDetectionThresholdNanos > 0) {
+        for (PooledConnection pooled : borrowed) {
+          if (!pooled.leakReported && now - pooled.borrowedAt > leakDetectionThresholdNanos) {
+            pooled.leakReported = true;
+            leaksDetected.increment();
+            LOG.log(Level.WARNING, "Connection borrowed for more than "
+                + TimeUnit.NANOSECONDS.toMillis(leakDetectionThresholdNanos)
+                + " ms; possible leak", pooled.borrowSite);
+          }
+        }
+      }
+    } catch (SQLException | RuntimeException e) {
+      LOG.log(Level.WARNING, "Connection pool housekeeping failed", e);
+    }
+  }
+
+  /**
+   * Pool bookkeeping for one physical connection.
+   */
+  private class PooledConnection {
+    private final Connection physical;
+    private final StatementCache statementCache;
+    private final long connectionId;
+    private volatile long lastUsed;
+    private volatile long borrowedAt;
+    private volatile Exception borrowSite;
+    private volatile boolean leakReported;
+
+    private PooledConnection(Connection physical) {
+      this.physical = physical;
+      this.statementCache = statementCacheSize > 0
+          ? new StatementCache(physical, statementCacheSize, statementCounters)
+          : null;
+      this.connectionId = ConnectionIds.of(physical);
+    }
+
+    /*
+     * Each borrow gets its own proxy so that a stale reference kept by a previous borrower can
+     * neither use nor return a connection that now belongs to someone else.
+     */
+    private Connection lease(Runnable onReturn) {
+      return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+          new Class<?>[] {Connection.class}, new Lease(this, onReturn));
+    }
+  }
+
+  /**
+   * Invocation handler behind a borrowed connection.
+   */
+  private class Lease implements InvocationHandler {
+    private final PooledConnection pooled;
+    private final Runnable onReturn;
+    private boolean returned;
+
+    private Lease(PooledConnection pooled, Runnable onReturn) {
+      this.pooled = pooled;
+      this.onReturn = onReturn;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+      switch (method.getName()) {
+        case "close":
+          if (!returned) {
+            returned = true;
+            giveBack(pooled);
+
+            if (Objects.nonNull(onReturn)) {
+              onReturn.run();
+            }
+          }
+          return null;
+
+        case "isClosed":
+          if (returned) {
+            return true;
+          }
+          break;
+
+        case "prepareStatement":
+          if (returned) {
+            throw new SQLException("Connection has already been returned to the pool.");
+          }
+
+          PreparedStatement stmt = Objects.nonNull(pooled.statementCache)
+              ? pooled.statementCache.prepare(method, args)
+              : null;
+
+          if (Objects.isNull(stmt)) {
+            stmt = (PreparedStatement) invokePhysical(method, args);
+          }
+
+          return TracedStatement.wrap(stmt, (String) args[0], pooled.connectionId,
+              slowQueryLog);
+
+        case "equals":
+          return proxy == args[0];
+
+        case "hashCode":
+          return System.identityHashCode(proxy);
+
+        case "toString":
+          return "Pooled" + pooled.physical;
+
+        default:
+          if (returned) {
+            throw new SQLException("Connection has already been returned to the pool.");
+          }
+      }
+
+      return invokePhysical(method, args);
+    }
+
+    private Object invokePhysical(Method method, Object[] args) throws Throwable {
+      try {
+        return method.invoke(pooled.physical, args);
+      } catch (InvocationTargetException e) {
+        throw e.getCause();
+      }
+    }
+  }
+}
@@ -0,0 +1,336 @@
+package projects.dao;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Properties;
+import projects.exception.DbException;
+
+/**
+ * Connection and pool settings for {@link DbConnection}. Each setting is looked up by its property
+ * key (for example {@code projects.db.host}) in this order:
+ * <ol>
+ * <li>a JVM system property ({@code -Dprojects.db.host=db1}),</li>
+ * <li>an environment variable named after the key in upper case with dots replaced by underscores
+ * ({@code PROJECTS_DB_HOST=db1}),</li>
+ * <li>the {@code projects-db.properties} file on the classpath,</li>
+ * <li>the built-in default.</li>
+ * </ol>
+ */
+public class DbConfig {
+  private static final String RESOURCE = "projects-db.properties";
+
+  private final String host;
+  private final int port;
+  private final String schema;
+  private final String user;
+  private final String password;
+
+  private final int poolMinSize;
+  private final int poolMaxSize;
+  private final long acquireTimeoutMillis;
+  private final long idleTimeoutMillis;
+  private final int validationTimeoutSeconds;
+  private final long leakDetectionThresholdMillis;
+  private final int statementCacheSize;
+
+  private final long slowQueryThresholdMillis;
+  private final boolean slowQueryRedactParameters;
+  private final int slowQueryExplainsPerMinute;
+
+  private final List<InetSocketAddress> replicas;
+  private final boolean replicaLeastOutstanding;
+  private final long replicaMaxLagSeconds;
+  private final long replicaLagCheckIntervalMillis;
+  private final long replicaStickyMillis;
+
+  private final int batchSize;
+
+  private DbConfig(Properties file) {
+    host = lookup(file, "projects.db.host", "localhost");
+    port = lookupInt(file, "projects.db.port", 3306);
+    schema = lookup(file, "projects.db.schema", "projects");
+    user = lookup(file, "projects.db.user", "projects");
+    password = lookup(file, "projects.db.password", "projects");
+
+    poolMinSize = lookupInt(file, "projects.db.pool.minSize", 1);
+    poolMaxSize = lookupInt(file, "projects.db.pool.maxSize", 10);
+    acquireTimeoutMillis = lookupLong(file, "projects.db.pool.acquireTimeoutMillis", 30_000);
+    idleTimeoutMillis = lookupLong(file, "projects.db.pool.idleTimeoutMillis", 600_000);
+    validationTimeoutSeconds = lookupInt(file, "projects.db.pool.validationTimeoutSeconds", 5);
+    leakDetectionThresholdMillis =
+        lookupLong(file, "projects.db.pool.leakDetectionThresholdMillis", 0);
+    statementCacheSize = lookupInt(file, "projects.db.pool.statementCacheSize", 64);
+
+    slowQueryThresholdMillis = lookupLong(file, "projects.db.slowQuery.thresholdMillis", 0);
+    slowQueryRedactParameters =
+        lookupBoolean(file, "projects.db.slowQuery.redactParameters", false);
+    slowQueryExplainsPerMinute = lookupInt(file, "projects.db.slowQuery.explainsPerMinute", 6);
+
+    replicas = parseReplicas(lookup(file, "projects.db.replicas", ""), port);
+    String routing = lookup(file, "projects.db.replica.routing", "least-outstanding");
+    replicaLeastOutstanding = routing.equals("least-outstanding");
+    replicaMaxLagSeconds = lookupLong(file, "projects.db.replica.maxLagSeconds", 5);
+    replicaLagCheckIntervalMillis =
+        lookupLong(file, "projects.db.replica.lagCheckIntervalMillis", 1000);
+    replicaStickyMillis = lookupLong(file, "projects.db.replica.stickyMillis", 5000);
+
+    batchSize = lookupInt(file, "projects.db.batchSize", 1000);
+
+    if (!replicaLeastOutstanding && !routing.equals("round-robin")) {
+      throw new DbException("projects.db.replica.routing=" + routing
+          + " is not round-robin or least-outstanding.");
+    }
+
+    if (replicaLagCheckIntervalMillis < 1) {
+      throw new DbException(
+          "Invalid replica lag check interval: " + replicaLagCheckIntervalMillis);
+    }
+
+    if (poolMinSize < 0 || poolMaxSize < 1 || poolMinSize > poolMaxSize) {
+      throw new DbException(
+          "Invalid pool size: minSize=" + poolMinSize + ", maxSize=" + poolMaxSize);
+    }
+
+    if (batchSize < 1) {
+      throw new DbException("Invalid batch size: " + batchSize);
+    }
+  }
+
+  /**
+   * Reads the configuration from system properties, the environment and
+   * {@code projects-db.properties}.
+   *
+   * @return The resolved configuration.
+   */
+  public static DbConfig load() {
+    Properties file = new Properties();
+
+    try (InputStream in = DbConfig.class.getClassLoader().getResourceAsStream(RESOURCE)) {
+      if (Objects.nonNull(in)) {
+        file.load(in);
+      }
+    } catch (IOException e) {
+      throw new DbException("Unable to read " + RESOURCE, e);
+    }
+
+    return new DbConfig(file);
+  }
+
+  /**
+   * @return The JDBC URL for the configured server. Credentials are not part of the URL; they are
+   *         passed to the driver separately so they never end up in log output.
+   *         rewriteBatchedStatements lets the driver send a batch of inserts as multi-row INSERT
+   *         statements instead of one round trip per row. useServerPrepStmts makes the server parse
+   *         each statement once when it is prepared; together with the pool's statement cache that
+   *         happens once per connection rather than once per call.
+   */
+  public String getJdbcUrl() {
+    return getJdbcUrl(host, port);
+  }
+
+  /**
+   * @return The JDBC URL for another server with the same schema and options, e.g. a replica.
+   */
+  public String getJdbcUrl(String host, int port) {
+    return String.format("jdbc:mysql://%s:%d/%s?useSSL=false&rewriteBatchedStatements=true"
+        + "&useServerPrepStmts=true", host, port, schema);
+  }
+
+  public String getHost() {
+    return host;
+  }
+
+  public int getPort() {
+    return port;
+  }
+
+  public String getSchema() {
+    return schema;
+  }
+
+  public String getUser() {
+    return user;
+  }
+
+  public String getPassword() {
+    return password;
+  }
+
+  public int getPoolMinSize() {
+    return poolMinSize;
+  }
+
+  public int getPoolMaxSize() {
+    return poolMaxSize;
+  }
+
+  public long getAcquireTimeoutMillis() {
+    return acquireTimeoutMillis;
+  }
+
+  public long getIdleTimeoutMillis() {
+    return idleTimeoutMillis;
+  }
+
+  public int getValidationTimeoutSeconds() {
+    return validationTimeoutSeconds;
+  }
+
+  /**
+   * @return How long a connection may stay borrowed before the pool logs it as a possible leak.
+   *         Zero disables leak detection.
+   */
+  public long getLeakDetectionThresholdMillis() {
+    return leakDetectionThresholdMillis;
+  }
+
+  /**
+   * @return The number of prepared statements cached per pooled connection. Zero disables the
+   *         cache.
+   */
+  public int getStatementCacheSize() {
+    return statementCacheSize;
+  }
+
+  /**
+   * @return How long a statement may run before it is logged as slow. Zero disables the slow query
+   *         log.
+   */
+  public long getSlowQueryThresholdMillis() {
+    return slowQueryThresholdMillis;
+  }
+
+  /**
+   * @return True if bound parameter values are replaced by their type in the slow query log.
+   */
+  public boolean isSlowQueryRedactParameters() {
+    return slowQueryRedactParameters;
+  }
+
+  /**
+   * @return The most EXPLAIN plans the slow query log captures per minute. Zero disables EXPLAIN
+   *         capture.
+   */
+  public int getSlowQueryExplainsPerMinute() {
+    return slowQueryExplainsPerMinute;
+  }
+
+  /**
+   * @return The read replicas, from a comma-separated list of host[:port] entries; the port
+   *         defaults to the primary's. Empty if all reads go to the primary.
+   */
+  public List<InetSocketAddress> getReplicas() {
+    return replicas;
+  }
+
+  /**
+   * @return True to send each read to the replica with the fewest borrowed connections, false to
+   *         take the replicas in turn.
+   */
+  public boolean isReplicaLeastOutstanding() {
+    return replicaLeastOutstanding;
+  }
+
+  /**
+   * @return How far a replica may fall behind the primary before reads stop going to it.
+   */
+  public long getReplicaMaxLagSeconds() {
+    return replicaMaxLagSeconds;
+  }
+
+  public long getReplicaLagCheckIntervalMillis() {
+    return replicaLagCheckIntervalMillis;
+  }
+
+  /**
+   * @return How long after a {@link DbSession} last returned a write connection its reads keep
+   *         going to the primary, so it reads its own writes. Zero disables this.
+   */
+  public long getReplicaStickyMillis() {
+    return replicaStickyMillis;
+  }
+
+  /**
+   * @return The default number of projects written per batch and transaction by
+   *         {@link ProjectDao#insertProjects(java.util.Collection)}.
+   */
+  public int getBatchSize() {
+    return batchSize;
+  }
+
+  private static List<InetSocketAddress> parseReplicas(String value, int defaultPort) {
+    List<InetSocketAddress> addresses = new ArrayList<>();
+
+    for (String entry : value.split(",")) {
+      String address = entry.trim();
+
+      if (address.isEmpty()) {
+        continue;
+      }
+
+      int colon = address.lastIndexOf(':');
+
+      try {
+        addresses.add(colon < 0 ? InetSocketAddress.createUnresolved(address, defaultPort)
+            : InetSocketAddress.createUnresolved(address.substring(0, colon),
+                Integer.parseInt(address.substring(colon + 1))));
+      } catch (IllegalArgumentException e) {
+        throw new DbException("Invalid replica address: " + address, e);
+      }
+    }
+
+    return Collections.unmodifiableList(addresses);
+  }
+
+  private static String lookup(Properties file, String key, String defaultValue) {
+    String value = System.getProperty(key);
+
+    if (Objects.isNull(value)) {
+      value = System.getenv(key.toUpperCase(Locale.ROOT).replace('.', '_'));
+    }
+
+    if (Objects.isNull(value)) {
+      value = file.getProperty(key);
+    }
+
+    return Objects.isNull(value) || value.isBlank() ? defaultValue : value.trim();
+  }
+
+  private static int lookupInt(Properties file, String key, int defaultValue) {
+    return (int) lookupLong(file, key, defaultValue);
+  }
+
+  private static boolean lookupBoolean(Properties file, String key, boolean defaultValue) {
+    String value = lookup(file, key, null);
+
+    if (Objects.isNull(value)) {
+      return defaultValue;
+    }
+
+    if (!value.equalsIgnoreCase("true") && !value.equalsIgnoreCase("false")) {
+      throw new DbException(key + "=" + value + " is not true or false.");
+    }
+
+    return Boolean.parseBoolean(value);
+  }
+
+  private static long lookupLong(Properties file, String key, long defaultValue) {
+    String value = lookup(file, key, null);
+
+    if (Objects.isNull(value)) {
+      return defaultValue;
+    }
+
+    try {
+      return Long.parseLong(value);
+    } catch (NumberFormatException e) {
+      throw new DbException(key + "=" + value + " is not a valid number.");
+    }
+  }
+}
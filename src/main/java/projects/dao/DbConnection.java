@@ -1,30 +1,191 @@
 package projects.dao;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
-import recipes.exception.DbException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import projects.exception.DbException;
+import projects.metrics.Metrics;
+import projects.metrics.MetricsRegistry;
 
 public class DbConnection {
+  private static final DbConfig CONFIG = DbConfig.load();
 
-  private static String HOST = "localhost";
-  private static String PASSWORD = "projects";
-  private static int PORT = 3306;
-  private static String SCHEMA = "projects";
-  private static String USER = "projects";
+  private static final long STICKY_NANOS =
+      TimeUnit.MILLISECONDS.toNanos(CONFIG.getReplicaStickyMillis());
+
+  /* stamps the returning thread's session once a write connection is back in the pool */
+  private static final Runnable MARK_WRITE = () -> DbSession.current().markWrite();
+
+  private static volatile ConnectionPool pool;
+  private static volatile ReplicaRouter replicas;
 
   public static Connection getConnection() {
-    String url = String.format("jdbc:mysql://%s:%d/%s?user=%s&password=%s&useSSL=false", HOST, PORT,
-        SCHEMA, USER, PASSWORD);
-//    System.out.println("Connecting with url: " + url);
-    
+    /*
+     * borrows a connection from the pool; closing the returned connection hands it back to the pool
+     * instead of closing the socket, so callers keep using try-with-resources as before; the wait
+     * is recorded in the metrics registry when metrics are enabled; with replicas, the caller's
+     * session is stamped when the connection comes back, so a long transaction counts from its
+     * end rather than its start
+     */
+    boolean sticky = STICKY_NANOS > 0 && Objects.nonNull(replicas());
+    return borrow(pool(), sticky ? MARK_WRITE : null);
+  }
+
+  /**
+   * Borrows a connection for reads only. With replicas configured, it comes from a replica that
+   * is no further behind than the configured maximum lag, chosen by the configured routing. It
+   * comes from the primary when there are no replicas, none is healthy, or the current
+   * {@link DbSession} returned a connection from {@link #getConnection()} within the sticky window,
+   * so a session reads its own writes.
+   */
+  public static Connection getReadConnection() {
+    return borrow(readPool(), null);
+  }
+
+  /**
+   * Borrows connections for reads whose results are merged with each other, all from one server:
+   * the one {@link #getReadConnection()} would choose. Replicas with different lag could otherwise
+   * disagree about which rows exist.
+   */
+  public static List<Connection> getReadConnections(int count) {
+    return borrowAll(readPool(), count);
+  }
+
+  /**
+   * Borrows primary connections like {@link #getPrimaryReadConnection()}, for reads whose results
+   * are merged with each other.
+   */
+  public static List<Connection> getPrimaryReadConnections(int count) {
+    return borrowAll(pool(), count);
+  }
+
+  /**
+   * Borrows a primary connection for reads that must not lag behind the primary: loads that fill a
+   * cache shared by every session, and reads that start an edit. Unlike
+   * {@link #getConnection()}, returning it does not make the session sticky.
+   */
+  public static Connection getPrimaryReadConnection() {
+    return borrow(pool(), null);
+  }
+
+  public static DbConfig getConfig() {
+    return CONFIG;
+  }
+
+  public static PoolStats getPoolStats() {
+    return pool().getStats();
+  }
+
+  /**
+   * @return The pool counters of each read replica, keyed by host:port; empty if there are none.
+   */
+  public static Map<String, PoolStats> getReplicaPoolStats() {
+    ReplicaRouter router = replicas();
+    return Objects.isNull(router) ? Map.of() : router.getStats();
+  }
+
+  public static synchronized void shutdown() {
+    // closes the pools; the next getConnection() call starts new ones
+    if (Objects.nonNull(pool)) {
+      pool.close();
+      pool = null;
+    }
+
+    if (Objects.nonNull(replicas)) {
+      replicas.close();
+      replicas = null;
+    }
+  }
+
+  private static ConnectionPool readPool() {
+    ReplicaRouter router = replicas();
+
+    if (Objects.isNull(router) || DbSession.current().wroteWithin(STICKY_NANOS)) {
+      return pool();
+    }
+
+    ConnectionPool replica = router.choose();
+
+    return Objects.isNull(replica) ? pool() : replica;
+  }
+
+  private static List<Connection> borrowAll(ConnectionPool from, int count) {
+    List<Connection> borrowed = new ArrayList<>(count);
+
     try {
-      Connection conn = DriverManager.getConnection(url);
-      System.out.println("\nConnection successful!");
+      while (borrowed.size() < count) {
+        borrowed.add(borrow(from, null));
+      }
+
+      return borrowed;
+    } catch (RuntimeException e) {
+      for (Connection conn : borrowed) {
+        try {
+          conn.close();
+        } catch (SQLException suppressed) {
+          e.addSuppressed(suppressed);
+        }
+      }
+
+      throw e;
+    }
+  }
+
+  private static Connection borrow(ConnectionPool from, Runnable onReturn) {
+    MetricsRegistry metrics = Metrics.registry();
+
+    try {
+      if (!metrics.isEnabled()) {
+        return from.borrow(onReturn);
+      }
+
+      long start = System.nanoTime();
+      Connection conn = from.borrow(onReturn);
+      metrics.recordConnectionAcquire(System.nanoTime() - start);
+
       return conn;
     } catch (SQLException e) {
-      System.out.println("\nConnection unsuccessful.");
       throw new DbException(e);
     }
   }
+
+  private static ReplicaRouter replicas() {
+    if (CONFIG.getReplicas().isEmpty()) {
+      return null;
+    }
+
+    ReplicaRouter current = replicas;
+
+    if (Objects.isNull(current)) {
+      synchronized (DbConnection.class) {
+        current = replicas;
+
+        if (Objects.isNull(current)) {
+          current = replicas = new ReplicaRouter(CONFIG);
+        }
+      }
+    }
+
+    return current;
+  }
+
+  private static ConnectionPool pool() {
+    ConnectionPool current = pool;
+
+    if (Objects.isNull(current)) {
+      synchronized (DbConnection.class) {
+        current = pool;
+
+        if (Objects.isNull(current)) {
+          current = pool = new ConnectionPool(CONFIG);
+        }
+      }
+    }
+
+    return current;
+  }
 }
@@ -0,0 +1,54 @@
+package projects.dao;
+
+import java.util.function.Supplier;
+
+/**
+ * The scope of read-your-writes routing. When a connection from
+ * {@link DbConnection#getConnection()} is returned to the pool, after its transaction has
+ * committed, the session is stamped; for {@code projects.db.replica.stickyMillis} after that,
+ * {@link DbConnection#getReadConnection()} reads from the primary, so the session sees its own
+ * writes even while the replicas lag.
+ *
+ * Each thread has a session of its own unless it runs work under {@link #call(Supplier)}. Work
+ * spread over several threads shares stickiness by running under the same session, as
+ * {@code ProjectAsyncService} does with its tasks.
+ *
+ * Thread-safe.
+ */
+public final class DbSession {
+  private static final ThreadLocal<DbSession> CURRENT = ThreadLocal.withInitial(DbSession::new);
+
+  private volatile boolean wrote;
+  private volatile long lastWriteNanos;
+
+  /**
+   * @return The session the calling thread is running under.
+   */
+  public static DbSession current() {
+    return CURRENT.get();
+  }
+
+  /**
+   * Runs the work on the calling thread under this session, then restores the thread's previous
+   * session.
+   */
+  public <T> T call(Supplier<T> work) {
+    DbSession previous = CURRENT.get();
+    CURRENT.set(this);
+
+    try {
+      return work.get();
+    } finally {
+      CURRENT.set(previous);
+    }
+  }
+
+  void markWrite() {
+    lastWriteNanos = System.nanoTime();
+    wrote = true;
+  }
+
+  boolean wroteWithin(long nanos) {
+    return wrote && System.nanoTime() - lastWriteNanos < nanos;
+  }
+}
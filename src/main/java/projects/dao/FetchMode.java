@@ -0,0 +1,19 @@
+package projects.dao;
+
+/**
+ * How {@link ProjectDao#fetchProjectById(Integer, FetchMode)} loads a project and its children.
+ */
+public enum FetchMode {
+  /**
+   * One query per table (project, material, step, category) in a read transaction: four round
+   * trips, each returning plain rows.
+   */
+  MULTI_QUERY,
+
+  /**
+   * One query that has MySQL build the whole aggregate as a JSON document with
+   * {@code JSON_OBJECT} and {@code JSON_ARRAYAGG} subqueries: one round trip, at the cost of
+   * building and parsing the JSON text. Worth it when the network round trip dominates.
+   */
+  JSON_AGGREGATE
+}
@@ -0,0 +1,114 @@
+package projects.dao;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A snapshot of {@link ConnectionPool} counters. The gauges (total, idle, active, waiting) reflect
+ * the moment the snapshot was taken; the rest are cumulative since the pool was created.
+ */
+public class PoolStats {
+  private final int totalConnections;
+  private final int idleConnections;
+  private final int activeConnections;
+  private final int waitingThreads;
+  private final long connectionsCreated;
+  private final long connectionsDestroyed;
+  private final long borrows;
+  private final long acquireTimeouts;
+  private final long validationFailures;
+  private final long leaksDetected;
+  private final long totalAcquireNanos;
+  private final long statementCacheHits;
+  private final long statementCacheMisses;
+  private final long statementCacheEvictions;
+
+  PoolStats(int totalConnections, int idleConnections, int activeConnections, int waitingThreads,
+      long connectionsCreated, long connectionsDestroyed, long borrows, long acquireTimeouts,
+      long validationFailures, long leaksDetected, long totalAcquireNanos, long statementCacheHits,
+      long statementCacheMisses, long statementCacheEvictions) {
+    this.totalConnections = totalConnections;
+    this.idleConnections = idleConnections;
+    this.activeConnections = activeConnections;
+    this.waitingThreads = waitingThreads;
+    this.connectionsCreated = connectionsCreated;
+    this.connectionsDestroyed = connectionsDestroyed;
+    this.borrows = borrows;
+    this.acquireTimeouts = acquireTimeouts;
+    this.validationFailures = validationFailures;
+    this.leaksDetected = leaksDetected;
+    this.totalAcquireNanos = totalAcquireNanos;
+    this.statementCacheHits = statementCacheHits;
+    this.statementCacheMisses = statementCacheMisses;
+    this.statementCacheEvictions = statementCacheEvictions;
+  }
+
+  public int getTotalConnections() {
+    return totalConnections;
+  }
+
+  public int getIdleConnections() {
+    return idleConnections;
+  }
+
+  public int getActiveConnections() {
+    return activeConnections;
+  }
+
+  public int getWaitingThreads() {
+    return waitingThreads;
+  }
+
+  public long getConnectionsCreated() {
+    return connectionsCreated;
+  }
+
+  public long getConnectionsDestroyed() {
+    return connectionsDestroyed;
+  }
+
+  public long getBorrows() {
+    return borrows;
+  }
+
+  public long getAcquireTimeouts() {
+    return acquireTimeouts;
+  }
+
+  public long getValidationFailures() {
+    return validationFailures;
+  }
+
+  public long getLeaksDetected() {
+    return leaksDetected;
+  }
+
+  /**
+   * @return The mean time a caller waited in {@link ConnectionPool#borrow()}, in microseconds.
+   */
+  public long getAverageAcquireMicros() {
+    return borrows == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(totalAcquireNanos / borrows);
+  }
+
+  public long getStatementCacheHits() {
+    return statementCacheHits;
+  }
+
+  public long getStatementCacheMisses() {
+    return statementCacheMisses;
+  }
+
+  public long getStatementCacheEvictions() {
+    return statementCacheEvictions;
+  }
+
+  @Override
+  public String toString() {
+    return "total=" + totalConnections + ", idle=" + idleConnections + ", active="
+        + activeConnections + ", waiting=" + waitingThreads + ", created=" + connectionsCreated
+        + ", destroyed=" + connectionsDestroyed + ", borrows=" + borrows + ", acquireTimeouts="
+        + acquireTimeouts + ", validationFailures=" + validationFailures + ", leaksDetected="
+        + leaksDetected + ", avgAcquireMicros=" + getAverageAcquireMicros()
+        + ", statementCacheHits=" + statementCacheHits + ", statementCacheMisses="
+        + statementCacheMisses + ", statementCacheEvictions=" + statementCacheEvictions;
+  }
+}
@@ -1,75 +1,2014 @@
 package projects.dao;
 
+import java.io.IOException;
+import java.io.Reader;
 import java.math.BigDecimal;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 import projects.entity.Category;
+import projects.entity.CategoryRollup;
 import projects.entity.Material;
 import projects.entity.Project;
+import projects.entity.ProjectRollup;
+import projects.entity.ProjectSummary;
 import projects.entity.Step;
 import projects.exception.DbException;
+import projects.exception.JsonException;
+import projects.exception.PartialInsertException;
+import projects.exception.StaleDataException;
+import projects.json.JsonReader;
+import projects.json.ProjectJson;
+import projects.metrics.DaoOperation;
 import provided.util.DaoBase;
+import provided.util.RowMapper;
 
 public class ProjectDao extends DaoBase {
   private static final String CATEGORY_TABLE = "category";
+  private static final String CATEGORY_ROLLUP_TABLE = "category_rollup";
   private static final String MATERIAL_TABLE = "material";
   private static final String PROJECT_TABLE = "project";
   private static final String PROJECT_CATEGORY_TABLE = "project_category";
+  private static final String PROJECT_ROLLUP_TABLE = "project_rollup";
   private static final String STEP_TABLE = "step";
 
+  // the largest IN list sent in one statement by the bulk fetch
+  private static final int IN_LIST_CHUNK_SIZE = 1000;
+
+  /*
+   * the distance between the orders of neighboring steps after numbering or renumbering; a step
+   * inserted between two others takes the midpoint, so about ten inserts can land in the same gap
+   * before the project's steps have to be renumbered
+   */
+  private static final int STEP_ORDER_GAP = 1024;
+
+  /*
+   * shared by all ProjectDao instances; reloaded after projects.categoryCache.ttlSeconds (300 by
+   * default), or sooner when a project references a category that isn't loaded yet
+   */
+  private static final CategoryCache CATEGORY_CACHE =
+      new CategoryCache(Long.getLong("projects.categoryCache.ttlSeconds", 300), TimeUnit.SECONDS);
+
+  // @formatter:off
+  private static final String INSERT_PROJECT_SQL = ""
+      + "INSERT INTO " + PROJECT_TABLE + " "
+      + "(project_name, estimated_hours, actual_hours, difficulty, notes) "
+      + "VALUES "
+      + "(?, ?, ?, ?, ?)";
+  private static final String INSERT_MATERIAL_SQL = ""
+      + "INSERT INTO " + MATERIAL_TABLE + " "
+      + "(project_id, material_name, num_required, cost) "
+      + "VALUES "
+      + "(?, ?, ?, ?)";
+  private static final String INSERT_STEP_SQL = ""
+      + "INSERT INTO " + STEP_TABLE + " "
+      + "(project_id, step_text, step_order) "
+      + "VALUES "
+      + "(?, ?, ?)";
+  private static final String INSERT_PROJECT_CATEGORY_SQL = ""
+      + "INSERT INTO " + PROJECT_CATEGORY_TABLE + " "
+      + "(project_id, category_id) "
+      + "VALUES "
+      + "(?, ?)";
+
+  private static final String ALL_PROJECTS_SQL =
+      "SELECT * FROM " + PROJECT_TABLE + " ORDER BY project_name";
+  private static final String PROJECT_SUMMARIES_SQL = ""
+      + "SELECT project_id, project_name FROM " + PROJECT_TABLE + " "
+      + "ORDER BY project_name, project_id";
+  private static final String FIRST_SUMMARY_PAGE_SQL = ""
+      + "SELECT project_id, project_name FROM " + PROJECT_TABLE + " "
+      + "ORDER BY project_name, project_id "
+      + "LIMIT ?";
+  private static final String NEXT_SUMMARY_PAGE_SQL = ""
+      + "SELECT project_id, project_name FROM " + PROJECT_TABLE + " "
+      + "WHERE project_name > ? OR (project_name = ? AND project_id > ?) "
+      + "ORDER BY project_name, project_id "
+      + "LIMIT ?";
+  private static final String PROJECT_BY_ID_SQL =
+      "SELECT * FROM " + PROJECT_TABLE + " WHERE project_id = ?";
+  // categories are read from CATEGORY_CACHE, so only the ids are selected from project_category
+  private static final String CATEGORIES_FOR_PROJECT_SQL =
+      "SELECT category_id FROM " + PROJECT_CATEGORY_TABLE + " WHERE project_id = ?";
+  private static final String STEPS_FOR_PROJECT_SQL =
+      "SELECT * FROM " + STEP_TABLE + " WHERE project_id = ? ORDER BY step_order";
+  private static final String MATERIALS_FOR_PROJECT_SQL =
+      "SELECT * FROM " + MATERIAL_TABLE + " WHERE project_id = ?";
+
+  // the IN list markers and closing parenthesis are appended by inListSql()
+  private static final String PROJECTS_IN_SQL =
+      "SELECT * FROM " + PROJECT_TABLE + " WHERE project_id IN (";
+  private static final String MATERIALS_IN_SQL =
+      "SELECT * FROM " + MATERIAL_TABLE + " WHERE project_id IN (";
+  private static final String STEPS_IN_SQL =
+      "SELECT * FROM " + STEP_TABLE + " WHERE project_id IN (";
+  private static final String STEPS_IN_SQL_ORDER = " ORDER BY project_id, step_order";
+  private static final String CATEGORIES_IN_SQL =
+      "SELECT project_id, category_id FROM " + PROJECT_CATEGORY_TABLE + " WHERE project_id IN (";
+
+  /*
+   * builds the whole aggregate in the format of ProjectJson; JSON_ARRAYAGG returns null for no
+   * rows and doesn't guarantee an order, so the steps are sorted after decoding; categories carry
+   * only their id and are replaced by the cached instances
+   */
+  private static final String PROJECT_JSON_BY_ID_SQL = ""
+      + "SELECT JSON_OBJECT("
+      + "'projectId', p.project_id, 'projectName', p.project_name, "
+      + "'estimatedHours', p.estimated_hours, 'actualHours', p.actual_hours, "
+      + "'difficulty', p.difficulty, 'notes', p.notes, 'version', p.version, "
+      + "'materials', (SELECT JSON_ARRAYAGG(JSON_OBJECT("
+      + "'materialId', m.material_id, 'materialName', m.material_name, "
+      + "'numRequired', m.num_required, 'cost', m.cost, 'version', m.version)) "
+      + "FROM " + MATERIAL_TABLE + " m WHERE m.project_id = p.project_id), "
+      + "'steps', (SELECT JSON_ARRAYAGG(JSON_OBJECT("
+      + "'stepId', s.step_id, 'stepText', s.step_text, 'stepOrder', s.step_order, "
+      + "'version', s.version)) "
+      + "FROM " + STEP_TABLE + " s WHERE s.project_id = p.project_id), "
+      + "'categories', (SELECT JSON_ARRAYAGG(JSON_OBJECT('categoryId', pc.category_id)) "
+      + "FROM " + PROJECT_CATEGORY_TABLE + " pc WHERE pc.project_id = p.project_id)) "
+      + "FROM " + PROJECT_TABLE + " p WHERE p.project_id = ?";
+
+  /*
+   * ranks projects by the relevance of their notes plus that of their steps, using the FULLTEXT
+   * indexes project_notes_ft and step_text_ft; the query text is bound to all four markers
+   */
+  private static final String SEARCH_PROJECTS_SQL = ""
+      + "SELECT p.project_id, p.project_name, SUM(hits.score) AS score FROM ("
+      + "SELECT project_id, MATCH (notes) AGAINST (? IN NATURAL LANGUAGE MODE) AS score "
+      + "FROM " + PROJECT_TABLE + " "
+      + "WHERE MATCH (notes) AGAINST (? IN NATURAL LANGUAGE MODE) "
+      + "UNION ALL "
+      + "SELECT project_id, MATCH (step_text) AGAINST (? IN NATURAL LANGUAGE MODE) "
+      + "FROM " + STEP_TABLE + " "
+      + "WHERE MATCH (step_text) AGAINST (? IN NATURAL LANGUAGE MODE)"
+      + ") hits "
+      + "JOIN " + PROJECT_TABLE + " p USING (project_id) "
+      + "GROUP BY p.project_id, p.project_name "
+      + "ORDER BY score DESC, p.project_id "
+      + "LIMIT ? OFFSET ?";
+  private static final String SUMMARIES_BY_NAME_PREFIX_SQL = ""
+      + "SELECT project_id, project_name FROM " + PROJECT_TABLE + " "
+      + "WHERE project_name LIKE ? "
+      + "ORDER BY project_name, project_id "
+      + "LIMIT ?";
+
+  /*
+   * project_rollup upkeep; a project's row is recomputed from its children when the project is
+   * inserted with children or rebuilt, and adjusted by a delta when a single step or material is
+   * written
+   */
+  private static final String INSERT_EMPTY_ROLLUP_SQL =
+      "INSERT INTO " + PROJECT_ROLLUP_TABLE + " (project_id) VALUES (?)";
+  private static final String ADD_ROLLUP_SQL = ""
+      + "UPDATE " + PROJECT_ROLLUP_TABLE + " SET material_count = material_count + ?, "
+      + "material_cost = material_cost + ?, step_count = step_count + ? "
+      + "WHERE project_id = ?";
+  // the stored cost of a material that still has the version it was read with, locked
+  private static final String MATERIAL_COST_SQL = ""
+      + "SELECT COALESCE(num_required * cost, 0) FROM " + MATERIAL_TABLE + " "
+      + "WHERE material_id = ? AND version = ? FOR UPDATE";
+  // the stored hours of a project that still has the version it was read with, locked
+  private static final String PROJECT_HOURS_SQL = ""
+      + "SELECT estimated_hours, actual_hours FROM " + PROJECT_TABLE + " "
+      + "WHERE project_id = ? AND version = ? FOR UPDATE";
+  // the IN list markers and closing parenthesis are appended by inListSql()
+  private static final String REFRESH_ROLLUPS_IN_SQL = ""
+      + "INSERT INTO " + PROJECT_ROLLUP_TABLE + " "
+      + "(project_id, material_count, material_cost, step_count) "
+      + "SELECT * FROM (SELECT p.project_id, "
+      + "(SELECT COUNT(*) FROM " + MATERIAL_TABLE + " m "
+      + "WHERE m.project_id = p.project_id) AS material_count, "
+      + "(SELECT COALESCE(SUM(m.num_required * m.cost), 0) FROM " + MATERIAL_TABLE + " m "
+      + "WHERE m.project_id = p.project_id) AS material_cost, "
+      + "(SELECT COUNT(*) FROM " + STEP_TABLE + " s "
+      + "WHERE s.project_id = p.project_id) AS step_count "
+      + "FROM " + PROJECT_TABLE + " p WHERE p.project_id IN (";
+  private static final String REFRESH_ROLLUPS_IN_SQL_END = ""
+      + ") AS fresh "
+      + "ON DUPLICATE KEY UPDATE material_count = fresh.material_count, "
+      + "material_cost = fresh.material_cost, step_count = fresh.step_count";
+  private static final String PROJECT_IDS_AFTER_SQL = ""
+      + "SELECT project_id FROM " + PROJECT_TABLE + " WHERE project_id > ? "
+      + "ORDER BY project_id LIMIT ?";
+  private static final String PROJECT_ROLLUPS_SQL = ""
+      + "SELECT p.project_id, p.project_name, r.material_count, r.material_cost, r.step_count, "
+      + "p.estimated_hours, p.actual_hours "
+      + "FROM " + PROJECT_TABLE + " p JOIN " + PROJECT_ROLLUP_TABLE + " r USING (project_id) "
+      + "ORDER BY p.project_name, p.project_id";
+  // a category without a category_rollup row has no linked projects yet
+  private static final String CATEGORY_ROLLUPS_SQL = ""
+      + "SELECT c.category_id, c.category_name, "
+      + "COALESCE(cr.project_count, 0) AS project_count, "
+      + "COALESCE(cr.material_cost, 0) AS material_cost, "
+      + "COALESCE(cr.step_count, 0) AS step_count, "
+      + "COALESCE(cr.estimated_hours, 0) AS estimated_hours, "
+      + "COALESCE(cr.actual_hours, 0) AS actual_hours "
+      + "FROM " + CATEGORY_TABLE + " c "
+      + "LEFT JOIN " + CATEGORY_ROLLUP_TABLE + " cr USING (category_id) "
+      + "ORDER BY c.category_name, c.category_id";
+
+  /*
+   * category_rollup upkeep; new projects are added to the rows of their categories when their
+   * links are inserted, a project is taken off them before it is deleted, and every change to a
+   * project's totals or hours adds the difference to them, all in the writer's transaction; the
+   * rebuild recomputes every row
+   */
+  // the IN list markers and closing parenthesis are appended by inListSql()
+  private static final String ADD_CATEGORY_ROLLUPS_IN_SQL = ""
+      + "INSERT INTO " + CATEGORY_ROLLUP_TABLE + " "
+      + "(category_id, project_count, material_cost, step_count, estimated_hours, actual_hours) "
+      + "SELECT * FROM (SELECT pc.category_id, COUNT(*) AS project_count, "
+      + "SUM(r.material_cost) AS material_cost, SUM(r.step_count) AS step_count, "
+      + "COALESCE(SUM(p.estimated_hours), 0) AS estimated_hours, "
+      + "COALESCE(SUM(p.actual_hours), 0) AS actual_hours "
+      + "FROM " + PROJECT_CATEGORY_TABLE + " pc "
+      + "JOIN " + PROJECT_ROLLUP_TABLE + " r ON r.project_id = pc.project_id "
+      + "JOIN " + PROJECT_TABLE + " p ON p.project_id = pc.project_id "
+      + "WHERE pc.project_id IN (";
+  private static final String ADD_CATEGORY_ROLLUPS_IN_SQL_END = ""
+      + ") GROUP BY pc.category_id) AS added "
+      + "ON DUPLICATE KEY UPDATE "
+      + "project_count = " + CATEGORY_ROLLUP_TABLE + ".project_count + added.project_count, "
+      + "material_cost = " + CATEGORY_ROLLUP_TABLE + ".material_cost + added.material_cost, "
+      + "step_count = " + CATEGORY_ROLLUP_TABLE + ".step_count + added.step_count, "
+      + "estimated_hours = " + CATEGORY_ROLLUP_TABLE + ".estimated_hours + added.estimated_hours, "
+      + "actual_hours = " + CATEGORY_ROLLUP_TABLE + ".actual_hours + added.actual_hours";
+  private static final String ADD_CATEGORY_ROLLUP_SQL = ""
+      + "UPDATE " + CATEGORY_ROLLUP_TABLE + " cr "
+      + "JOIN " + PROJECT_CATEGORY_TABLE + " pc USING (category_id) "
+      + "SET cr.material_cost = cr.material_cost + ?, cr.step_count = cr.step_count + ?, "
+      + "cr.estimated_hours = cr.estimated_hours + ?, cr.actual_hours = cr.actual_hours + ? "
+      + "WHERE pc.project_id = ?";
+  // only while the project still has the version it was read with, like DELETE_PROJECT_SQL
+  private static final String REMOVE_CATEGORY_ROLLUP_SQL = ""
+      + "UPDATE " + CATEGORY_ROLLUP_TABLE + " cr "
+      + "JOIN " + PROJECT_CATEGORY_TABLE + " pc USING (category_id) "
+      + "JOIN " + PROJECT_ROLLUP_TABLE + " r ON r.project_id = pc.project_id "
+      + "JOIN " + PROJECT_TABLE + " p ON p.project_id = pc.project_id "
+      + "SET cr.project_count = cr.project_count - 1, "
+      + "cr.material_cost = cr.material_cost - r.material_cost, "
+      + "cr.step_count = cr.step_count - r.step_count, "
+      + "cr.estimated_hours = cr.estimated_hours - COALESCE(p.estimated_hours, 0), "
+      + "cr.actual_hours = cr.actual_hours - COALESCE(p.actual_hours, 0) "
+      + "WHERE pc.project_id = ? AND p.version = ?";
+  private static final String REBUILD_CATEGORY_ROLLUPS_SQL = ""
+      + "INSERT INTO " + CATEGORY_ROLLUP_TABLE + " "
+      + "(category_id, project_count, material_cost, step_count, estimated_hours, actual_hours) "
+      + "SELECT * FROM (SELECT c.category_id, COUNT(r.project_id) AS project_count, "
+      + "COALESCE(SUM(r.material_cost), 0) AS material_cost, "
+      + "COALESCE(SUM(r.step_count), 0) AS step_count, "
+      + "COALESCE(SUM(p.estimated_hours), 0) AS estimated_hours, "
+      + "COALESCE(SUM(p.actual_hours), 0) AS actual_hours "
+      + "FROM " + CATEGORY_TABLE + " c "
+      + "LEFT JOIN " + PROJECT_CATEGORY_TABLE + " pc USING (category_id) "
+      + "LEFT JOIN " + PROJECT_ROLLUP_TABLE + " r ON r.project_id = pc.project_id "
+      + "LEFT JOIN " + PROJECT_TABLE + " p ON p.project_id = r.project_id "
+      + "GROUP BY c.category_id) AS fresh "
+      + "ON DUPLICATE KEY UPDATE project_count = fresh.project_count, "
+      + "material_cost = fresh.material_cost, step_count = fresh.step_count, "
+      + "estimated_hours = fresh.estimated_hours, actual_hours = fresh.actual_hours";
+
+  // step management; step_order_idx on (project_id, step_order) serves every lookup below
+  private static final String LOCK_PROJECT_SQL =
+      "SELECT project_id FROM " + PROJECT_TABLE + " WHERE project_id = ? FOR UPDATE";
+  private static final String STEP_ORDER_BY_ID_SQL =
+      "SELECT step_order FROM " + STEP_TABLE + " WHERE step_id = ? AND project_id = ?";
+  private static final String LAST_STEP_ORDER_SQL =
+      "SELECT MAX(step_order) FROM " + STEP_TABLE + " WHERE project_id = ?";
+  private static final String NEXT_STEP_ORDER_SQL = ""
+      + "SELECT MIN(step_order) FROM " + STEP_TABLE + " "
+      + "WHERE project_id = ? AND step_order > ? AND step_id <> ?";
+  private static final String STEP_IDS_IN_ORDER_SQL =
+      "SELECT step_id FROM " + STEP_TABLE + " WHERE project_id = ? ORDER BY step_order";
+  // a step that moves gets a new version, so a client holding it can tell it was reordered
+  private static final String NEGATE_STEP_ORDERS_SQL = ""
+      + "UPDATE " + STEP_TABLE + " SET step_order = -step_order, version = version + 1 "
+      + "WHERE project_id = ?";
+  private static final String UPDATE_STEP_ORDER_SQL = ""
+      + "UPDATE " + STEP_TABLE + " SET step_order = ?, version = version + 1 "
+      + "WHERE step_id = ?";
+  private static final String DELETE_STEP_SQL = ""
+      + "DELETE FROM " + STEP_TABLE + " WHERE step_id = ? AND project_id = ? AND version = ?";
+
+  /*
+   * optimistic updates and deletes; a write finds its row only while the row still has the
+   * version it was read with, and an update increments the version. The UPDATE statements are
+   * built by updateSql() for each set of dirty columns and kept in the maps below
+   */
+  private static final String PROJECT_VERSION_SQL =
+      "SELECT version FROM " + PROJECT_TABLE + " WHERE project_id = ?";
+  private static final String MATERIAL_VERSION_SQL =
+      "SELECT version FROM " + MATERIAL_TABLE + " WHERE material_id = ?";
+  private static final String STEP_VERSION_SQL =
+      "SELECT version FROM " + STEP_TABLE + " WHERE step_id = ?";
+  // materials, steps, category links and the rollup row go with the project (ON DELETE CASCADE)
+  private static final String DELETE_PROJECT_SQL =
+      "DELETE FROM " + PROJECT_TABLE + " WHERE project_id = ? AND version = ?";
+  private static final String DELETE_MATERIAL_SQL =
+      "DELETE FROM " + MATERIAL_TABLE + " WHERE material_id = ? AND version = ?";
+
+  // each ordered by project_id so the cursors can be merge-joined with the project cursor
+  private static final String AGGREGATE_PROJECTS_SQL =
+      "SELECT * FROM " + PROJECT_TABLE + " ORDER BY project_id";
+  private static final String AGGREGATE_MATERIALS_SQL =
+      "SELECT * FROM " + MATERIAL_TABLE + " ORDER BY project_id, material_id";
+  private static final String AGGREGATE_STEPS_SQL =
+      "SELECT * FROM " + STEP_TABLE + " ORDER BY project_id, step_order";
+  private static final String AGGREGATE_CATEGORIES_SQL = ""
+      + "SELECT project_id, category_id FROM " + PROJECT_CATEGORY_TABLE + " "
+      + "ORDER BY project_id, category_id";
+  // @formatter:on
+
+  private static final Map<Set<Project.Field>, String> UPDATE_PROJECT_SQL =
+      new ConcurrentHashMap<>();
+  private static final Map<Set<Material.Field>, String> UPDATE_MATERIAL_SQL =
+      new ConcurrentHashMap<>();
+  private static final Map<Set<Step.Field>, String> UPDATE_STEP_SQL = new ConcurrentHashMap<>();
+
+  /* true if reads borrow from the primary even when replicas are configured */
+  private final boolean primaryReads;
+
+  public ProjectDao() {
+    this(false);
+  }
+
+  private ProjectDao(boolean primaryReads) {
+    this.primaryReads = primaryReads;
+  }
+
+  /**
+   * @return A DAO whose reads all come from the primary, for loads that fill a cache shared by
+   *         every session and for reads that start an edit. A replica that lags would otherwise
+   *         put an old row in the cache for its whole time to live, or hand out a version that
+   *         the update then rejects as stale.
+   */
+  public static ProjectDao forPrimaryReads() {
+    return new ProjectDao(true);
+  }
+
   public Project insertProject(Project project) {
     /* @formatter:off
      * 
      * inserts the project inputed by the user into the database
      * 
-     * stores the sql statement in the sql string
+     * uses the sql statement stored in the matching _SQL constant
      * 
      * creates a connection
      *    starts a transaction;
      *    throws an outer exception IF a connection can't be made
      * 
      * creates a preparedstatement
-     *    validates project parameters, executes the sql statement (in stmt), assigns the last
-     *    inserted id to the project, and commits the transaction (writes changes to database);
+     *    validates project parameters, executes the sql statement (in stmt), assigns the
+     *    generated id returned with the insert to the project, and commits the transaction
+     *    (writes changes to database);
      *    throws an inner exception IF the sql statement is incorrect AND rolls back the
      *    transaction
      * 
      * @formatter:on
      */
 
-    // @formatter:off
-    String sql = ""
-        + "INSERT INTO " + PROJECT_TABLE + " "
-        + "(project_name, estimated_hours, actual_hours, difficulty, notes) "
-        + "VALUES "
-        + "(?, ?, ?, ?, ?)";
-    // @formatter:on
+    try (DaoOperation op = operation("insertProject");
+        Connection conn = DbConnection.getConnection()) {
+      startTransaction(conn);
+
+      try (PreparedStatement stmt =
+          conn.prepareStatement(INSERT_PROJECT_SQL, Statement.RETURN_GENERATED_KEYS)) {
+        setParameter(stmt, 1, project.getProjectName(), String.class);
+        setParameter(stmt, 2, project.getEstimatedHours(), BigDecimal.class);
+        setParameter(stmt, 3, project.getActualHours(), BigDecimal.class);
+        setParameter(stmt, 4, project.getDifficulty(), Integer.class);
+        setParameter(stmt, 5, project.getNotes(), String.class);
+
+        stmt.executeUpdate();
+
+        Integer projectId = getGeneratedId(stmt);
+        insertEmptyRollup(conn, projectId);
+        commitTransaction(conn);
+
+        project.setProjectId(projectId);
+        project.setVersion(0);
+        project.markClean();
+        op.rowsWritten(1);
+        op.success();
+        return project;
+
+      } catch (Exception e) {
+        rollbackTransaction(conn);
+        throw new DbException(e);
+      }
+
+    } catch (SQLException e) {
+      throw new DbException(e);
+    }
+  }
+
+  public List<Project> insertProjects(Collection<Project> projects) {
+    // inserts the projects using the configured batch size
+    return insertProjects(projects, DbConnection.getConfig().getBatchSize());
+  }
+
+  public List<Project> insertProjects(Collection<Project> projects, int batchSize) {
+    /* @formatter:off
+     * 
+     * inserts whole project aggregates (projects, materials, steps and project_category rows)
+     * in bulk
+     * 
+     * creates a connection
+     *    splits the projects into chunks of batchSize; each chunk is written in its own
+     *    transaction so one chunk is one set of multi-row inserts per table
+     *    (rewriteBatchedStatements is enabled in DbConfig);
+     *    throws an outer exception IF a connection can't be made
+     * 
+     * for each chunk
+     *    inserts the project rows as one batch and assigns the generated ids in order, then
+     *    copies each project's id into its materials, steps and categories and inserts those
+     *    as one batch per table; computes the chunk's project_rollup rows from the rows just
+     *    written and adds them to the category_rollup rows of their categories; commits the
+     *    chunk;
+     *    throws an inner exception IF a statement fails AND rolls back the chunk; chunks that
+     *    were already committed stay committed, the failed chunk's ids are cleared, and the
+     *    exception is a PartialInsertException that lists the committed projects
+     * 
+     * @formatter:on
+     */
+    if (batchSize < 1) {
+      throw new DbException("Invalid batch size: " + batchSize);
+    }
+
+    List<Project> all = new ArrayList<>(projects);
+
+    try (DaoOperation op = operation("insertProjects");
+        Connection conn = DbConnection.getConnection()) {
+      startTransaction(conn);
+
+      for (int from = 0; from < all.size(); from += batchSize) {
+        List<Project> chunk = all.subList(from, Math.min(from + batchSize, all.size()));
+
+        try {
+          insertProjectRows(conn, chunk);
+          insertMaterialRows(conn, chunk);
+          insertStepRows(conn, chunk);
+          insertProjectCategoryRows(conn, chunk);
+          List<Integer> ids = projectIdsOf(chunk);
+          refreshRollups(conn, ids);
+          addCategoryRollups(conn, ids);
+
+          commitTransaction(conn);
+          markInserted(chunk);
+          op.rowsWritten(countRows(chunk));
+        } catch (Exception e) {
+          rollbackTransaction(conn);
+          clearGeneratedIds(chunk);
+          throw new PartialInsertException("Inserting projects failed after " + from + " of "
+              + all.size() + " were committed: " + e.getMessage(), e,
+              new ArrayList<>(all.subList(0, from)));
+        }
+      }
+
+      op.success();
+      return all;
+    } catch (SQLException e) {
+      throw new DbException(e);
+    }
+  }
+
+  private void insertProjectRows(Connection conn, List<Project> projects) throws SQLException {
+    try (PreparedStatement stmt =
+        conn.prepareStatement(INSERT_PROJECT_SQL, Statement.RETURN_GENERATED_KEYS)) {
+      for (Project project : projects) {
+        setParameter(stmt, 1, project.getProjectName(), String.class);
+        setParameter(stmt, 2, project.getEstimatedHours(), BigDecimal.class);
+        setParameter(stmt, 3, project.getActualHours(), BigDecimal.class);
+        setParameter(stmt, 4, project.getDifficulty(), Integer.class);
+        setParameter(stmt, 5, project.getNotes(), String.class);
+        stmt.addBatch();
+      }
+
+      stmt.executeBatch();
+
+      List<Integer> ids = getGeneratedIds(stmt);
+      checkGeneratedIds(ids, projects.size(), PROJECT_TABLE);
+
+      for (int index = 0; index < projects.size(); index++) {
+        projects.get(index).setProjectId(ids.get(index));
+      }
+    }
+  }
+
+  private void insertMaterialRows(Connection conn, List<Project> projects) throws SQLException {
+    List<Material> materials = new ArrayList<>();
+
+    for (Project project : projects) {
+      for (Material material : project.getMaterials()) {
+        material.setProjectId(project.getProjectId());
+        materials.add(material);
+      }
+    }
+
+    if (materials.isEmpty()) {
+      return;
+    }
+
+    try (PreparedStatement stmt =
+        conn.prepareStatement(INSERT_MATERIAL_SQL, Statement.RETURN_GENERATED_KEYS)) {
+      for (Material material : materials) {
+        setParameter(stmt, 1, material.getProjectId(), Integer.class);
+        setParameter(stmt, 2, material.getMaterialName(), String.class);
+        setParameter(stmt, 3, material.getNumRequired(), Integer.class);
+        setParameter(stmt, 4, material.getCost(), BigDecimal.class);
+        stmt.addBatch();
+      }
+
+      stmt.executeBatch();
+
+      List<Integer> ids = getGeneratedIds(stmt);
+      checkGeneratedIds(ids, materials.size(), MATERIAL_TABLE);
+
+      for (int index = 0; index < materials.size(); index++) {
+        materials.get(index).setMaterialId(ids.get(index));
+      }
+    }
+  }
+
+  private void insertStepRows(Connection conn, List<Project> projects) throws SQLException {
+    List<Step> steps = new ArrayList<>();
+
+    for (Project project : projects) {
+      assignStepOrders(project.getSteps());
+
+      for (Step step : project.getSteps()) {
+        step.setProjectId(project.getProjectId());
+        steps.add(step);
+      }
+    }
+
+    if (steps.isEmpty()) {
+      return;
+    }
+
+    try (PreparedStatement stmt =
+        conn.prepareStatement(INSERT_STEP_SQL, Statement.RETURN_GENERATED_KEYS)) {
+      for (Step step : steps) {
+        setParameter(stmt, 1, step.getProjectId(), Integer.class);
+        setParameter(stmt, 2, step.getStepText(), String.class);
+        setParameter(stmt, 3, step.getStepOrder(), Integer.class);
+        stmt.addBatch();
+      }
+
+      stmt.executeBatch();
+
+      List<Integer> ids = getGeneratedIds(stmt);
+      checkGeneratedIds(ids, steps.size(), STEP_TABLE);
+
+      for (int index = 0; index < steps.size(); index++) {
+        steps.get(index).setStepId(ids.get(index));
+      }
+    }
+  }
+
+  private void insertProjectCategoryRows(Connection conn, List<Project> projects)
+      throws SQLException {
+    // categories are not created here; each category must already exist and carry its id
+    boolean hasRows = false;
+
+    try (PreparedStatement stmt = conn.prepareStatement(INSERT_PROJECT_CATEGORY_SQL)) {
+      for (Project project : projects) {
+        for (Category category : project.getCategories()) {
+          if (Objects.isNull(category.getCategoryId())) {
+            throw new DbException("Category " + category.getCategoryName() + " has no ID.");
+          }
+
+          setParameter(stmt, 1, project.getProjectId(), Integer.class);
+          setParameter(stmt, 2, category.getCategoryId(), Integer.class);
+          stmt.addBatch();
+          hasRows = true;
+        }
+      }
+
+      if (hasRows) {
+        stmt.executeBatch();
+      }
+    }
+  }
+
+  private void checkGeneratedIds(List<Integer> ids, int expected, String table)
+      throws SQLException {
+    if (ids.size() != expected) {
+      throw new SQLException("Expected " + expected + " generated keys for " + table + " but got "
+          + ids.size() + ".");
+    }
+  }
+
+  private long countRows(Collection<Project> projects) {
+    // a project aggregate is its own row plus one row per material, step and category link
+    long rows = 0;
+
+    for (Project project : projects) {
+      rows += 1 + project.getMaterials().size() + project.getSteps().size()
+          + project.getCategories().size();
+    }
+
+    return rows;
+  }
+
+  private void markInserted(List<Project> projects) {
+    // the chunk was committed, so its rows exist with the column default version 0
+    for (Project project : projects) {
+      project.setVersion(0);
+      project.markClean();
+
+      for (Material material : project.getMaterials()) {
+        material.setVersion(0);
+        material.markClean();
+      }
+
+      for (Step step : project.getSteps()) {
+        step.setVersion(0);
+        step.markClean();
+      }
+    }
+  }
+
+  /**
+   * Gives the steps of a new project that have no order one, STEP_ORDER_GAP apart after the
+   * largest explicit order, in list order, and checks the resulting orders: each must be positive,
+   * since inserting before the first step takes an order above 0 and renumbering negates the
+   * orders, and unique within the project, as step_order_idx requires.
+   *
+   * @throws DbException Thrown if an order isn't positive, is used twice, or doesn't fit an int.
+   */
+  public static void assignStepOrders(List<Step> steps) {
+    long last = 0;
+
+    for (Step step : steps) {
+      if (Objects.nonNull(step.getStepOrder())) {
+        if (step.getStepOrder() < 1) {
+          throw new DbException("stepOrder " + step.getStepOrder() + " is not positive");
+        }
+
+        last = Math.max(last, step.getStepOrder());
+      }
+    }
+
+    Set<Integer> orders = new HashSet<>();
+
+    for (Step step : steps) {
+      if (Objects.isNull(step.getStepOrder())) {
+        last += STEP_ORDER_GAP;
+
+        if (last > Integer.MAX_VALUE) {
+          throw new DbException("stepOrder runs past " + Integer.MAX_VALUE);
+        }
+
+        step.setStepOrder((int) last);
+      }
+
+      if (!orders.add(step.getStepOrder())) {
+        throw new DbException(
+            "stepOrder " + step.getStepOrder() + " is used by more than one step");
+      }
+    }
+  }
+
+  private void clearGeneratedIds(List<Project> projects) {
+    // the chunk was rolled back, so the ids handed out for it no longer exist
+    for (Project project : projects) {
+      project.setProjectId(null);
+      project.getMaterials().forEach(material -> material.setMaterialId(null));
+      project.getSteps().forEach(step -> step.setStepId(null));
+    }
+  }
+
+  public List<Project> fetchAllProjects() {
+    /* @formatter:off
+     * 
+     * fetches all projects from the database
+     * 
+     * uses the sql statement stored in the matching _SQL constant
+     * 
+     * creates a connection
+     *    runs in auto-commit, as the single query needs no transaction of its own;
+     *    throws an exception IF a connection can't be made
+     * 
+     * creates a preparedstatement
+     *    executes the sql statement (in stmt);
+     *    throws an exception IF the sql statement is incorrect
+     *    
+     * creates a resultset
+     *    creates a new list and a while loop that analyzes the results of the sql query;
+     *    if the resultset pointer encounters a row, i.e. a project (name, notes, hours, etc.),
+     *    add that project to the list
+     * 
+     * @formatter:on
+     */
+    
+    try (DaoOperation op = operation("fetchAllProjects");
+        Connection conn = readConnection();
+        PreparedStatement stmt = conn.prepareStatement(ALL_PROJECTS_SQL)) {
+      try (ResultSet rs = stmt.executeQuery()) {
+        List<Project> projects = new LinkedList<Project>();
+        RowMapper<Project> mapper = rowMapper(rs, Project.class);
+
+        while (rs.next()) {
+          projects.add(mapper.map(rs));
+
+          /*
+           * "projects.add(mapper.map(rs))" can be manually done:
+           * 
+           * Project project = new Project();
+           * 
+           * project.setActualHours(rs.getBigDecimal("actual_hours"));
+           * project.setDifficulty(rs.getObject("difficulty", Integer.class));
+           * project.setEstimatedHours(rs.getBigDecimal("estimated_hours"));
+           * project.setNotes(rs.getString("notes"));
+           * project.setProjectId(rs.getObject("project_id", Integer.class));
+           * project.setProjectName(rs.getString("project_name"));
+           * 
+           * projects.add(project);
+           *
+           * 
+           */
+        }
+
+        op.rowsRead(projects.size());
+        op.success();
+        return projects;
+      }
+    } catch (SQLException e) {
+      throw new DbException(e);
+    }
+  }
+
+  public List<ProjectSummary> fetchProjectSummaries() {
+    /* @formatter:off
+     * 
+     * fetches the id and name of every project, sorted by name, for the project list
+     * 
+     * only the two listed columns are selected, so the notes TEXT column is never read or sent;
+     * project_name_idx on (project_name, project_id) holds both columns in name order, so MySQL
+     * answers the query from the index alone without a filesort
+     * 
+     * creates a connection and runs the single SELECT in auto-commit mode;
+     * throws an exception IF a connection can't be made or the sql statement is incorrect
+     * 
+     * @formatter:on
+     */
+    try (DaoOperation op = operation("fetchProjectSummaries");
+        Connection conn = readConnection();
+        PreparedStatement stmt = conn.prepareStatement(PROJECT_SUMMARIES_SQL);
+        ResultSet rs = stmt.executeQuery()) {
+      List<ProjectSummary> summaries = new ArrayList<>();
+      RowMapper<ProjectSummary> mapper = rowMapper(rs, ProjectSummary.class);
+
+      while (rs.next()) {
+        summaries.add(mapper.map(rs));
+      }
+
+      op.rowsRead(summaries.size());
+      op.success();
+      return summaries;
+    } catch (SQLException e) {
+      throw new DbException(e);
+    }
+  }
+
+  public List<ProjectSummary> fetchProjectSummariesAfter(String afterName, Integer afterId,
+      int limit) {
+    /* @formatter:off
+     * 
+     * fetches up to limit project summaries that sort after (afterName, afterId) in
+     * (project_name, project_id) order; pass a null afterName for the first page
+     * 
+     * this is keyset (seek) pagination: instead of skipping rows with OFFSET, the WHERE clause
+     * starts a range scan of project_name_idx right after the last row of the previous page, so
+     * every page costs the same no matter how far into the list it is; project_id breaks ties
+     * between projects with the same name so no row is skipped or repeated
+     * 
+     * creates a connection and runs the single SELECT in auto-commit mode;
+     * throws an exception IF a connection can't be made or the sql statement is incorrect
+     * 
+     * @formatter:on
+     */
+    boolean firstPage = Objects.isNull(afterName);
+
+    try (DaoOperation op = operation("fetchProjectSummariesAfter");
+        Connection conn = readConnection();
+        PreparedStatement stmt =
+            conn.prepareStatement(firstPage ? FIRST_SUMMARY_PAGE_SQL : NEXT_SUMMARY_PAGE_SQL)) {
+      int index = 1;
+
+      if (!firstPage) {
+        setParameter(stmt, index++, afterName, String.class);
+        setParameter(stmt, index++, afterName, String.class);
+        setParameter(stmt, index++, afterId, Integer.class);
+      }
+
+      setParameter(stmt, index, limit, Integer.class);
+
+      try (ResultSet rs = stmt.executeQuery()) {
+        List<ProjectSummary> summaries = new ArrayList<>(limit);
+        RowMapper<ProjectSummary> mapper = rowMapper(rs, ProjectSummary.class);
+
+        while (rs.next()) {
+          summaries.add(mapper.map(rs));
+        }
+
+        op.rowsRead(summaries.size());
+        op.success();
+        return summaries;
+      }
+    } catch (SQLException e) {
+      throw new DbException(e);
+    }
+  }
+
+  public List<ProjectSummary> searchProjects(String query, int offset, int limit) {
+    /* @formatter:off
+     * 
+     * finds projects whose notes or steps contain words of the query, best match first
+     * 
+     * runs SEARCH_PROJECTS_SQL in auto-commit mode: MySQL scores the notes and the step text
+     * with its FULLTEXT indexes in natural language mode, and a project's score is the sum of
+     * its notes' score and its steps' scores; ties are broken by project_id so pages don't
+     * overlap
+     * 
+     * words shorter than innodb_ft_min_token_size (3 by default) and stopwords are ignored by
+     * MySQL, so a query made only of those finds nothing
+     * 
+     * the scores change as rows are written, so offset paging is used instead of a keyset on
+     * the score; search results are rarely read more than a few pages deep
+     * 
+     * @formatter:on
+     */
+    try (DaoOperation op = operation("searchProjects");
+        Connection conn = readConnection();
+        PreparedStatement stmt = conn.prepareStatement(SEARCH_PROJECTS_SQL)) {
+      for (int index = 1; index <= 4; index++) {
+        setParameter(stmt, index, query, String.class);
+      }
+
+      setParameter(stmt, 5, limit, Integer.class);
+      setParameter(stmt, 6, offset, Integer.class);
+
+      try (ResultSet rs = stmt.executeQuery()) {
+        List<ProjectSummary> summaries = new ArrayList<>(limit);
+        RowMapper<ProjectSummary> mapper = rowMapper(rs, ProjectSummary.class);
+
+        while (rs.next()) {
+          summaries.add(mapper.map(rs));
+        }
+
+        op.rowsRead(summaries.size());
+        op.success();
+        return summaries;
+      }
+    } catch (SQLException e) {
+      throw new DbException(e);
+    }
+  }
+
+  public List<ProjectSummary> fetchProjectSummariesByNamePrefix(String prefix, int limit) {
+    /*
+     * fetches up to limit summaries of projects whose name starts with prefix, in name order; the
+     * LIKE pattern has no leading wildcard, so it is a range scan of project_name_idx
+     */
+    String pattern = prefix.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+
+    try (DaoOperation op = operation("fetchProjectSummariesByNamePrefix");
+        Connection conn = readConnection();
+        PreparedStatement stmt = conn.prepareStatement(SUMMARIES_BY_NAME_PREFIX_SQL)) {
+      setParameter(stmt, 1, pattern, String.class);
+      setParameter(stmt, 2, limit, Integer.class);
+
+      try (ResultSet rs = stmt.executeQuery()) {
+        List<ProjectSummary> summaries = new ArrayList<>(limit);
+        RowMapper<ProjectSummary> mapper = rowMapper(rs, ProjectSummary.class);
+
+        while (rs.next()) {
+          summaries.add(mapper.map(rs));
+        }
+
+        op.rowsRead(summaries.size());
+        op.success();
+        return summaries;
+      }
+    } catch (SQLException e) {
+      throw new DbException(e);
+    }
+  }
+
+  public Stream<Project> streamAllProjects() {
+    /* @formatter:off
+     * 
+     * streams all projects from the database without holding them all in memory
+     * 
+     * creates a connection and a forward-only, read-only preparedstatement with a fetch size of
+     * Integer.MIN_VALUE, which tells the MySQL driver to read the result set row by row from
+     * the socket instead of buffering all of it; no transaction is started, the single SELECT
+     * runs in auto-commit mode
+     * 
+     * the returned stream maps one row each time the consumer asks for one, so the first
+     * project is available as soon as the first row arrives and heap use doesn't grow with the
+     * table; the connection is returned to the pool when the last row has been read or when the
+     * stream is closed, whichever comes first
+     * 
+     * the caller must close the stream (try-with-resources) if it stops early; closing before
+     * the end makes the driver read and discard the remaining rows
+     * 
+     * the operation is timed from the call until the stream is closed or runs out, so its
+     * latency includes the consumer's processing time; stopping early is not an error
+     * 
+     * @formatter:on
+     */
+    DaoOperation op = operation("streamAllProjects");
+    Connection conn;
+
+    try {
+      conn = readConnection();
+    } catch (RuntimeException e) {
+      op.close();
+      throw e;
+    }
+
+    try {
+      PreparedStatement stmt = conn.prepareStatement(ALL_PROJECTS_SQL, ResultSet.TYPE_FORWARD_ONLY,
+          ResultSet.CONCUR_READ_ONLY);
+      stmt.setFetchSize(Integer.MIN_VALUE);
+
+      ResultSet rs = stmt.executeQuery();
+      RowMapper<Project> mapper = rowMapper(rs, Project.class);
+      Runnable closer = closeOnce(rs, stmt, conn, op);
+
+      Spliterator<Project> rows = new Spliterators.AbstractSpliterator<Project>(Long.MAX_VALUE,
+          Spliterator.ORDERED | Spliterator.NONNULL) {
+        @Override
+        public boolean tryAdvance(Consumer<? super Project> action) {
+          try {
+            if (!rs.next()) {
+              op.success();
+              closer.run();
+              return false;
+            }
+
+            op.rowsRead(1);
+            action.accept(mapper.map(rs));
+            return true;
+          } catch (SQLException e) {
+            closer.run();
+            throw new DbException(e);
+          }
+        }
+      };
+
+      return StreamSupport.stream(rows, false).onClose(() -> {
+        op.success();
+        closer.run();
+      });
+    } catch (SQLException | RuntimeException e) {
+      closeOnce(conn, op).run();
+      throw new DbException(e);
+    }
+  }
+
+  private Runnable closeOnce(AutoCloseable... resources) {
+    // closes the resources in the order given, once; later calls do nothing
+    AtomicBoolean closed = new AtomicBoolean();
+
+    return () -> {
+      if (closed.compareAndSet(false, true)) {
+        DbException failure = null;
+
+        for (AutoCloseable resource : resources) {
+          try {
+            resource.close();
+          } catch (Exception e) {
+            if (Objects.isNull(failure)) {
+              failure = new DbException(e);
+            } else {
+              failure.addSuppressed(e);
+            }
+          }
+        }
+
+        if (Objects.nonNull(failure)) {
+          throw failure;
+        }
+      }
+    };
+  }
+
+  public Stream<Project> streamProjectAggregates() {
+    /* @formatter:off
+     * 
+     * streams every project with its materials, steps and categories, in project_id order,
+     * without holding more than one project in memory
+     * 
+     * opens four streaming cursors (fetch size Integer.MIN_VALUE), one per table, each ordered
+     * by project_id; the MySQL driver allows only one open streaming result set per connection,
+     * so each cursor has its own connection, all four borrowed from the same server so that the
+     * tables don't come from replicas with different lag; the category cache is loaded before
+     * they are borrowed, so mapping category ids needs no fifth connection
+     * 
+     * for each project row, the child cursors are advanced past rows with a smaller project_id
+     * (children of a project deleted since its cursor started) and the rows with the same
+     * project_id are added to the project, so the four tables are read once each in a single
+     * merge pass; the whole export costs four queries however many projects there are
+     * 
+     * the cursors run in auto-commit mode, each with its own snapshot, so projects written
+     * while the stream is open may come out with or without their children
+     * 
+     * the caller must close the stream (try-with-resources); the four connections are returned
+     * to the pool when the last project has been read or when the stream is closed
+     * 
+     * @formatter:on
+     */
+    DaoOperation op = operation("streamProjectAggregates");
+    List<AutoCloseable> resources = new ArrayList<>();
+
+    try {
+      CATEGORY_CACHE.all();
+
+      List<Connection> conns = readConnections(4);
+      resources.addAll(conns);
+
+      MergeCursor<Project> projects = new MergeCursor<>(conns.get(0), AGGREGATE_PROJECTS_SQL,
+          Project.class, resources);
+      MergeCursor<Material> materials = new MergeCursor<>(conns.get(1), AGGREGATE_MATERIALS_SQL,
+          Material.class, resources);
+      MergeCursor<Step> steps = new MergeCursor<>(conns.get(2), AGGREGATE_STEPS_SQL, Step.class,
+          resources);
+      MergeCursor<Category> categories = new MergeCursor<>(conns.get(3),
+          AGGREGATE_CATEGORIES_SQL, Category.class, resources) {
+        @Override
+        Category map(ResultSet rs) throws SQLException {
+          // ids only; the shared instance comes from the category cache
+          return CATEGORY_CACHE.get(rs.getInt(2));
+        }
+      };
+
+      resources.add(op);
+      Runnable closer = closeOnce(resources.toArray(new AutoCloseable[0]));
+
+      Spliterator<Project> rows = new Spliterators.AbstractSpliterator<Project>(Long.MAX_VALUE,
+          Spliterator.ORDERED | Spliterator.NONNULL) {
+        @Override
+        public boolean tryAdvance(Consumer<? super Project> action) {
+          try {
+            if (!projects.hasRow()) {
+              op.success();
+              closer.run();
+              return false;
+            }
+
+            Project project = projects.mapAndAdvance();
+            int projectId = project.getProjectId();
+
+            materials.addRowsFor(projectId, project.getMaterials());
+            steps.addRowsFor(projectId, project.getSteps());
+            categories.addRowsFor(projectId, project.getCategories());
+
+            op.rowsRead(1 + project.getMaterials().size() + project.getSteps().size()
+                + project.getCategories().size());
+            action.accept(project);
+            return true;
+          } catch (SQLException e) {
+            closer.run();
+            throw new DbException(e);
+          }
+        }
+      };
+
+      return StreamSupport.stream(rows, false).onClose(() -> {
+        op.success();
+        closer.run();
+      });
+    } catch (SQLException | RuntimeException e) {
+      resources.add(op);
+      closeOnce(resources.toArray(new AutoCloseable[0])).run();
+      throw new DbException(e);
+    }
+  }
+
+  /**
+   * A streaming, project_id-ordered cursor over one table, on a connection of its own. The cursor
+   * is always positioned on the next unread row, if there is one. Rows are mapped by a row mapper
+   * for the entity type, except for categories, which override map().
+   */
+  private class MergeCursor<T> {
+    private final ResultSet rs;
+    private final RowMapper<T> mapper;
+    private final int projectIdColumn;
+    private boolean onRow;
+
+    /*
+     * Adds the statement and result set to resources as they are opened, in the order they must
+     * be closed and ahead of the connections, so the caller can close whatever was opened if
+     * this fails.
+     */
+    private MergeCursor(Connection conn, String sql, Class<T> type,
+        List<AutoCloseable> resources) throws SQLException {
+      PreparedStatement stmt =
+          conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+      resources.add(0, stmt);
+      stmt.setFetchSize(Integer.MIN_VALUE);
+
+      rs = stmt.executeQuery();
+      resources.add(0, rs);
+
+      mapper = rowMapper(rs, type);
+      projectIdColumn = rs.findColumn("project_id");
+      onRow = rs.next();
+    }
+
+    private boolean hasRow() {
+      return onRow;
+    }
+
+    T map(ResultSet rs) throws SQLException {
+      return mapper.map(rs);
+    }
+
+    private T mapAndAdvance() throws SQLException {
+      T row = map(rs);
+      onRow = rs.next();
+      return row;
+    }
+
+    private void addRowsFor(int projectId, List<T> rows) throws SQLException {
+      while (onRow && rs.getInt(projectIdColumn) < projectId) {
+        onRow = rs.next();
+      }
+
+      while (onRow && rs.getInt(projectIdColumn) == projectId) {
+        rows.add(mapAndAdvance());
+      }
+    }
+  }
+
+  public Optional<Project> fetchProjectById(Integer projectId) {
+    // fetches the project with one query per table; see fetchProjectById(Integer, FetchMode)
+    return fetchProjectById(projectId, FetchMode.MULTI_QUERY);
+  }
+
+  public Optional<Project> fetchProjectById(Integer projectId, FetchMode fetchMode) {
+    // fetches the project and its children the way fetchMode says; both return the same result
+    return fetchMode == FetchMode.JSON_AGGREGATE ? fetchProjectJsonById(projectId)
+        : fetchProjectByIdMultiQuery(projectId);
+  }
+
+  private Optional<Project> fetchProjectByIdMultiQuery(Integer projectId) {
+    /* @formatter:off
+     * 
+     * fetches the project selected by the user from the database
+     * 
+     * uses the sql statement stored in the matching _SQL constant
+     * 
+     * creates a connection
+     *    starts a read-only transaction so the project and its children come from one
+     *    consistent view;
+     *    creates a try/catch block that creates a new project object set to null and ends
+     *    the transaction;
+     *    once the preparedstatement (read below) and resultset (read below) have been created,
+     *    if the project object is not null (as in the project exists and has a name, notes,
+     *    hours, etc.), set that project's materials, steps, and categories to those fetched
+     *    by fetchMaterialsForProject(), fetchStepsForProject(), and fetchCategoriesForProject();
+     *    throws an outer exception IF a connection can't be made
+     *    
+     * 
+     * creates a preparedstatement
+     *    validates the projectId parameter, and executes the sql statement (in stmt);
+     *    throws an inner exception IF the sql statement is incorrect AND ends the
+     *    transaction
+     *    
+     * creates a resultset
+     *    the if statement analyzes the results of the sql query;
+     *    if the resultset pointer encounters a row, i.e. a project (name, notes, hours, etc.),
+     *    store that project to the project object
+     * 
+     * @formatter:on
+     */
+    
+    try (DaoOperation op = operation("fetchProjectById");
+        Connection conn = readConnection()) {
+      startReadOnlyTransaction(conn);
+
+      try {
+        Project project = fetchProjectRow(conn, projectId);
+
+        if (Objects.nonNull(project)) {
+          project.getMaterials().addAll(fetchMaterialsForProject(conn, projectId));
+          project.getSteps().addAll(fetchStepsForProject(conn, projectId));
+          project.getCategories().addAll(fetchCategoriesForProject(conn, projectId));
+        }
+
+        endReadOnlyTransaction(conn);
+
+        if (Objects.nonNull(project)) {
+          op.rowsRead(countRows(List.of(project)));
+        }
+
+        op.success();
+        return Optional.ofNullable(project);
+      } catch (Exception e) {
+        endReadOnlyTransaction(conn);
+        throw new DbException(e);
+      }
+
+    } catch (SQLException e) {
+      throw new DbException(e);
+    }
+  }
+
+  private Optional<Project> fetchProjectJsonById(Integer projectId) {
+    /* @formatter:off
+     * 
+     * fetches the project and its materials, steps and categories in one round trip
+     * 
+     * runs PROJECT_JSON_BY_ID_SQL, which has MySQL assemble the aggregate as one JSON document;
+     * a single statement reads one consistent snapshot, so no transaction is started
+     * 
+     * the document is decoded straight from the result set's character stream by JsonReader
+     * and ProjectJson, so it isn't copied into a String first; the steps are then sorted by
+     * step_order, since JSON_ARRAYAGG doesn't keep the order of its rows
+     * 
+     * @formatter:on
+     */
+    try (DaoOperation op = operation("fetchProjectJsonById");
+        Connection conn = readConnection();
+        PreparedStatement stmt = conn.prepareStatement(PROJECT_JSON_BY_ID_SQL)) {
+      setParameter(stmt, 1, projectId, Integer.class);
+
+      try (ResultSet rs = stmt.executeQuery()) {
+        Project project = null;
+
+        if (rs.next()) {
+          try (Reader json = rs.getCharacterStream(1)) {
+            project = ProjectJson.readProject(new JsonReader(json));
+          }
+
+          project.getSteps().sort(Comparator.comparing(Step::getStepOrder,
+              Comparator.nullsLast(Comparator.naturalOrder())));
+
+          /* decoding went through the setters; nothing has been changed since the read */
+          project.markClean();
+          project.getMaterials().forEach(Material::markClean);
+          project.getSteps().forEach(Step::markClean);
+
+          List<Category> categories = project.getCategories();
+
+          for (int index = 0; index < categories.size(); index++) {
+            categories.set(index, CATEGORY_CACHE.get(categories.get(index).getCategoryId()));
+          }
+          op.rowsRead(countRows(List.of(project)));
+        }
+
+        op.success();
+        return Optional.ofNullable(project);
+      }
+    } catch (SQLException | IOException | JsonException e) {
+      throw new DbException(e);
+    }
+  }
+
+  public List<Project> fetchProjectsByIds(Collection<Integer> projectIds) {
+    /* @formatter:off
+     * 
+     * fetches the requested projects with their materials, steps and categories in a constant
+     * number of queries instead of four queries per project
+     * 
+     * creates a connection
+     *    starts a read-only transaction so the projects and children come from one consistent
+     *    view;
+     *    throws an outer exception IF a connection can't be made
+     * 
+     * splits the distinct ids into IN lists of at most IN_LIST_CHUNK_SIZE and, per chunk, runs
+     * one query per table (project, material, step, category); each child row is added to its
+     * project by looking up its project_id in a map, so the children are grouped in a single
+     * pass
+     *    throws an inner exception IF the sql statement is incorrect AND ends the
+     *    transaction
+     * 
+     * returns the projects in the order their ids were requested; ids that don't exist are
+     * skipped and an id requested more than once is returned once
+     * 
+     * @formatter:on
+     */
+    List<Integer> ids = new ArrayList<>(new LinkedHashSet<>(projectIds));
+    ids.removeIf(Objects::isNull);
+
+    if (ids.isEmpty()) {
+      return new ArrayList<>();
+    }
+
+    try (DaoOperation op = operation("fetchProjectsByIds");
+        Connection conn = readConnection()) {
+      startReadOnlyTransaction(conn);
+
+      try {
+        Map<Integer, Project> projectsById = new HashMap<>();
+
+        for (int from = 0; from < ids.size(); from += IN_LIST_CHUNK_SIZE) {
+          List<Integer> chunk = ids.subList(from, Math.min(from + IN_LIST_CHUNK_SIZE, ids.size()));
+          Map<Integer, Project> chunkById = fetchProjectRows(conn, chunk);
+
+          if (!chunkById.isEmpty()) {
+            List<Integer> found = new ArrayList<>(chunkById.keySet());
+
+            fetchMaterialsForProjects(conn, found, chunkById);
+            fetchStepsForProjects(conn, found, chunkById);
+            fetchCategoriesForProjects(conn, found, chunkById);
+            projectsById.putAll(chunkById);
+          }
+        }
+
+        endReadOnlyTransaction(conn);
+
+        List<Project> projects = new ArrayList<>(projectsById.size());
+
+        for (Integer projectId : ids) {
+          Project project = projectsById.get(projectId);
+
+          if (Objects.nonNull(project)) {
+            projects.add(project);
+          }
+        }
+
+        op.rowsRead(countRows(projectsById.values()));
+        op.success();
+        return projects;
+      } catch (Exception e) {
+        endReadOnlyTransaction(conn);
+        throw new DbException(e);
+      }
+
+    } catch (SQLException e) {
+      throw new DbException(e);
+    }
+  }
+
+  private Map<Integer, Project> fetchProjectRows(Connection conn, List<Integer> projectIds)
+      throws SQLException {
+    try (PreparedStatement stmt =
+        conn.prepareStatement(inListSql(PROJECTS_IN_SQL, projectIds, ""))) {
+      setInListParameters(stmt, projectIds);
+
+      try (ResultSet rs = stmt.executeQuery()) {
+        Map<Integer, Project> projectsById = new HashMap<>();
+        RowMapper<Project> mapper = rowMapper(rs, Project.class);
+
+        while (rs.next()) {
+          Project project = mapper.map(rs);
+          projectsById.put(project.getProjectId(), project);
+        }
+
+        return projectsById;
+      }
+    }
+  }
+
+  private void fetchMaterialsForProjects(Connection conn, List<Integer> projectIds,
+      Map<Integer, Project> projectsById) throws SQLException {
+    try (PreparedStatement stmt =
+        conn.prepareStatement(inListSql(MATERIALS_IN_SQL, projectIds, ""))) {
+      setInListParameters(stmt, projectIds);
+
+      try (ResultSet rs = stmt.executeQuery()) {
+        RowMapper<Material> mapper = rowMapper(rs, Material.class);
+
+        while (rs.next()) {
+          Material material = mapper.map(rs);
+          projectsById.get(material.getProjectId()).getMaterials().add(material);
+        }
+      }
+    }
+  }
+
+  private void fetchStepsForProjects(Connection conn, List<Integer> projectIds,
+      Map<Integer, Project> projectsById) throws SQLException {
+    try (PreparedStatement stmt =
+        conn.prepareStatement(inListSql(STEPS_IN_SQL, projectIds, STEPS_IN_SQL_ORDER))) {
+      setInListParameters(stmt, projectIds);
+
+      try (ResultSet rs = stmt.executeQuery()) {
+        RowMapper<Step> mapper = rowMapper(rs, Step.class);
+
+        while (rs.next()) {
+          Step step = mapper.map(rs);
+          projectsById.get(step.getProjectId()).getSteps().add(step);
+        }
+      }
+    }
+  }
+
+  private void fetchCategoriesForProjects(Connection conn, List<Integer> projectIds,
+      Map<Integer, Project> projectsById) throws SQLException {
+    // only the ids are read; the category instances come from the category cache
+    try (PreparedStatement stmt =
+        conn.prepareStatement(inListSql(CATEGORIES_IN_SQL, projectIds, ""))) {
+      setInListParameters(stmt, projectIds);
+
+      try (ResultSet rs = stmt.executeQuery()) {
+        while (rs.next()) {
+          projectsById.get(rs.getInt(1)).getCategories()
+              .add(CATEGORY_CACHE.get(rs.getInt(2)));
+        }
+      }
+    }
+  }
+
+
+  private String inListSql(String prefix, List<Integer> ids, String suffix) {
+    /*
+     * the number of markers is rounded up to a power of two (see inListSize()) so that only a
+     * handful of distinct statements exist and they stay in the statement cache
+     */
+    return prefix + inListMarkers(inListSize(ids.size())) + ")" + suffix;
+  }
+
+  private void setInListParameters(PreparedStatement stmt, List<Integer> ids)
+      throws SQLException {
+    // the markers past the end of the list repeat the last id, which doesn't change the result
+    int size = inListSize(ids.size());
+
+    for (int index = 0; index < size; index++) {
+      setParameter(stmt, index + 1, ids.get(Math.min(index, ids.size() - 1)), Integer.class);
+    }
+  }
+
+  public Optional<Project> fetchProjectWithoutChildren(Integer projectId) {
+    /*
+     * fetches only the project row, without materials, steps or categories; the single SELECT
+     * runs in auto-commit mode on its own connection so it can run alongside the child queries
+     * below
+     */
+    try (DaoOperation op = operation("fetchProjectWithoutChildren");
+        Connection conn = readConnection()) {
+      Project project = fetchProjectRow(conn, projectId);
+
+      op.rowsRead(Objects.isNull(project) ? 0 : 1);
+      op.success();
+      return Optional.ofNullable(project);
+    } catch (SQLException e) {
+      throw new DbException(e);
+    }
+  }
+
+  public List<Category> fetchAllCategories() {
+    // returns every category, sorted by name, from the category cache
+    try (DaoOperation op = operation("fetchAllCategories")) {
+      List<Category> categories = new ArrayList<>(CATEGORY_CACHE.all());
+
+      op.rowsRead(categories.size());
+      op.success();
+      return categories;
+    } catch (SQLException e) {
+      throw new DbException(e);
+    }
+  }
+
+  public void refreshCategories() {
+    // drops the cached categories, e.g. after the category table was changed directly
+    CATEGORY_CACHE.invalidate();
+  }
+
+
+  public List<Material> fetchMaterialsForProject(Integer projectId) {
+    // fetches the project's materials on a connection of its own, in auto-commit mode
+    try (DaoOperation op = operation("fetchMaterialsForProject");
+        Connection conn = readConnection()) {
+      List<Material> materials = fetchMaterialsForProject(conn, projectId);
+
+      op.rowsRead(materials.size());
+      op.success();
+      return materials;
+    } catch (SQLException e) {
+      throw new DbException(e);
+    }
+  }
+
+  public List<Step> fetchStepsForProject(Integer projectId) {
+    // fetches the project's steps on a connection of its own, in auto-commit mode
+    try (DaoOperation op = operation("fetchStepsForProject");
+        Connection conn = readConnection()) {
+      List<Step> steps = fetchStepsForProject(conn, projectId);
+
+      op.rowsRead(steps.size());
+      op.success();
+      return steps;
+    } catch (SQLException e) {
+      throw new DbException(e);
+    }
+  }
+
+  public Step appendStep(Integer projectId, String stepText) {
+    // adds a step after the project's last step
+    return insertStep("appendStep", projectId, null, true, stepText);
+  }
+
+  public Step insertStepAfter(Integer projectId, Integer afterStepId, String stepText) {
+    // adds a step right after afterStepId, or before all other steps if afterStepId is null
+    return insertStep("insertStepAfter", projectId, afterStepId, false, stepText);
+  }
+
+  private Step insertStep(String operationName, Integer projectId, Integer afterStepId,
+      boolean append, String stepText) {
+    /* @formatter:off
+     * 
+     * inserts one step; step orders are spaced STEP_ORDER_GAP apart, so the new step usually
+     * takes the midpoint between its neighbors and no other row is touched
+     * 
+     * creates a connection
+     *    starts a transaction and locks the project row, so concurrent changes to the same
+     *    project's steps run one after the other instead of picking the same order
+     * 
+     * when there is no room left between the neighbors, the project's steps are renumbered
+     * first (see renumberSteps())
+     * 
+     * @formatter:on
+     */
+    try (DaoOperation op = operation(operationName);
+        Connection conn = DbConnection.getConnection()) {
+      startTransaction(conn);
+
+      try {
+        lockProject(conn, projectId);
+
+        StepSlot slot = append ? orderAtEnd(conn, projectId)
+            : orderAfter(conn, projectId, afterStepId, null);
+
+        Step step = new Step();
+        step.setProjectId(projectId);
+        step.setStepText(stepText);
+        step.setStepOrder(slot.order);
+
+        try (PreparedStatement stmt =
+            conn.prepareStatement(INSERT_STEP_SQL, Statement.RETURN_GENERATED_KEYS)) {
+          setParameter(stmt, 1, projectId, Integer.class);
+          setParameter(stmt, 2, stepText, String.class);
+          setParameter(stmt, 3, step.getStepOrder(), Integer.class);
+          stmt.executeUpdate();
+          step.setStepId(getGeneratedId(stmt));
+        }
+
+        addRollupSteps(conn, projectId, 1);
+        commitTransaction(conn);
+
+        step.setVersion(0);
+        step.markClean();
+
+        op.rowsWritten(1 + slot.renumbered);
+        op.success();
+        return step;
+      } catch (Exception e) {
+        rollbackTransaction(conn);
+        throw new DbException(e);
+      }
+
+    } catch (SQLException e) {
+      throw new DbException(e);
+    }
+  }
+
+  public void moveStepAfter(Integer projectId, Integer stepId, Integer afterStepId) {
+    /*
+     * moves a step right after afterStepId, or before all other steps if afterStepId is null; only
+     * the moved step's row is updated unless the steps have to be renumbered to make room
+     */
+    try (DaoOperation op = operation("moveStepAfter");
+        Connection conn = DbConnection.getConnection()) {
+      startTransaction(conn);
+
+      try {
+        lockProject(conn, projectId);
+        stepOrderOf(conn, projectId, stepId);
+
+        int rowsWritten = 0;
+
+        if (!stepId.equals(afterStepId)) {
+          StepSlot slot = orderAfter(conn, projectId, afterStepId, stepId);
+          updateStepOrder(conn, stepId, slot.order);
+          rowsWritten = 1 + slot.renumbered;
+        }
+
+        commitTransaction(conn);
+
+        op.rowsWritten(rowsWritten);
+        op.success();
+      } catch (Exception e) {
+        rollbackTransaction(conn);
+        throw new DbException(e);
+      }
+
+    } catch (SQLException e) {
+      throw new DbException(e);
+    }
+  }
+
+  public void reorderSteps(Integer projectId, List<Integer> stepIds) {
+    /*
+     * puts all of the project's steps in the given order, evenly spaced again; stepIds must list
+     * every step of the project exactly once
+     */
+    try (DaoOperation op = operation("reorderSteps");
+        Connection conn = DbConnection.getConnection()) {
+      startTransaction(conn);
+
+      try {
+        lockProject(conn, projectId);
+
+        List<Integer> current = stepIdsInOrder(conn, projectId);
+
+        if (current.size() != stepIds.size()
+            || !new LinkedHashSet<>(current).equals(new LinkedHashSet<>(stepIds))) {
+          throw new DbException("The new order must list each of the " + current.size()
+              + " steps of project ID=" + projectId + " exactly once.");
+        }
+
+        writeStepOrders(conn, projectId, stepIds);
+        commitTransaction(conn);
+
+        op.rowsWritten(stepIds.size());
+        op.success();
+      } catch (Exception e) {
+        rollbackTransaction(conn);
+        throw new DbException(e);
+      }
+
+    } catch (SQLException e) {
+      throw new DbException(e);
+    }
+  }
+
+  public boolean deleteStep(Step step) {
+    /*
+     * deletes the step if it still has the version it was read with, and takes it off the step
+     * counts in the same transaction; the gap the step leaves is used by later inserts, so no
+     * other step changes; returns false if the step was already gone
+     */
+    requireVersion("Step", step.getStepId(), step.getVersion());
+
+    if (Objects.isNull(step.getProjectId())) {
+      throw new DbException("Step with step ID=" + step.getStepId() + " has no project ID.");
+    }
+
+    try (DaoOperation op = operation("deleteStep");
+        Connection conn = DbConnection.getConnection()) {
+      startTransaction(conn);
+
+      try (PreparedStatement stmt = conn.prepareStatement(DELETE_STEP_SQL)) {
+        setParameter(stmt, 1, step.getStepId(), Integer.class);
+        setParameter(stmt, 2, step.getProjectId(), Integer.class);
+        setParameter(stmt, 3, step.getVersion(), Integer.class);
+
+        boolean deleted = stmt.executeUpdate() == 1;
+
+        if (deleted) {
+          addRollupSteps(conn, step.getProjectId(), -1);
+        } else {
+          Integer current = currentVersion(conn, STEP_VERSION_SQL, step.getStepId());
+
+          if (Objects.nonNull(current)) {
+            throw stale("Step", step.getStepId(), step.getVersion(), current);
+          }
+        }
+
+        commitTransaction(conn);
+
+        op.rowsWritten(deleted ? 1 : 0);
+        op.success();
+        return deleted;
+      } catch (StaleDataException e) {
+        rollbackTransaction(conn);
+        throw e;
+      } catch (Exception e) {
+        rollbackTransaction(conn);
+        throw new DbException(e);
+      }
+
+    } catch (SQLException e) {
+      throw new DbException(e);
+    }
+  }
+
+  private void lockProject(Connection conn, Integer projectId) throws SQLException {
+    try (PreparedStatement stmt = conn.prepareStatement(LOCK_PROJECT_SQL)) {
+      setParameter(stmt, 1, projectId, Integer.class);
+
+      try (ResultSet rs = stmt.executeQuery()) {
+        if (!rs.next()) {
+          throw new DbException("Project with project ID=" + projectId + " does not exist.");
+        }
+      }
+    }
+  }
+
+  private int stepOrderOf(Connection conn, Integer projectId, Integer stepId)
+      throws SQLException {
+    try (PreparedStatement stmt = conn.prepareStatement(STEP_ORDER_BY_ID_SQL)) {
+      setParameter(stmt, 1, stepId, Integer.class);
+      setParameter(stmt, 2, projectId, Integer.class);
+
+      try (ResultSet rs = stmt.executeQuery()) {
+        if (!rs.next()) {
+          throw new DbException(
+              "Step with step ID=" + stepId + " does not exist in project ID=" + projectId + ".");
+        }
+
+        return rs.getInt(1);
+      }
+    }
+  }
+
+  private StepSlot orderAfter(Connection conn, Integer projectId, Integer afterStepId,
+      Integer movingStepId) throws SQLException {
+    /*
+     * returns a free order between afterStepId (or the start) and the step after it, ignoring
+     * movingStepId; renumbers the steps once if the two are adjacent or the end of the int range
+     * is near
+     */
+    int renumbered = 0;
+
+    for (int attempt = 0; attempt < 2; attempt++) {
+      long lower = Objects.isNull(afterStepId) ? 0 : stepOrderOf(conn, projectId, afterStepId);
+      Integer upper = nextStepOrder(conn, projectId, lower, movingStepId);
+
+      if (Objects.isNull(upper)) {
+        if (lower + STEP_ORDER_GAP <= Integer.MAX_VALUE) {
+          return new StepSlot((int) lower + STEP_ORDER_GAP, renumbered);
+        }
+      } else if (upper - lower >= 2) {
+        return new StepSlot((int) (lower + (upper - lower) / 2), renumbered);
+      }
+
+      renumbered = renumberSteps(conn, projectId);
+    }
+
+    throw new DbException("No room for another step in project ID=" + projectId + ".");
+  }
+
+  private StepSlot orderAtEnd(Connection conn, Integer projectId) throws SQLException {
+    // returns an order after the project's last step, renumbering first near the end of the range
+    int renumbered = 0;
+
+    for (int attempt = 0; attempt < 2; attempt++) {
+      long last;
+
+      try (PreparedStatement stmt = conn.prepareStatement(LAST_STEP_ORDER_SQL)) {
+        setParameter(stmt, 1, projectId, Integer.class);
+
+        try (ResultSet rs = stmt.executeQuery()) {
+          last = rs.next() ? rs.getLong(1) : 0;
+        }
+      }
+
+      if (last + STEP_ORDER_GAP <= Integer.MAX_VALUE) {
+        return new StepSlot((int) last + STEP_ORDER_GAP, renumbered);
+      }
+
+      renumbered = renumberSteps(conn, projectId);
+    }
+
+    throw new DbException("No room for another step in project ID=" + projectId + ".");
+  }
+
+  private Integer nextStepOrder(Connection conn, Integer projectId, long afterOrder,
+      Integer excludedStepId) throws SQLException {
+    // step ids start at 1, so 0 excludes nothing
+    try (PreparedStatement stmt = conn.prepareStatement(NEXT_STEP_ORDER_SQL)) {
+      setParameter(stmt, 1, projectId, Integer.class);
+      stmt.setLong(2, afterOrder);
+      setParameter(stmt, 3, Objects.isNull(excludedStepId) ? 0 : excludedStepId, Integer.class);
+
+      try (ResultSet rs = stmt.executeQuery()) {
+        rs.next();
+        int order = rs.getInt(1);
+        return rs.wasNull() ? null : order;
+      }
+    }
+  }
+
+  private List<Integer> stepIdsInOrder(Connection conn, Integer projectId) throws SQLException {
+    try (PreparedStatement stmt = conn.prepareStatement(STEP_IDS_IN_ORDER_SQL)) {
+      setParameter(stmt, 1, projectId, Integer.class);
+
+      try (ResultSet rs = stmt.executeQuery()) {
+        List<Integer> stepIds = new ArrayList<>();
+
+        while (rs.next()) {
+          stepIds.add(rs.getInt(1));
+        }
+
+        return stepIds;
+      }
+    }
+  }
+
+  private int renumberSteps(Connection conn, Integer projectId) throws SQLException {
+    // spaces the project's steps STEP_ORDER_GAP apart again, keeping their order; returns the
+    // number of step rows written
+    List<Integer> stepIds = stepIdsInOrder(conn, projectId);
+    writeStepOrders(conn, projectId, stepIds);
+    return stepIds.size();
+  }
+
+  private void writeStepOrders(Connection conn, Integer projectId, List<Integer> stepIds)
+      throws SQLException {
+    /*
+     * the orders are first negated in one statement, so the new positive orders can't collide
+     * with old ones in step_order_idx while the batch below runs
+     */
+    try (PreparedStatement stmt = conn.prepareStatement(NEGATE_STEP_ORDERS_SQL)) {
+      setParameter(stmt, 1, projectId, Integer.class);
+      stmt.executeUpdate();
+    }
+
+    try (PreparedStatement stmt = conn.prepareStatement(UPDATE_STEP_ORDER_SQL)) {
+      for (int index = 0; index < stepIds.size(); index++) {
+        setParameter(stmt, 1, (index + 1) * STEP_ORDER_GAP, Integer.class);
+        setParameter(stmt, 2, stepIds.get(index), Integer.class);
+        stmt.addBatch();
+      }
+
+      stmt.executeBatch();
+    }
+  }
+
+  private void updateStepOrder(Connection conn, Integer stepId, int stepOrder)
+      throws SQLException {
+    try (PreparedStatement stmt = conn.prepareStatement(UPDATE_STEP_ORDER_SQL)) {
+      setParameter(stmt, 1, stepOrder, Integer.class);
+      setParameter(stmt, 2, stepId, Integer.class);
+      stmt.executeUpdate();
+    }
+  }
+
+  public Project updateProject(Project project) {
+    /* @formatter:off
+     * 
+     * writes what was changed in the project since it was read: its dirty columns, and those of
+     * its materials and steps that are dirty; children without an ID are new and categories
+     * are links, so neither is written here
+     * 
+     * each row is written with
+     *    UPDATE ... SET <dirty columns>, version = version + 1 WHERE <id> = ? AND version = ?
+     * so an unchanged notes column isn't sent again, and no row lock is held while the project
+     * is being edited; if a row no longer has the version it was read with, someone else
+     * changed or deleted it, and the whole update is rolled back with a StaleDataException
+     * 
+     * when the number required or the cost of a material changed, the difference to its stored
+     * cost is added to the project's rollup and those of its categories in the same
+     * transaction, as is the difference in hours when the project's hours changed
+     * 
+     * on commit, the version of every written row is incremented and the row is marked clean;
+     * a project with nothing dirty is returned without a round trip
+     * 
+     * @formatter:on
+     */
+    requireVersion("Project", project.getProjectId(), project.getVersion());
+
+    List<Material> materials = new ArrayList<>();
+    List<Step> steps = new ArrayList<>();
+
+    for (Material material : project.getMaterials()) {
+      if (Objects.nonNull(material.getMaterialId()) && material.isDirty()) {
+        requireVersion("Material", material.getMaterialId(), material.getVersion());
+        materials.add(material);
+      }
+    }
+
+    for (Step step : project.getSteps()) {
+      if (Objects.nonNull(step.getStepId()) && step.isDirty()) {
+        requireVersion("Step", step.getStepId(), step.getVersion());
+        steps.add(step);
+      }
+    }
+
+    boolean projectChanged = project.isDirty();
+
+    if (!projectChanged && materials.isEmpty() && steps.isEmpty()) {
+      return project;
+    }
+
+    try (DaoOperation op = operation("updateProject");
+        Connection conn = DbConnection.getConnection()) {
+      startTransaction(conn);
+
+      try {
+        if (projectChanged) {
+          if (project.getDirtyFields().contains(Project.Field.ESTIMATED_HOURS)
+              || project.getDirtyFields().contains(Project.Field.ACTUAL_HOURS)) {
+            addRollupHours(conn, project);
+          }
+
+          updateProjectRow(conn, project);
+        }
+
+        for (Material material : materials) {
+          if (material.getDirtyFields().contains(Material.Field.NUM_REQUIRED)
+              || material.getDirtyFields().contains(Material.Field.COST)) {
+            addRollupCost(conn, project.getProjectId(), material);
+          }
+
+          updateMaterialRow(conn, material);
+        }
+
+        for (Step step : steps) {
+          updateStepRow(conn, step);
+        }
+
+        commitTransaction(conn);
+      } catch (StaleDataException e) {
+        rollbackTransaction(conn);
+        throw e;
+      } catch (Exception e) {
+        rollbackTransaction(conn);
+        throw new DbException(e);
+      }
+
+      if (projectChanged) {
+        project.setVersion(project.getVersion() + 1);
+        project.markClean();
+      }
+
+      for (Material material : materials) {
+        material.setVersion(material.getVersion() + 1);
+        material.markClean();
+      }
+
+      for (Step step : steps) {
+        step.setVersion(step.getVersion() + 1);
+        step.markClean();
+      }
+
+      op.rowsWritten((projectChanged ? 1 : 0) + materials.size() + steps.size());
+      op.success();
+      return project;
+    } catch (SQLException e) {
+      throw new DbException(e);
+    }
+  }
+
+  public boolean deleteProject(Project project) {
+    /*
+     * deletes the project if it still has the version it was read with; its children, category
+     * links and rollup row are deleted by ON DELETE CASCADE, and its totals are taken off the
+     * rollups of its categories first, in the same transaction; returns false if the project was
+     * already gone
+     */
+    requireVersion("Project", project.getProjectId(), project.getVersion());
 
-    try (Connection conn = DbConnection.getConnection()) {
+    try (DaoOperation op = operation("deleteProject");
+        Connection conn = DbConnection.getConnection()) {
       startTransaction(conn);
 
-      try (PreparedStatement stmt = conn.prepareStatement(sql)) {
-        setParameter(stmt, 1, project.getProjectName(), String.class);
-        setParameter(stmt, 2, project.getEstimatedHours(), BigDecimal.class);
-        setParameter(stmt, 3, project.getActualHours(), BigDecimal.class);
-        setParameter(stmt, 4, project.getDifficulty(), Integer.class);
-        setParameter(stmt, 5, project.getNotes(), String.class);
+      try (PreparedStatement stmt = conn.prepareStatement(DELETE_PROJECT_SQL)) {
+        removeCategoryRollups(conn, project);
 
-        stmt.executeUpdate();
+        setParameter(stmt, 1, project.getProjectId(), Integer.class);
+        setParameter(stmt, 2, project.getVersion(), Integer.class);
 
-        Integer projectId = getLastInsertId(conn, PROJECT_TABLE);
-        commitTransaction(conn);
+        boolean deleted = stmt.executeUpdate() == 1;
 
-        project.setProjectId(projectId);
-        return project;
+        if (!deleted) {
+          Integer current = currentVersion(conn, PROJECT_VERSION_SQL, project.getProjectId());
+
+          if (Objects.nonNull(current)) {
+            throw stale("Project", project.getProjectId(), project.getVersion(), current);
+          }
+        }
+
+        commitTransaction(conn);
 
+        op.rowsWritten(deleted ? 1 : 0);
+        op.success();
+        return deleted;
+      } catch (StaleDataException e) {
+        rollbackTransaction(conn);
+        throw e;
       } catch (Exception e) {
         rollbackTransaction(conn);
         throw new DbException(e);
@@ -80,63 +2019,50 @@ public class ProjectDao extends DaoBase {
     }
   }
 
-  public List<Project> fetchAllProjects() {
-    /* @formatter:off
-     * 
-     * fetches all projects from the database
-     * 
-     * stores the sql statement in the sql string
-     * 
-     * creates a connection
-     *    starts a transaction;
-     *    throws an outer exception IF a connection can't be made
-     * 
-     * creates a preparedstatement
-     *    executes the sql statement (in stmt);
-     *    throws an inner exception IF the sql statement is incorrect AND rolls back the
-     *    transaction
-     *    
-     * creates a resultset
-     *    creates a new list and a while loop that analyzes the results of the sql query;
-     *    if the resultset pointer encounters a row, i.e. a project (name, notes, hours, etc.),
-     *    add that project to the list
-     * 
-     * @formatter:on
+  public boolean deleteMaterial(Material material) {
+    /*
+     * deletes the material if it still has the version it was read with, and takes its stored
+     * cost off the rollups of the project and its categories in the same transaction; returns
+     * false if the material was already gone
      */
-    
-    String sql = "SELECT * FROM " + PROJECT_TABLE + " ORDER BY project_name";
+    requireVersion("Material", material.getMaterialId(), material.getVersion());
 
-    try (Connection conn = DbConnection.getConnection()) {
+    if (Objects.isNull(material.getProjectId())) {
+      throw new DbException("Material with material ID=" + material.getMaterialId()
+          + " has no project ID.");
+    }
+
+    try (DaoOperation op = operation("deleteMaterial");
+        Connection conn = DbConnection.getConnection()) {
       startTransaction(conn);
 
-      try (PreparedStatement stmt = conn.prepareStatement(sql)) {
-        try (ResultSet rs = stmt.executeQuery()) {
-          List<Project> projects = new LinkedList<Project>();
-
-          while (rs.next()) {
-            projects.add(extract(rs, Project.class));
-
-            /*
-             * "projects.add(extract(rs, Project.class))" can be manually done:
-             * 
-             * Project project = new Project();
-             * 
-             * project.setActualHours(rs.getBigDecimal("actual_hours"));
-             * project.setDifficulty(rs.getObject("difficulty", Integer.class));
-             * project.setEstimatedHours(rs.getBigDecimal("estimated_hours"));
-             * project.setNotes(rs.getString("notes"));
-             * project.setProjectId(rs.getObject("project_id", Integer.class));
-             * project.setProjectName(rs.getString("project_name"));
-             * 
-             * projects.add(project);
-             *
-             * 
-             */
-          }
+      try (PreparedStatement stmt = conn.prepareStatement(DELETE_MATERIAL_SQL)) {
+        /* locks the row, so the cost read here is the one the delete removes */
+        BigDecimal storedCost = storedCost(conn, material);
 
-          return projects;
+        setParameter(stmt, 1, material.getMaterialId(), Integer.class);
+        setParameter(stmt, 2, material.getVersion(), Integer.class);
+
+        boolean deleted = stmt.executeUpdate() == 1;
+
+        if (deleted) {
+          addRollup(conn, material.getProjectId(), -1, storedCost.negate(), 0);
+        } else {
+          Integer current = currentVersion(conn, MATERIAL_VERSION_SQL, material.getMaterialId());
+
+          if (Objects.nonNull(current)) {
+            throw stale("Material", material.getMaterialId(), material.getVersion(), current);
+          }
         }
 
+        commitTransaction(conn);
+
+        op.rowsWritten(deleted ? 1 : 0);
+        op.success();
+        return deleted;
+      } catch (StaleDataException e) {
+        rollbackTransaction(conn);
+        throw e;
       } catch (Exception e) {
         rollbackTransaction(conn);
         throw new DbException(e);
@@ -147,81 +2073,440 @@ public class ProjectDao extends DaoBase {
     }
   }
 
-  public Optional<Project> fetchProjectById(Integer projectId) {
+  private void updateProjectRow(Connection conn, Project project) throws SQLException {
+    Set<Project.Field> fields = project.getDirtyFields();
+
+    try (PreparedStatement stmt = conn.prepareStatement(
+        updateSql(UPDATE_PROJECT_SQL, PROJECT_TABLE, "project_id", fields))) {
+      int index = 1;
+
+      for (Project.Field field : fields) {
+        switch (field) {
+          case PROJECT_NAME:
+            setParameter(stmt, index++, project.getProjectName(), String.class);
+            break;
+          case ESTIMATED_HOURS:
+            setParameter(stmt, index++, project.getEstimatedHours(), BigDecimal.class);
+            break;
+          case ACTUAL_HOURS:
+            setParameter(stmt, index++, project.getActualHours(), BigDecimal.class);
+            break;
+          case DIFFICULTY:
+            setParameter(stmt, index++, project.getDifficulty(), Integer.class);
+            break;
+          case NOTES:
+            setParameter(stmt, index++, project.getNotes(), String.class);
+            break;
+        }
+      }
+
+      executeVersionedUpdate(conn, stmt, index, "Project", PROJECT_VERSION_SQL,
+          project.getProjectId(), project.getVersion());
+    }
+  }
+
+  private void updateMaterialRow(Connection conn, Material material) throws SQLException {
+    Set<Material.Field> fields = material.getDirtyFields();
+
+    try (PreparedStatement stmt = conn.prepareStatement(
+        updateSql(UPDATE_MATERIAL_SQL, MATERIAL_TABLE, "material_id", fields))) {
+      int index = 1;
+
+      for (Material.Field field : fields) {
+        switch (field) {
+          case MATERIAL_NAME:
+            setParameter(stmt, index++, material.getMaterialName(), String.class);
+            break;
+          case NUM_REQUIRED:
+            setParameter(stmt, index++, material.getNumRequired(), Integer.class);
+            break;
+          case COST:
+            setParameter(stmt, index++, material.getCost(), BigDecimal.class);
+            break;
+        }
+      }
+
+      executeVersionedUpdate(conn, stmt, index, "Material", MATERIAL_VERSION_SQL,
+          material.getMaterialId(), material.getVersion());
+    }
+  }
+
+  private void updateStepRow(Connection conn, Step step) throws SQLException {
+    Set<Step.Field> fields = step.getDirtyFields();
+
+    try (PreparedStatement stmt =
+        conn.prepareStatement(updateSql(UPDATE_STEP_SQL, STEP_TABLE, "step_id", fields))) {
+      int index = 1;
+
+      for (Step.Field field : fields) {
+        switch (field) {
+          case STEP_TEXT:
+            setParameter(stmt, index++, step.getStepText(), String.class);
+            break;
+        }
+      }
+
+      executeVersionedUpdate(conn, stmt, index, "Step", STEP_VERSION_SQL, step.getStepId(),
+          step.getVersion());
+    }
+  }
+
+  private static <F extends Enum<F>> String updateSql(Map<Set<F>, String> shapes, String table,
+      String idColumn, Set<F> fields) {
+    /*
+     * returns the UPDATE for this set of dirty fields, building it the first time the set is seen;
+     * a table has at most 2^n shapes for n fields, and each is prepared once per pooled
+     * connection by the statement cache. Each field is named after its column, and the markers
+     * follow the fields' declaration order, which is also the order an EnumSet iterates in
+     */
+    String sql = shapes.get(fields);
+
+    if (Objects.isNull(sql)) {
+      StringBuilder builder = new StringBuilder("UPDATE ").append(table).append(" SET ");
+
+      for (F field : fields) {
+        builder.append(field.name().toLowerCase(Locale.ROOT)).append(" = ?, ");
+      }
+
+      sql = builder.append("version = version + 1 WHERE ").append(idColumn)
+          .append(" = ? AND version = ?").toString();
+      shapes.putIfAbsent(EnumSet.copyOf(fields), sql);
+    }
+
+    return sql;
+  }
+
+  private void executeVersionedUpdate(Connection conn, PreparedStatement stmt, int index,
+      String entity, String versionSql, Integer id, Integer version) throws SQLException {
+    setParameter(stmt, index, id, Integer.class);
+    setParameter(stmt, index + 1, version, Integer.class);
+
+    if (stmt.executeUpdate() == 0) {
+      throw stale(entity, id, version, currentVersion(conn, versionSql, id));
+    }
+  }
+
+  private Integer currentVersion(Connection conn, String versionSql, Integer id)
+      throws SQLException {
+    // returns the row's version now, or null if the row doesn't exist
+    try (PreparedStatement stmt = conn.prepareStatement(versionSql)) {
+      setParameter(stmt, 1, id, Integer.class);
+
+      try (ResultSet rs = stmt.executeQuery()) {
+        return rs.next() ? rs.getInt(1) : null;
+      }
+    }
+  }
+
+  private StaleDataException stale(String entity, Integer id, Integer version, Integer current) {
+    return new StaleDataException(Objects.isNull(current)
+        ? entity + " with ID=" + id + " has been deleted by someone else."
+        : entity + " with ID=" + id + " has been changed by someone else (version " + version
+            + " was read, the database has version " + current + ").");
+  }
+
+  private void requireVersion(String entity, Integer id, Integer version) {
+    if (Objects.isNull(id) || Objects.isNull(version)) {
+      throw new DbException(entity + " must be read from the database before it is written, "
+          + "so its ID and version are known.");
+    }
+  }
+
+  public List<ProjectRollup> fetchProjectRollups() {
+    /*
+     * fetches the precomputed totals of every project in name order; one row per project is read
+     * from project_rollup, no child table is touched
+     */
+    try (DaoOperation op = operation("fetchProjectRollups");
+        Connection conn = readConnection();
+        PreparedStatement stmt = conn.prepareStatement(PROJECT_ROLLUPS_SQL);
+        ResultSet rs = stmt.executeQuery()) {
+      List<ProjectRollup> rollups = new ArrayList<>();
+      RowMapper<ProjectRollup> mapper = rowMapper(rs, ProjectRollup.class);
+
+      while (rs.next()) {
+        rollups.add(mapper.map(rs));
+      }
+
+      op.rowsRead(rollups.size());
+      op.success();
+      return rollups;
+    } catch (SQLException e) {
+      throw new DbException(e);
+    }
+  }
+
+  public List<CategoryRollup> fetchCategoryRollups() {
+    /*
+     * fetches the precomputed totals of every category in name order; one row per category is
+     * read from category_rollup, and categories without projects are included with zero totals
+     */
+    try (DaoOperation op = operation("fetchCategoryRollups");
+        Connection conn = readConnection();
+        PreparedStatement stmt = conn.prepareStatement(CATEGORY_ROLLUPS_SQL);
+        ResultSet rs = stmt.executeQuery()) {
+      List<CategoryRollup> rollups = new ArrayList<>();
+      RowMapper<CategoryRollup> mapper = rowMapper(rs, CategoryRollup.class);
+
+      while (rs.next()) {
+        rollups.add(mapper.map(rs));
+      }
+
+      op.rowsRead(rollups.size());
+      op.success();
+      return rollups;
+    } catch (SQLException e) {
+      throw new DbException(e);
+    }
+  }
+
+  public long rebuildProjectRollups(int chunkSize) {
     /* @formatter:off
      * 
-     * fetches the project selected by the user from the database
-     * 
-     * stores the sql statement in the sql string
+     * recomputes every project's rollup row from its materials and steps, then every
+     * category's rollup row from those, e.g. after the tables were added to an existing database
+     * or rows were changed outside this DAO
      * 
-     * creates a connection
-     *    starts a transaction;
-     *    creates a try/catch block that creates a new project object set to null and commits
-     *    the transaction;
-     *    once the preparedstatement (read below) and resultset (read below) have been created,
-     *    if the project object is not null (as in the project exists and has a name, notes,
-     *    hours, etc.), set that project's materials, steps, and categories to those fetched
-     *    by fetchMaterialsForProject(), fetchStepsForProject(), and fetchCategoriesForProject();
-     *    throws an outer exception IF a connection can't be made
-     *    
+     * walks the project ids in order, chunkSize at a time, and refreshes each chunk in its own
+     * short transaction, so the rebuild never holds locks on more than one chunk of projects and
+     * can run while the application is writing; the category rows, one per category, are then
+     * recomputed by a single statement
      * 
-     * creates a preparedstatement
-     *    validates the projectId parameter, and executes the sql statement (in stmt);
-     *    throws an inner exception IF the sql statement is incorrect AND rolls back the
-     *    transaction
-     *    
-     * creates a resultset
-     *    the if statement analyzes the results of the sql query;
-     *    if the resultset pointer encounters a row, i.e. a project (name, notes, hours, etc.),
-     *    store that project to the project object
+     * returns the number of projects refreshed
      * 
      * @formatter:on
      */
-    
-    String sql = "SELECT * FROM " + PROJECT_TABLE + " WHERE project_id = ?";
+    if (chunkSize < 1 || chunkSize > IN_LIST_CHUNK_SIZE) {
+      throw new DbException("Invalid chunk size: " + chunkSize);
+    }
 
-    try (Connection conn = DbConnection.getConnection()) {
-      startTransaction(conn);
+    try (DaoOperation op = operation("rebuildProjectRollups");
+        Connection conn = DbConnection.getConnection()) {
+      long refreshed = 0;
+      int afterId = 0;
 
-      try {
-        Project project = null;
+      while (true) {
+        List<Integer> ids = new ArrayList<>(chunkSize);
 
-        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
-          setParameter(stmt, 1, projectId, Integer.class);
+        try (PreparedStatement stmt = conn.prepareStatement(PROJECT_IDS_AFTER_SQL)) {
+          setParameter(stmt, 1, afterId, Integer.class);
+          setParameter(stmt, 2, chunkSize, Integer.class);
 
           try (ResultSet rs = stmt.executeQuery()) {
-            if (rs.next()) {
-              project = extract(rs, Project.class);
+            while (rs.next()) {
+              ids.add(rs.getInt(1));
             }
           }
         }
 
-        if (Objects.nonNull(project)) {
-          project.getMaterials().addAll(fetchMaterialsForProject(conn, projectId));
-          project.getSteps().addAll(fetchStepsForProject(conn, projectId));
-          project.getCategories().addAll(fetchCategoriesForProject(conn, projectId));
+        if (ids.isEmpty()) {
+          break;
         }
 
-        commitTransaction(conn);
+        startTransaction(conn);
 
-        return Optional.ofNullable(project);
-      } catch (Exception e) {
-        rollbackTransaction(conn);
-        throw new DbException(e);
+        try {
+          refreshRollups(conn, ids);
+          commitTransaction(conn);
+        } catch (Exception e) {
+          rollbackTransaction(conn);
+          throw new DbException(e);
+        }
+
+        refreshed += ids.size();
+        afterId = ids.get(ids.size() - 1);
+      }
+
+      try (PreparedStatement stmt = conn.prepareStatement(REBUILD_CATEGORY_ROLLUPS_SQL)) {
+        stmt.executeUpdate();
+      }
+
+      op.rowsWritten(refreshed);
+      op.success();
+      return refreshed;
+    } catch (SQLException e) {
+      throw new DbException(e);
+    }
+  }
+
+  private void insertEmptyRollup(Connection conn, Integer projectId) throws SQLException {
+    // a project inserted without children starts with zero totals
+    try (PreparedStatement stmt = conn.prepareStatement(INSERT_EMPTY_ROLLUP_SQL)) {
+      setParameter(stmt, 1, projectId, Integer.class);
+      stmt.executeUpdate();
+    }
+  }
+
+  private void addRollupSteps(Connection conn, Integer projectId, int delta) throws SQLException {
+    addRollup(conn, projectId, 0, BigDecimal.ZERO, delta);
+  }
+
+  private void addRollup(Connection conn, Integer projectId, int materials, BigDecimal cost,
+      int steps) throws SQLException {
+    /*
+     * adds the differences to the project's rollup row and to those of its categories; a project
+     * written before project_rollup existed has no row and is left alone here;
+     * rebuildProjectRollups() creates its row
+     */
+    try (PreparedStatement stmt = conn.prepareStatement(ADD_ROLLUP_SQL)) {
+      setParameter(stmt, 1, materials, Integer.class);
+      setParameter(stmt, 2, cost, BigDecimal.class);
+      setParameter(stmt, 3, steps, Integer.class);
+      setParameter(stmt, 4, projectId, Integer.class);
+      stmt.executeUpdate();
+    }
+
+    addCategoryRollup(conn, projectId, cost, steps, BigDecimal.ZERO, BigDecimal.ZERO);
+  }
+
+  private void addRollupCost(Connection conn, Integer projectId, Material material)
+      throws SQLException {
+    /*
+     * adds the difference between the material's new cost and its stored one; a material that
+     * no longer has its version is left alone, since the update that follows fails on it
+     */
+    BigDecimal storedCost = storedCost(conn, material);
+
+    if (Objects.nonNull(storedCost)) {
+      addRollup(conn, projectId, 0, costOf(material).subtract(storedCost), 0);
+    }
+  }
+
+  private void addRollupHours(Connection conn, Project project) throws SQLException {
+    // adds the difference between the project's new hours and its stored ones to its categories
+    try (PreparedStatement stmt = conn.prepareStatement(PROJECT_HOURS_SQL)) {
+      setParameter(stmt, 1, project.getProjectId(), Integer.class);
+      setParameter(stmt, 2, project.getVersion(), Integer.class);
+
+      try (ResultSet rs = stmt.executeQuery()) {
+        if (rs.next()) {
+          addCategoryRollup(conn, project.getProjectId(), BigDecimal.ZERO, 0,
+              hoursOf(project.getEstimatedHours()).subtract(hoursOf(rs.getBigDecimal(1))),
+              hoursOf(project.getActualHours()).subtract(hoursOf(rs.getBigDecimal(2))));
+        }
+      }
+    }
+  }
+
+  private void addCategoryRollup(Connection conn, Integer projectId, BigDecimal cost, int steps,
+      BigDecimal estimatedHours, BigDecimal actualHours) throws SQLException {
+    try (PreparedStatement stmt = conn.prepareStatement(ADD_CATEGORY_ROLLUP_SQL)) {
+      setParameter(stmt, 1, cost, BigDecimal.class);
+      setParameter(stmt, 2, steps, Integer.class);
+      setParameter(stmt, 3, estimatedHours, BigDecimal.class);
+      setParameter(stmt, 4, actualHours, BigDecimal.class);
+      setParameter(stmt, 5, projectId, Integer.class);
+      stmt.executeUpdate();
+    }
+  }
+
+  private void addCategoryRollups(Connection conn, List<Integer> projectIds)
+      throws SQLException {
+    // adds the totals and hours of newly linked projects to their categories, in IN list chunks
+    for (int from = 0; from < projectIds.size(); from += IN_LIST_CHUNK_SIZE) {
+      List<Integer> chunk =
+          projectIds.subList(from, Math.min(from + IN_LIST_CHUNK_SIZE, projectIds.size()));
+
+      try (PreparedStatement stmt = conn.prepareStatement(
+          inListSql(ADD_CATEGORY_ROLLUPS_IN_SQL, chunk, ADD_CATEGORY_ROLLUPS_IN_SQL_END))) {
+        setInListParameters(stmt, chunk);
+        stmt.executeUpdate();
+      }
+    }
+  }
+
+  private void removeCategoryRollups(Connection conn, Project project) throws SQLException {
+    // takes the project off its categories, if it still has the version it was read with
+    try (PreparedStatement stmt = conn.prepareStatement(REMOVE_CATEGORY_ROLLUP_SQL)) {
+      setParameter(stmt, 1, project.getProjectId(), Integer.class);
+      setParameter(stmt, 2, project.getVersion(), Integer.class);
+      stmt.executeUpdate();
+    }
+  }
+
+  /*
+   * returns the stored cost of the material and locks its row, or null if the row no longer has
+   * the material's version
+   */
+  private BigDecimal storedCost(Connection conn, Material material) throws SQLException {
+    try (PreparedStatement stmt = conn.prepareStatement(MATERIAL_COST_SQL)) {
+      setParameter(stmt, 1, material.getMaterialId(), Integer.class);
+      setParameter(stmt, 2, material.getVersion(), Integer.class);
+
+      try (ResultSet rs = stmt.executeQuery()) {
+        return rs.next() ? rs.getBigDecimal(1) : null;
+      }
+    }
+  }
+
+  // num_required * cost as the rollups sum it: a material missing either one counts as zero
+  private static BigDecimal costOf(Material material) {
+    return Objects.isNull(material.getNumRequired()) || Objects.isNull(material.getCost())
+        ? BigDecimal.ZERO
+        : material.getCost().multiply(BigDecimal.valueOf(material.getNumRequired()));
+  }
+
+  // hours that aren't set count as zero in the category totals
+  private static BigDecimal hoursOf(BigDecimal hours) {
+    return Objects.isNull(hours) ? BigDecimal.ZERO : hours;
+  }
+
+  private void refreshRollups(Connection conn, List<Integer> projectIds) throws SQLException {
+    // recomputes the rollup rows of the given projects from their children, in IN list chunks
+    for (int from = 0; from < projectIds.size(); from += IN_LIST_CHUNK_SIZE) {
+      List<Integer> chunk =
+          projectIds.subList(from, Math.min(from + IN_LIST_CHUNK_SIZE, projectIds.size()));
+
+      try (PreparedStatement stmt = conn.prepareStatement(
+          inListSql(REFRESH_ROLLUPS_IN_SQL, chunk, REFRESH_ROLLUPS_IN_SQL_END))) {
+        setInListParameters(stmt, chunk);
+        stmt.executeUpdate();
       }
+    }
+  }
+
+  private List<Integer> projectIdsOf(List<Project> projects) {
+    List<Integer> ids = new ArrayList<>(projects.size());
+
+    for (Project project : projects) {
+      ids.add(project.getProjectId());
+    }
 
+    return ids;
+  }
+
+  public List<Category> fetchCategoriesForProject(Integer projectId) {
+    // fetches the project's categories on a connection of its own, in auto-commit mode
+    try (DaoOperation op = operation("fetchCategoriesForProject");
+        Connection conn = readConnection()) {
+      List<Category> categories = fetchCategoriesForProject(conn, projectId);
+
+      op.rowsRead(categories.size());
+      op.success();
+      return categories;
     } catch (SQLException e) {
       throw new DbException(e);
     }
   }
 
+  private Project fetchProjectRow(Connection conn, Integer projectId) throws SQLException {
+    // returns the project row with the given id, or null if there is none
+    try (PreparedStatement stmt = conn.prepareStatement(PROJECT_BY_ID_SQL)) {
+      setParameter(stmt, 1, projectId, Integer.class);
+
+      try (ResultSet rs = stmt.executeQuery()) {
+        return rs.next() ? extract(rs, Project.class) : null;
+      }
+    }
+  }
+
   private List<Category> fetchCategoriesForProject(Connection conn, Integer projectId)
       throws SQLException {
     /* @formatter:off
      * 
      * fetches the categories of the project selected by the user from the database
      * 
-     * stores the sql statement in the sql string
+     * uses the sql statement stored in the matching _SQL constant
      * 
      * creates a preparedstatement
      *    validates the projectId parameter, and executes the sql statement (in stmt);
@@ -230,27 +2515,20 @@ public class ProjectDao extends DaoBase {
      *    
      * creates a resultset
      *    creates a new list and a while loop that analyzes the results of the sql query;
-     *    if the resultset pointer encounters a row, i.e. a category, add that category to
-     *    the list
+     *    if the resultset pointer encounters a row, i.e. a category id, add the shared
+     *    category with that id from the category cache to the list
      *    
      * @formatter:on
      */
     
-    // @formatter:off
-    String sql = ""
-        + "SELECT c.* FROM " + CATEGORY_TABLE + " c "
-        + "JOIN " + PROJECT_CATEGORY_TABLE + " pc USING (category_id) "
-        + "WHERE project_id = ?";
-    // @formatter:on
-
-    try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+    try (PreparedStatement stmt = conn.prepareStatement(CATEGORIES_FOR_PROJECT_SQL)) {
       setParameter(stmt, 1, projectId, Integer.class);
 
       try (ResultSet rs = stmt.executeQuery()) {
         List<Category> categories = new LinkedList<Category>();
 
         while (rs.next()) {
-          categories.add(extract(rs, Category.class));
+          categories.add(CATEGORY_CACHE.get(rs.getInt(1)));
         }
 
         return categories;
@@ -263,7 +2541,7 @@ public class ProjectDao extends DaoBase {
      * 
      * fetches the steps of the project selected by the user from the database
      * 
-     * stores the sql statement in the sql string
+     * uses the sql statement stored in the matching _SQL constant
      * 
      * creates a preparedstatement
      *    validates the projectId parameter, and executes the sql statement (in stmt);
@@ -278,16 +2556,15 @@ public class ProjectDao extends DaoBase {
      * @formatter:on
      */
     
-    String sql = "SELECT * FROM " + STEP_TABLE + " WHERE project_id = ?";
-
-    try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+    try (PreparedStatement stmt = conn.prepareStatement(STEPS_FOR_PROJECT_SQL)) {
       setParameter(stmt, 1, projectId, Integer.class);
 
       try (ResultSet rs = stmt.executeQuery()) {
         List<Step> steps = new LinkedList<Step>();
+        RowMapper<Step> mapper = rowMapper(rs, Step.class);
 
         while (rs.next()) {
-          steps.add(extract(rs, Step.class));
+          steps.add(mapper.map(rs));
         }
 
         return steps;
@@ -301,7 +2578,7 @@ public class ProjectDao extends DaoBase {
      * 
      * fetches the materials of the project selected by the user from the database
      * 
-     * stores the sql statement in the sql string
+     * uses the sql statement stored in the matching _SQL constant
      * 
      * creates a preparedstatement
      *    validates the projectId parameter, and executes the sql statement (in stmt);
@@ -316,16 +2593,15 @@ public class ProjectDao extends DaoBase {
      * @formatter:on
      */
     
-    String sql = "SELECT * FROM " + MATERIAL_TABLE + " WHERE project_id = ?";
-
-    try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+    try (PreparedStatement stmt = conn.prepareStatement(MATERIALS_FOR_PROJECT_SQL)) {
       setParameter(stmt, 1, projectId, Integer.class);
 
       try (ResultSet rs = stmt.executeQuery()) {
         List<Material> materials = new LinkedList<Material>();
+        RowMapper<Material> mapper = rowMapper(rs, Material.class);
 
         while (rs.next()) {
-          materials.add(extract(rs, Material.class));
+          materials.add(mapper.map(rs));
         }
 
         return materials;
@@ -333,4 +2609,26 @@ public class ProjectDao extends DaoBase {
     }
   }
 
+  /**
+   * A free step order, and how many step rows were renumbered to make room for it.
+   */
+  private Connection readConnection() {
+    return primaryReads ? DbConnection.getPrimaryReadConnection()
+        : DbConnection.getReadConnection();
+  }
+
+  private List<Connection> readConnections(int count) {
+    return primaryReads ? DbConnection.getPrimaryReadConnections(count)
+        : DbConnection.getReadConnections(count);
+  }
+
+  private static final class StepSlot {
+    private final int order;
+    private final int renumbered;
+
+    private StepSlot(int order, int renumbered) {
+      this.order = order;
+      this.renumbered = renumbered;
+    }
+  }
 }
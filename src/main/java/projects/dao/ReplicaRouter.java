@@ -0,0 +1,198 @@
+package projects.dao;
+
+import java.net.InetSocketAddress;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Keeps a {@link ConnectionPool} per read replica and picks one for each read.
+ * <ul>
+ * <li>A background thread reads each replica's lag with {@code SHOW REPLICA STATUS} (or
+ * {@code SHOW SLAVE STATUS} on servers older than 8.0.22). A replica is used only while its last
+ * check succeeded and it was at most {@code maxLagSeconds} behind.</li>
+ * <li>A replica that can't be reached, whose replication is stopped or that isn't a replica at
+ * all is skipped until a later check finds it healthy again.</li>
+ * <li>Healthy replicas are taken in turn, or the one with the fewest borrowed connections is
+ * taken, depending on the configured routing.</li>
+ * </ul>
+ */
+class ReplicaRouter implements AutoCloseable {
+  private static final Logger LOG = Logger.getLogger(ReplicaRouter.class.getName());
+
+  private final List<Replica> replicas = new ArrayList<>();
+  private final boolean leastOutstanding;
+  private final long maxLagSeconds;
+  private final AtomicInteger next = new AtomicInteger();
+  private final ScheduledExecutorService lagMonitor;
+
+  ReplicaRouter(DbConfig config) {
+    for (InetSocketAddress address : config.getReplicas()) {
+      replicas.add(new Replica(address.getHostString() + ":" + address.getPort(),
+          new ConnectionPool(config, address.getHostString(), address.getPort())));
+    }
+
+    leastOutstanding = config.isReplicaLeastOutstanding();
+    maxLagSeconds = config.getReplicaMaxLagSeconds();
+
+    lagMonitor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "projects-replica-lag-monitor");
+      thread.setDaemon(true);
+      return thread;
+    });
+
+    lagMonitor.scheduleWithFixedDelay(this::checkLag, 0,
+        config.getReplicaLagCheckIntervalMillis(), TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * @return The pool of a healthy replica, or null if none is healthy and the read should go to
+   *         the primary.
+   */
+  ConnectionPool choose() {
+    int count = replicas.size();
+    int start = Math.floorMod(next.getAndIncrement(), count);
+    Replica chosen = null;
+
+    for (int offset = 0; offset < count; offset++) {
+      Replica replica = replicas.get((start + offset) % count);
+
+      if (!replica.healthy) {
+        continue;
+      }
+
+      if (!leastOutstanding) {
+        return replica.pool;
+      }
+
+      if (Objects.isNull(chosen) || replica.pool.getActiveCount() < chosen.pool.getActiveCount()) {
+        chosen = replica;
+      }
+    }
+
+    return Objects.isNull(chosen) ? null : chosen.pool;
+  }
+
+  /**
+   * @return The pool counters of each replica, keyed by host:port.
+   */
+  Map<String, PoolStats> getStats() {
+    Map<String, PoolStats> stats = new LinkedHashMap<>();
+
+    for (Replica replica : replicas) {
+      stats.put(replica.name, replica.pool.getStats());
+    }
+
+    return Collections.unmodifiableMap(stats);
+  }
+
+  @Override
+  public void close() {
+    lagMonitor.shutdownNow();
+
+    for (Replica replica : replicas) {
+      replica.pool.close();
+    }
+  }
+
+  private void checkLag() {
+    for (Replica replica : replicas) {
+      Long lag = null;
+      String problem = null;
+
+      try {
+        lag = readLag(replica);
+
+        if (Objects.isNull(lag)) {
+          problem = "is not replicating";
+        } else if (lag > maxLagSeconds) {
+          problem = "is " + lag + " s behind the primary";
+        }
+      } catch (SQLException e) {
+        problem = "can't be checked: " + e.getMessage();
+      } catch (RuntimeException e) {
+        LOG.log(Level.WARNING, "Replica lag check failed for " + replica.name, e);
+        problem = "can't be checked: " + e;
+      }
+
+      boolean healthy = Objects.isNull(problem);
+
+      if (healthy != replica.healthy) {
+        if (healthy) {
+          LOG.info("Replica " + replica.name + " is " + lag + " s behind; reads resume");
+        } else {
+          LOG.warning("Replica " + replica.name + " " + problem + "; reads go to the primary");
+        }
+      }
+
+      replica.healthy = healthy;
+    }
+  }
+
+  /*
+   * returns the replica's lag in seconds, or null if it has no replication channel or the SQL
+   * thread isn't running
+   */
+  private Long readLag(Replica replica) throws SQLException {
+    try (Connection conn = replica.pool.borrow(); Statement stmt = conn.createStatement()) {
+      if (!replica.legacyStatus) {
+        try {
+          return readLag(stmt, "SHOW REPLICA STATUS", "Seconds_Behind_Source");
+        } catch (SQLException e) {
+          /* ER_PARSE_ERROR: the server predates SHOW REPLICA STATUS */
+          if (e.getErrorCode() != 1064) {
+            throw e;
+          }
+
+          replica.legacyStatus = true;
+        }
+      }
+
+      return readLag(stmt, "SHOW SLAVE STATUS", "Seconds_Behind_Master");
+    }
+  }
+
+  private Long readLag(Statement stmt, String sql, String column) throws SQLException {
+    try (ResultSet rs = stmt.executeQuery(sql)) {
+      long lag = -1;
+
+      /* a multi-source replica has a row per channel; the slowest channel counts */
+      while (rs.next()) {
+        long channelLag = rs.getLong(column);
+
+        if (rs.wasNull()) {
+          return null;
+        }
+
+        lag = Math.max(lag, channelLag);
+      }
+
+      return lag < 0 ? null : lag;
+    }
+  }
+
+  private static class Replica {
+    final String name;
+    final ConnectionPool pool;
+    volatile boolean healthy;
+    volatile boolean legacyStatus;
+
+    Replica(String name, ConnectionPool pool) {
+      this.name = name;
+      this.pool = pool;
+    }
+  }
+}
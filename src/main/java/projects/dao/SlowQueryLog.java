@@ -0,0 +1,179 @@
+package projects.dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Logs statements that run longer than a threshold, with their bound parameters, duration, row
+ * count and connection ID. The first time a statement shape (its {@link SqlFingerprint}) is slow,
+ * its plan is captured with {@code EXPLAIN FORMAT=JSON} on a background thread, using the same
+ * parameter values, and logged as well. A plan that shows a full scan or a filesort points at the
+ * missing index.
+ *
+ * EXPLAIN capture is rate limited to a number per minute, and only SELECT, UPDATE and DELETE
+ * statements are explained. Shapes that were skipped because of the rate limit are tried again the
+ * next time they are slow.
+ */
+class SlowQueryLog implements AutoCloseable {
+  private static final Logger LOG = Logger.getLogger(SlowQueryLog.class.getName());
+
+  private static final int MAX_EXPLAINED_SHAPES = 1000;
+  private static final int MAX_VALUE_LENGTH = 64;
+  private static final long MINUTE_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+  private final ConnectionPool pool;
+  private final long thresholdNanos;
+  private final boolean redactParameters;
+  private final int explainsPerMinute;
+  private final Set<String> explainedShapes = ConcurrentHashMap.newKeySet();
+  private final ThreadPoolExecutor explainer;
+
+  private long windowStart = System.nanoTime();
+  private int explainsInWindow;
+
+  SlowQueryLog(ConnectionPool pool, long thresholdMillis, boolean redactParameters,
+      int explainsPerMinute) {
+    this.pool = pool;
+    this.thresholdNanos = TimeUnit.MILLISECONDS.toNanos(thresholdMillis);
+    this.redactParameters = redactParameters;
+    this.explainsPerMinute = explainsPerMinute;
+
+    /* One thread and a short queue: plans are a diagnostic, never worth competing with the app. */
+    explainer = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+        new ArrayBlockingQueue<>(explainsPerMinute > 0 ? explainsPerMinute : 1), runnable -> {
+          Thread thread = new Thread(runnable, "projects-slow-query-explain");
+          thread.setDaemon(true);
+          return thread;
+        }, new ThreadPoolExecutor.AbortPolicy());
+  }
+
+  boolean isSlow(long durationNanos) {
+    return durationNanos >= thresholdNanos;
+  }
+
+  /**
+   * Logs a slow statement and schedules an EXPLAIN of its shape if it hasn't been explained yet.
+   *
+   * @param sql The SQL as prepared.
+   * @param parameters The bound parameters by index, as of the execution. Owned by the caller; a
+   *        copy is taken for the EXPLAIN.
+   */
+  void report(String sql, Map<Integer, Object> parameters, long durationNanos, long rows,
+      long connectionId) {
+    String fingerprint = SqlFingerprint.of(sql);
+
+    LOG.warning(() -> String.format("Slow query: %d ms, %d rows, connection %d: %s; parameters %s",
+        TimeUnit.NANOSECONDS.toMillis(durationNanos), rows, connectionId, fingerprint,
+        formatParameters(parameters)));
+
+    if (explainsPerMinute > 0 && isExplainable(sql) && explainedShapes.add(fingerprint)) {
+      if (explainedShapes.size() > MAX_EXPLAINED_SHAPES) {
+        explainedShapes.clear();
+        explainedShapes.add(fingerprint);
+      }
+
+      Map<Integer, Object> values = new TreeMap<>(parameters);
+
+      try {
+        if (!tryAcquireExplain()) {
+          throw new RejectedExecutionException("EXPLAIN rate limit reached");
+        }
+
+        explainer.execute(() -> explain(sql, fingerprint, values));
+      } catch (RejectedExecutionException e) {
+        explainedShapes.remove(fingerprint);
+      }
+    }
+  }
+
+  @Override
+  public void close() {
+    explainer.shutdownNow();
+  }
+
+  private synchronized boolean tryAcquireExplain() {
+    long now = System.nanoTime();
+
+    if (now - windowStart >= MINUTE_NANOS) {
+      windowStart = now;
+      explainsInWindow = 0;
+    }
+
+    if (explainsInWindow >= explainsPerMinute) {
+      return false;
+    }
+
+    explainsInWindow++;
+    return true;
+  }
+
+  private boolean isExplainable(String sql) {
+    String verb = sql.stripLeading().toUpperCase(Locale.ROOT);
+    return verb.startsWith("SELECT") || verb.startsWith("UPDATE") || verb.startsWith("DELETE");
+  }
+
+  private void explain(String sql, String fingerprint, Map<Integer, Object> values) {
+    /*
+     * The EXPLAIN runs on the physical connection behind a borrowed lease so that it goes
+     * neither through the statement cache nor through this log.
+     */
+    try (Connection lease = pool.borrow()) {
+      Connection conn = lease.unwrap(Connection.class);
+
+      try (PreparedStatement stmt = conn.prepareStatement("EXPLAIN FORMAT=JSON " + sql)) {
+        for (Map.Entry<Integer, Object> value : values.entrySet()) {
+          stmt.setObject(value.getKey(), value.getValue());
+        }
+
+        try (ResultSet rs = stmt.executeQuery()) {
+          if (rs.next()) {
+            LOG.warning("EXPLAIN for slow query " + fingerprint + ":\n" + rs.getString(1));
+          }
+        }
+      }
+    } catch (SQLException | RuntimeException e) {
+      LOG.log(Level.FINE, "Could not EXPLAIN " + fingerprint, e);
+    }
+  }
+
+  private String formatParameters(Map<Integer, Object> parameters) {
+    StringJoiner text = new StringJoiner(", ", "[", "]");
+
+    parameters.forEach((index, value) -> text.add(index + "=" + formatValue(value)));
+
+    return text.toString();
+  }
+
+  private String formatValue(Object value) {
+    if (Objects.isNull(value)) {
+      return "NULL";
+    }
+
+    if (redactParameters) {
+      return "<" + value.getClass().getSimpleName() + ">";
+    }
+
+    String text = value.toString();
+
+    if (text.length() > MAX_VALUE_LENGTH) {
+      text = text.substring(0, MAX_VALUE_LENGTH) + "...(" + text.length() + " chars)";
+    }
+
+    return value instanceof String ? "'" + text + "'" : text;
+  }
+}
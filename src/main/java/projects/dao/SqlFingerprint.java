@@ -0,0 +1,19 @@
+package projects.dao;
+
+import java.util.regex.Pattern;
+
+/**
+ * Reduces SQL text to a form that is the same for every execution of the same DAO query. Today
+ * that only means collapsing IN lists, whose marker count varies with the number of IDs, to
+ * {@code (?, ...)}; parameter values are never part of the text because every query is prepared.
+ */
+final class SqlFingerprint {
+  private static final Pattern MARKER_LIST = Pattern.compile("\\(\\s*\\?(\\s*,\\s*\\?)+\\s*\\)");
+
+  private SqlFingerprint() {
+  }
+
+  static String of(String sql) {
+    return MARKER_LIST.matcher(sql).replaceAll("(?, ...)");
+  }
+}
@@ -0,0 +1,277 @@
+package projects.dao;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * An LRU cache of prepared statements for one physical connection. It lives as long as the
+ * physical connection, so a statement prepared during one borrow is reused by later borrows of the
+ * same connection. With {@code useServerPrepStmts=true} this means each distinct SQL string is
+ * parsed and planned by the server once per connection instead of once per DAO call.
+ *
+ * A cached statement is handed out wrapped in a proxy whose {@code close()} resets it and puts it
+ * back in the cache. If the same SQL is prepared again while the cached statement is still open (a
+ * nested use on the same connection), the second caller gets an ordinary, uncached statement.
+ *
+ * Only used by one thread at a time: the one that has borrowed the connection.
+ */
+class StatementCache {
+  private static final Logger LOG = Logger.getLogger(StatementCache.class.getName());
+
+  private final Connection physical;
+  private final int maximumSize;
+  private final Counters counters;
+  private final Map<Key, CachedStatement> statements = new LinkedHashMap<>(16, 0.75f, true);
+
+  StatementCache(Connection physical, int maximumSize, Counters counters) {
+    this.physical = physical;
+    this.maximumSize = maximumSize;
+    this.counters = counters;
+  }
+
+  /**
+   * Returns a cached statement for the arguments of one of the {@code Connection.prepareStatement}
+   * overloads, preparing and caching a new one if needed. Returns null for overloads that are not
+   * cached so the caller can fall through to the driver.
+   */
+  PreparedStatement prepare(Method method, Object[] args) throws SQLException {
+    Key key = Key.of(method, args);
+
+    if (Objects.isNull(key)) {
+      return null;
+    }
+
+    CachedStatement cached = statements.get(key);
+
+    /* The driver statement may have been closed directly, e.g. through ResultSet.getStatement(). */
+    if (Objects.nonNull(cached) && !cached.inUse && cached.statement.isClosed()) {
+      statements.remove(key);
+      cached = null;
+    }
+
+    if (Objects.nonNull(cached)) {
+      if (cached.inUse) {
+        counters.misses.increment();
+        return null;
+      }
+
+      counters.hits.increment();
+    } else {
+      counters.misses.increment();
+      cached = new CachedStatement(key.prepare(physical));
+      statements.put(key, cached);
+      evictOverflow();
+    }
+
+    cached.inUse = true;
+
+    return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+        new Class<?>[] {PreparedStatement.class}, new Handle(cached));
+  }
+
+  void closeAll() {
+    for (CachedStatement cached : statements.values()) {
+      cached.closeQuietly();
+    }
+
+    statements.clear();
+  }
+
+  private void evictOverflow() {
+    Iterator<CachedStatement> eldest = statements.values().iterator();
+
+    while (statements.size() > maximumSize && eldest.hasNext()) {
+      CachedStatement cached = eldest.next();
+
+      /* A statement that is still open is skipped; it will be evicted once it is closed. */
+      if (!cached.inUse) {
+        eldest.remove();
+        cached.closeQuietly();
+        counters.evictions.increment();
+      }
+    }
+  }
+
+  /**
+   * Pool-wide statement cache counters, shared by the caches of all connections.
+   */
+  static class Counters {
+    final LongAdder hits = new LongAdder();
+    final LongAdder misses = new LongAdder();
+    final LongAdder evictions = new LongAdder();
+  }
+
+  /**
+   * Identifies a statement by its SQL and the options it was prepared with.
+   */
+  private static final class Key {
+    private final String sql;
+    private final int autoGeneratedKeys;
+    private final int resultSetType;
+    private final int resultSetConcurrency;
+
+    private Key(String sql, int autoGeneratedKeys, int resultSetType, int resultSetConcurrency) {
+      this.sql = sql;
+      this.autoGeneratedKeys = autoGeneratedKeys;
+      this.resultSetType = resultSetType;
+      this.resultSetConcurrency = resultSetConcurrency;
+    }
+
+    private static Key of(Method method, Object[] args) {
+      Class<?>[] types = method.getParameterTypes();
+
+      if (types.length == 1) {
+        return new Key((String) args[0], Statement.NO_GENERATED_KEYS, ResultSet.TYPE_FORWARD_ONLY,
+            ResultSet.CONCUR_READ_ONLY);
+      }
+
+      if (types.length == 2 && int.class.equals(types[1])) {
+        return new Key((String) args[0], (Integer) args[1], ResultSet.TYPE_FORWARD_ONLY,
+            ResultSet.CONCUR_READ_ONLY);
+      }
+
+      if (types.length == 3) {
+        return new Key((String) args[0], Statement.NO_GENERATED_KEYS, (Integer) args[1],
+            (Integer) args[2]);
+      }
+
+      return null;
+    }
+
+    private PreparedStatement prepare(Connection conn) throws SQLException {
+      if (autoGeneratedKeys == Statement.RETURN_GENERATED_KEYS) {
+        return conn.prepareStatement(sql, autoGeneratedKeys);
+      }
+
+      return conn.prepareStatement(sql, resultSetType, resultSetConcurrency);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (!(obj instanceof Key)) {
+        return false;
+      }
+
+      Key other = (Key) obj;
+
+      return autoGeneratedKeys == other.autoGeneratedKeys && resultSetType == other.resultSetType
+          && resultSetConcurrency == other.resultSetConcurrency && sql.equals(other.sql);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(sql, autoGeneratedKeys, resultSetType, resultSetConcurrency);
+    }
+  }
+
+  /**
+   * A statement kept in the cache.
+   */
+  private class CachedStatement {
+    private final PreparedStatement statement;
+    private boolean inUse;
+
+    private CachedStatement(PreparedStatement statement) {
+      this.statement = statement;
+    }
+
+    /*
+     * Puts the statement back in the state a freshly prepared one would be in. A statement that
+     * can't be reset is dropped from the cache.
+     */
+    private void release() {
+      inUse = false;
+
+      try {
+        ResultSet rs = statement.getResultSet();
+
+        if (Objects.nonNull(rs)) {
+          rs.close();
+        }
+
+        statement.clearParameters();
+        statement.clearBatch();
+
+        if (statement.getFetchSize() != 0) {
+          statement.setFetchSize(0);
+        }
+
+        evictOverflow();
+      } catch (SQLException e) {
+        statements.values().remove(this);
+        closeQuietly();
+      }
+    }
+
+    private void closeQuietly() {
+      try {
+        statement.close();
+      } catch (SQLException e) {
+        LOG.log(Level.FINE, "Error closing cached statement", e);
+      }
+    }
+  }
+
+  /**
+   * The invocation handler behind one hand-out of a cached statement. Each hand-out gets its own
+   * handle so that a reference kept after {@code close()} can't touch the statement once it has
+   * been handed to someone else.
+   */
+  private class Handle implements InvocationHandler {
+    private final CachedStatement cached;
+    private boolean closed;
+
+    private Handle(CachedStatement cached) {
+      this.cached = cached;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+      switch (method.getName()) {
+        case "close":
+          if (!closed) {
+            closed = true;
+            cached.release();
+          }
+          return null;
+
+        case "isClosed":
+          if (closed) {
+            return true;
+          }
+          break;
+
+        case "equals":
+          return proxy == args[0];
+
+        case "hashCode":
+          return System.identityHashCode(proxy);
+
+        default:
+          if (closed) {
+            throw new SQLException("Statement has already been closed.");
+          }
+      }
+
+      try {
+        return method.invoke(cached.statement, args);
+      } catch (InvocationTargetException e) {
+        throw e.getCause();
+      }
+    }
+  }
+}
@@ -0,0 +1,251 @@
+package projects.dao;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import projects.jfr.QueryEvent;
+
+/**
+ * Wraps a prepared statement to time each execution, record it as a {@link QueryEvent} while the
+ * event is enabled in a flight recording, and report it to the {@link SlowQueryLog} if it ran
+ * longer than the threshold. When neither is active the pool hands out statements unwrapped, so
+ * they cost nothing extra.
+ *
+ * A query's duration runs from the execute call until the driver has its result: until
+ * {@code executeQuery} returns for a buffered result set, which the driver reads in full before
+ * returning, or until the first row arrives for a streaming one (fetch size
+ * {@link Integer#MIN_VALUE}). The time the caller spends using the rows is not counted, so a long
+ * export over a streaming cursor isn't reported as slow. The event and the slow query report are
+ * still written when the result set is closed, or when the statement is closed or executed
+ * again, so they carry the number of rows read.
+ */
+class TracedStatement implements InvocationHandler {
+  private final PreparedStatement statement;
+  private final String sql;
+  private final long connectionId;
+  private final SlowQueryLog slowQueryLog;
+  private final Map<Integer, Object> parameters = new TreeMap<>();
+  private Execution openQuery;
+  private long batched;
+
+  private TracedStatement(PreparedStatement statement, String sql, long connectionId,
+      SlowQueryLog slowQueryLog) {
+    this.statement = statement;
+    this.sql = sql;
+    this.connectionId = connectionId;
+    this.slowQueryLog = slowQueryLog;
+  }
+
+  /**
+   * @param slowQueryLog The slow query log, or null if it is disabled.
+   * @return The statement wrapped in a tracing proxy, or the statement itself if there is nothing
+   *         to record.
+   */
+  static PreparedStatement wrap(PreparedStatement statement, String sql, long connectionId,
+      SlowQueryLog slowQueryLog) {
+    if (Objects.isNull(slowQueryLog) && !new QueryEvent().isEnabled()) {
+      return statement;
+    }
+
+    return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+        new Class<?>[] {PreparedStatement.class},
+        new TracedStatement(statement, sql, connectionId, slowQueryLog));
+  }
+
+  @Override
+  public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+    String name = method.getName();
+
+    switch (name) {
+      case "executeQuery":
+        return executeQuery(method, args);
+
+      case "executeUpdate":
+      case "executeLargeUpdate":
+        return execute("update", method, args);
+
+      case "executeBatch":
+      case "executeLargeBatch":
+        return execute("batch", method, args);
+
+      case "addBatch":
+        batched++;
+        break;
+
+      case "clearBatch":
+        batched = 0;
+        break;
+
+      case "clearParameters":
+        parameters.clear();
+        break;
+
+      case "close":
+        finishOpenQuery();
+        break;
+
+      case "equals":
+        return proxy == args[0];
+
+      case "hashCode":
+        return System.identityHashCode(proxy);
+
+      default:
+        /* setInt(1, 5), setNull(2, Types.VARCHAR), ...: remembered for the slow query log */
+        if (Objects.nonNull(slowQueryLog) && name.startsWith("set") && Objects.nonNull(args)
+            && args.length >= 2 && args[0] instanceof Integer) {
+          parameters.put((Integer) args[0], "setNull".equals(name) ? null : args[1]);
+        }
+        break;
+    }
+
+    return invokeOn(statement, method, args);
+  }
+
+  private Object executeQuery(Method method, Object[] args) throws Throwable {
+    finishOpenQuery();
+
+    Execution execution = new Execution("query");
+    ResultSet rs;
+
+    try {
+      rs = (ResultSet) invokeOn(statement, method, args);
+    } catch (Throwable e) {
+      execution.finish(true);
+      throw e;
+    }
+
+    openQuery = execution;
+
+    /* Connector/J streams only with this fetch size; any other result set is buffered by now */
+    boolean streaming = statement.getFetchSize() == Integer.MIN_VALUE;
+
+    if (!streaming) {
+      execution.stop();
+    }
+
+    return Proxy.newProxyInstance(ResultSet.class.getClassLoader(),
+        new Class<?>[] {ResultSet.class}, (rsProxy, rsMethod, rsArgs) -> {
+          switch (rsMethod.getName()) {
+            case "close":
+              finishOpenQuery();
+              break;
+
+            case "equals":
+              return rsProxy == rsArgs[0];
+
+            case "hashCode":
+              return System.identityHashCode(rsProxy);
+
+            default:
+              break;
+          }
+
+          Object result = invokeOn(rs, rsMethod, rsArgs);
+
+          if ("next".equals(rsMethod.getName())) {
+            execution.stop();
+
+            if (Boolean.TRUE.equals(result)) {
+              execution.rows++;
+            }
+          }
+
+          return result;
+        });
+  }
+
+  private Object execute(String kind, Method method, Object[] args) throws Throwable {
+    finishOpenQuery();
+
+    Execution execution = new Execution(kind);
+    boolean failed = true;
+
+    try {
+      Object result = invokeOn(statement, method, args);
+
+      if ("batch".equals(kind)) {
+        execution.rows = batched;
+        batched = 0;
+      } else {
+        execution.rows = ((Number) result).longValue();
+      }
+
+      failed = false;
+      return result;
+    } finally {
+      execution.finish(failed);
+    }
+  }
+
+  private void finishOpenQuery() {
+    if (Objects.nonNull(openQuery)) {
+      Execution execution = openQuery;
+      openQuery = null;
+      execution.finish(false);
+    }
+  }
+
+  private static Object invokeOn(Object target, Method method, Object[] args) throws Throwable {
+    try {
+      return method.invoke(target, args);
+    } catch (InvocationTargetException e) {
+      throw e.getCause();
+    }
+  }
+
+  /**
+   * One execution of the statement, timed from the execute call until {@link #stop()}.
+   */
+  private class Execution {
+    private final String kind;
+    private final QueryEvent event = new QueryEvent();
+    private final long startNanos = System.nanoTime();
+    private long durationNanos = -1;
+    private long rows;
+    private boolean finished;
+
+    private Execution(String kind) {
+      this.kind = kind;
+      event.begin();
+    }
+
+    /**
+     * Stops the clock; later calls do nothing. The event and report wait for finish().
+     */
+    private void stop() {
+      if (durationNanos < 0) {
+        durationNanos = System.nanoTime() - startNanos;
+        event.end();
+      }
+    }
+
+    private void finish(boolean failed) {
+      if (finished) {
+        return;
+      }
+
+      finished = true;
+      stop();
+
+      if (event.shouldCommit()) {
+        event.setSql(SqlFingerprint.of(sql));
+        event.setKind(kind);
+        event.setRows(rows);
+        event.setConnectionId(connectionId);
+        event.setFailed(failed);
+        event.commit();
+      }
+
+      if (Objects.nonNull(slowQueryLog) && slowQueryLog.isSlow(durationNanos)) {
+        slowQueryLog.report(sql, parameters, durationNanos, rows, connectionId);
+      }
+    }
+  }
+}
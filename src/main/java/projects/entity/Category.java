@@ -4,6 +4,9 @@
 package projects.entity;
 
 /**
+ * A category. Categories loaded with projects are shared, read-only instances (see
+ * {@link #immutable(Integer, String)}); create a new one to change a category.
+ * 
  * @author Promineo
  *
  */
@@ -27,8 +30,33 @@ public class Category {
     this.categoryName = categoryName;
   }
 
+  /**
+   * Returns a category whose setters throw {@link UnsupportedOperationException}, so one instance
+   * can be shared by every project in the category.
+   */
+  public static Category immutable(Integer categoryId, String categoryName) {
+    return new Immutable(categoryId, categoryName);
+  }
+
   @Override
   public String toString() {
     return "ID=" + categoryId + ", categoryName=" + categoryName;
   }
+
+  private static final class Immutable extends Category {
+    private Immutable(Integer categoryId, String categoryName) {
+      super.setCategoryId(categoryId);
+      super.setCategoryName(categoryName);
+    }
+
+    @Override
+    public void setCategoryId(Integer categoryId) {
+      throw new UnsupportedOperationException("Shared categories can't be changed");
+    }
+
+    @Override
+    public void setCategoryName(String categoryName) {
+      throw new UnsupportedOperationException("Shared categories can't be changed");
+    }
+  }
 }
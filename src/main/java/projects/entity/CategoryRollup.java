@@ -0,0 +1,86 @@
+/**
+ * 
+ */
+package projects.entity;
+
+import java.math.BigDecimal;
+
+/**
+ * Totals for the projects in one category: the sums of their {@link ProjectRollup}s and hours,
+ * kept up to date as projects are written. Hours that are not set on a project count as zero.
+ * 
+ * @author Promineo
+ *
+ */
+public class CategoryRollup {
+  private Integer categoryId;
+  private String categoryName;
+  private Integer projectCount;
+  private BigDecimal materialCost;
+  private Integer stepCount;
+  private BigDecimal estimatedHours;
+  private BigDecimal actualHours;
+
+  public Integer getCategoryId() {
+    return categoryId;
+  }
+
+  public void setCategoryId(Integer categoryId) {
+    this.categoryId = categoryId;
+  }
+
+  public String getCategoryName() {
+    return categoryName;
+  }
+
+  public void setCategoryName(String categoryName) {
+    this.categoryName = categoryName;
+  }
+
+  public Integer getProjectCount() {
+    return projectCount;
+  }
+
+  public void setProjectCount(Integer projectCount) {
+    this.projectCount = projectCount;
+  }
+
+  public BigDecimal getMaterialCost() {
+    return materialCost;
+  }
+
+  public void setMaterialCost(BigDecimal materialCost) {
+    this.materialCost = materialCost;
+  }
+
+  public Integer getStepCount() {
+    return stepCount;
+  }
+
+  public void setStepCount(Integer stepCount) {
+    this.stepCount = stepCount;
+  }
+
+  public BigDecimal getEstimatedHours() {
+    return estimatedHours;
+  }
+
+  public void setEstimatedHours(BigDecimal estimatedHours) {
+    this.estimatedHours = estimatedHours;
+  }
+
+  public BigDecimal getActualHours() {
+    return actualHours;
+  }
+
+  public void setActualHours(BigDecimal actualHours) {
+    this.actualHours = actualHours;
+  }
+
+  @Override
+  public String toString() {
+    return "ID=" + categoryId + ", categoryName=" + categoryName + ", projects=" + projectCount
+        + ", materialCost=" + materialCost + ", steps=" + stepCount + ", estimatedHours="
+        + estimatedHours + ", actualHours=" + actualHours;
+  }
+}
@@ -4,17 +4,31 @@
 package projects.entity;
 
 import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Objects;
+import java.util.Set;
 
 /**
  * @author Promineo
  *
  */
 public class Material {
+  /**
+   * The columns of a material that an update can write, each named after its column.
+   */
+  public enum Field {
+    MATERIAL_NAME, NUM_REQUIRED, COST
+  }
+
   private Integer materialId;
   private Integer projectId;
   private String materialName;
   private Integer numRequired;
   private BigDecimal cost;
+  private Integer version;
+
+  private final Set<Field> dirtyFields = EnumSet.noneOf(Field.class);
 
   public Integer getMaterialId() {
     return materialId;
@@ -37,6 +51,7 @@ public class Material {
   }
 
   public void setMaterialName(String materialName) {
+    markDirty(Field.MATERIAL_NAME, this.materialName, materialName);
     this.materialName = materialName;
   }
 
@@ -45,6 +60,7 @@ public class Material {
   }
 
   public void setNumRequired(Integer numRequired) {
+    markDirty(Field.NUM_REQUIRED, this.numRequired, numRequired);
     this.numRequired = numRequired;
   }
 
@@ -53,9 +69,39 @@ public class Material {
   }
 
   public void setCost(BigDecimal cost) {
+    markDirty(Field.COST, this.cost, cost);
     this.cost = cost;
   }
 
+  public Integer getVersion() {
+    return version;
+  }
+
+  public void setVersion(Integer version) {
+    this.version = version;
+  }
+
+  /**
+   * @return The fields set to a different value since the material was loaded or last saved.
+   */
+  public Set<Field> getDirtyFields() {
+    return Collections.unmodifiableSet(dirtyFields);
+  }
+
+  public boolean isDirty() {
+    return !dirtyFields.isEmpty();
+  }
+
+  public void markClean() {
+    dirtyFields.clear();
+  }
+
+  private void markDirty(Field field, Object oldValue, Object newValue) {
+    if (!Objects.equals(oldValue, newValue)) {
+      dirtyFields.add(field);
+    }
+  }
+
   @Override
   public String toString() {
     return "ID=" + materialId + ", materialName=" + materialName + ", numRequired=" + numRequired
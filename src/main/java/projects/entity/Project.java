@@ -4,20 +4,35 @@
 package projects.entity;
 
 import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.EnumSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Objects;
+import java.util.Set;
 
 /**
  * @author Promineo
  *
  */
 public class Project {
+  /**
+   * The columns of a project that an update can write, each named after its column.
+   */
+  public enum Field {
+    PROJECT_NAME, ESTIMATED_HOURS, ACTUAL_HOURS, DIFFICULTY, NOTES
+  }
+
   private Integer projectId;
   private String projectName;
   private BigDecimal estimatedHours;
   private BigDecimal actualHours;
   private Integer difficulty;
   private String notes;
+  private Integer version;
+
+  /* the fields changed since the project was loaded or saved; final, so rows never map onto it */
+  private final Set<Field> dirtyFields = EnumSet.noneOf(Field.class);
 
   private List<Material> materials = new LinkedList<>();
   private List<Step> steps = new LinkedList<>();
@@ -36,6 +51,7 @@ public class Project {
   }
 
   public void setProjectName(String projectName) {
+    markDirty(Field.PROJECT_NAME, this.projectName, projectName);
     this.projectName = projectName;
   }
 
@@ -44,6 +60,7 @@ public class Project {
   }
 
   public void setEstimatedHours(BigDecimal estimatedHours) {
+    markDirty(Field.ESTIMATED_HOURS, this.estimatedHours, estimatedHours);
     this.estimatedHours = estimatedHours;
   }
 
@@ -52,6 +69,7 @@ public class Project {
   }
 
   public void setActualHours(BigDecimal actualHours) {
+    markDirty(Field.ACTUAL_HOURS, this.actualHours, actualHours);
     this.actualHours = actualHours;
   }
 
@@ -60,6 +78,7 @@ public class Project {
   }
 
   public void setDifficulty(Integer difficulty) {
+    markDirty(Field.DIFFICULTY, this.difficulty, difficulty);
     this.difficulty = difficulty;
   }
 
@@ -68,9 +87,46 @@ public class Project {
   }
 
   public void setNotes(String notes) {
+    markDirty(Field.NOTES, this.notes, notes);
     this.notes = notes;
   }
 
+  /**
+   * @return The version of the row this project was loaded from, which an update or delete must
+   *         still find in the database; null for a project that hasn't been saved.
+   */
+  public Integer getVersion() {
+    return version;
+  }
+
+  public void setVersion(Integer version) {
+    this.version = version;
+  }
+
+  /**
+   * @return The fields set to a different value since the project was loaded or last saved.
+   */
+  public Set<Field> getDirtyFields() {
+    return Collections.unmodifiableSet(dirtyFields);
+  }
+
+  public boolean isDirty() {
+    return !dirtyFields.isEmpty();
+  }
+
+  /**
+   * Forgets the changes, e.g. after they have been written. Doesn't affect the children.
+   */
+  public void markClean() {
+    dirtyFields.clear();
+  }
+
+  private void markDirty(Field field, Object oldValue, Object newValue) {
+    if (!Objects.equals(oldValue, newValue)) {
+      dirtyFields.add(field);
+    }
+  }
+
   public List<Material> getMaterials() {
     return materials;
   }
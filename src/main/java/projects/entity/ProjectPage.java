@@ -0,0 +1,41 @@
+/**
+ * 
+ */
+package projects.entity;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * One page of the project list. To get the following page, pass {@link #getNextPageToken()} back
+ * to the service. The token is null on the last page.
+ * 
+ * @author Promineo
+ *
+ */
+public class ProjectPage {
+  private final List<ProjectSummary> projects;
+  private final String nextPageToken;
+
+  public ProjectPage(List<ProjectSummary> projects, String nextPageToken) {
+    this.projects = projects;
+    this.nextPageToken = nextPageToken;
+  }
+
+  public List<ProjectSummary> getProjects() {
+    return projects;
+  }
+
+  public String getNextPageToken() {
+    return nextPageToken;
+  }
+
+  public boolean hasNextPage() {
+    return Objects.nonNull(nextPageToken);
+  }
+
+  @Override
+  public String toString() {
+    return "projects=" + projects + ", nextPageToken=" + nextPageToken;
+  }
+}
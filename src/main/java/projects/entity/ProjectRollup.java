@@ -0,0 +1,87 @@
+/**
+ * 
+ */
+package projects.entity;
+
+import java.math.BigDecimal;
+
+/**
+ * Precomputed totals for one project: how many materials and steps it has and what its materials
+ * cost (the sum of num_required * cost; a material without a quantity or cost adds nothing),
+ * next to the project's own estimated and actual hours.
+ * 
+ * @author Promineo
+ *
+ */
+public class ProjectRollup {
+  private Integer projectId;
+  private String projectName;
+  private Integer materialCount;
+  private BigDecimal materialCost;
+  private Integer stepCount;
+  private BigDecimal estimatedHours;
+  private BigDecimal actualHours;
+
+  public Integer getProjectId() {
+    return projectId;
+  }
+
+  public void setProjectId(Integer projectId) {
+    this.projectId = projectId;
+  }
+
+  public String getProjectName() {
+    return projectName;
+  }
+
+  public void setProjectName(String projectName) {
+    this.projectName = projectName;
+  }
+
+  public Integer getMaterialCount() {
+    return materialCount;
+  }
+
+  public void setMaterialCount(Integer materialCount) {
+    this.materialCount = materialCount;
+  }
+
+  public BigDecimal getMaterialCost() {
+    return materialCost;
+  }
+
+  public void setMaterialCost(BigDecimal materialCost) {
+    this.materialCost = materialCost;
+  }
+
+  public Integer getStepCount() {
+    return stepCount;
+  }
+
+  public void setStepCount(Integer stepCount) {
+    this.stepCount = stepCount;
+  }
+
+  public BigDecimal getEstimatedHours() {
+    return estimatedHours;
+  }
+
+  public void setEstimatedHours(BigDecimal estimatedHours) {
+    this.estimatedHours = estimatedHours;
+  }
+
+  public BigDecimal getActualHours() {
+    return actualHours;
+  }
+
+  public void setActualHours(BigDecimal actualHours) {
+    this.actualHours = actualHours;
+  }
+
+  @Override
+  public String toString() {
+    return "ID=" + projectId + ", projectName=" + projectName + ", materials=" + materialCount
+        + ", materialCost=" + materialCost + ", steps=" + stepCount + ", estimatedHours="
+        + estimatedHours + ", actualHours=" + actualHours;
+  }
+}
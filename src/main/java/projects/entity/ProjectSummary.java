@@ -0,0 +1,37 @@
+/**
+ * 
+ */
+package projects.entity;
+
+/**
+ * The columns of a project needed to list it: just the ID and name, without the notes or any of
+ * the child rows.
+ * 
+ * @author Promineo
+ *
+ */
+public class ProjectSummary {
+  private Integer projectId;
+  private String projectName;
+
+  public Integer getProjectId() {
+    return projectId;
+  }
+
+  public void setProjectId(Integer projectId) {
+    this.projectId = projectId;
+  }
+
+  public String getProjectName() {
+    return projectName;
+  }
+
+  public void setProjectName(String projectName) {
+    this.projectName = projectName;
+  }
+
+  @Override
+  public String toString() {
+    return "ID=" + projectId + ", projectName=" + projectName;
+  }
+}
@@ -3,15 +3,31 @@
  */
 package projects.entity;
 
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Objects;
+import java.util.Set;
+
 /**
  * @author Promineo
  *
  */
 public class Step {
+  /**
+   * The columns of a step that an update can write, each named after its column. The order is
+   * not one of them; it is changed with the step operations of the DAO.
+   */
+  public enum Field {
+    STEP_TEXT
+  }
+
   private Integer stepId;
   private Integer projectId;
   private String stepText;
   private Integer stepOrder;
+  private Integer version;
+
+  private final Set<Field> dirtyFields = EnumSet.noneOf(Field.class);
 
   public Integer getStepId() {
     return stepId;
@@ -34,6 +50,7 @@ public class Step {
   }
 
   public void setStepText(String stepText) {
+    markDirty(Field.STEP_TEXT, this.stepText, stepText);
     this.stepText = stepText;
   }
 
@@ -45,6 +62,35 @@ public class Step {
     this.stepOrder = stepOrder;
   }
 
+  public Integer getVersion() {
+    return version;
+  }
+
+  public void setVersion(Integer version) {
+    this.version = version;
+  }
+
+  /**
+   * @return The fields set to a different value since the step was loaded or last saved.
+   */
+  public Set<Field> getDirtyFields() {
+    return Collections.unmodifiableSet(dirtyFields);
+  }
+
+  public boolean isDirty() {
+    return !dirtyFields.isEmpty();
+  }
+
+  public void markClean() {
+    dirtyFields.clear();
+  }
+
+  private void markDirty(Field field, Object oldValue, Object newValue) {
+    if (!Objects.equals(oldValue, newValue)) {
+      dirtyFields.add(field);
+    }
+  }
+
   @Override
   public String toString() {
     return "ID=" + stepId + ", stepText=" + stepText;
@@ -0,0 +1,24 @@
+package projects.exception;
+
+/**
+ * Thrown when JSON input is malformed or doesn't have the expected shape.
+ */
+@SuppressWarnings("serial")
+public class JsonException extends RuntimeException {
+
+  /**
+   * @param message
+   */
+  public JsonException(String message) {
+    super(message);
+  }
+
+  /**
+   * @param message
+   * @param cause
+   */
+  public JsonException(String message, Throwable cause) {
+    super(message, cause);
+  }
+
+}
@@ -0,0 +1,32 @@
+package projects.exception;
+
+import java.util.List;
+import projects.entity.Project;
+
+/**
+ * Thrown when a bulk insert fails after some of its batches were committed. The projects of those
+ * batches are in the database, with their generated ids; the failed batch and the ones after it
+ * were not written.
+ */
+@SuppressWarnings("serial")
+public class PartialInsertException extends DbException {
+  private final transient List<Project> inserted;
+
+  /**
+   * @param message
+   * @param cause
+   * @param inserted The projects that were committed, in the order they were given.
+   */
+  public PartialInsertException(String message, Throwable cause, List<Project> inserted) {
+    super(message, cause);
+    this.inserted = inserted;
+  }
+
+  /**
+   * @return The projects that were committed before the failure, possibly none.
+   */
+  public List<Project> getInserted() {
+    return inserted;
+  }
+
+}
@@ -0,0 +1,18 @@
+package projects.exception;
+
+/**
+ * Thrown when an update or delete finds that the row was changed or deleted by someone else
+ * since it was read: its version in the database no longer matches the version that was read.
+ * Reload the row and apply the change again.
+ */
+@SuppressWarnings("serial")
+public class StaleDataException extends DbException {
+
+  /**
+   * @param message
+   */
+  public StaleDataException(String message) {
+    super(message);
+  }
+
+}
@@ -0,0 +1,31 @@
+package projects.jfr;
+
+import com.mysql.cj.jdbc.JdbcConnection;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Looks up the server-side ID of a connection so that events can be matched with SHOW
+ * PROCESSLIST, the slow query log and performance_schema. This is read from the driver's session
+ * and costs no round trip.
+ */
+public final class ConnectionIds {
+  private ConnectionIds() {
+  }
+
+  /**
+   * @param conn A MySQL connection, or a pooled connection wrapping one.
+   * @return The MySQL server thread ID, or -1 if the connection is not a MySQL connection.
+   */
+  public static long of(Connection conn) {
+    try {
+      if (conn.isWrapperFor(JdbcConnection.class)) {
+        return conn.unwrap(JdbcConnection.class).getSession().getThreadId();
+      }
+    } catch (SQLException e) {
+      // fall through; the ID is only informational
+    }
+
+    return -1;
+  }
+}
@@ -0,0 +1,50 @@
+package projects.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * One public DAO call, from the moment the connection is requested until the method returns. The
+ * queries and transaction steps it ran are recorded as {@link QueryEvent}s and
+ * {@link TransactionEvent}s on the same thread within its duration.
+ */
+@Name("projects.DaoOperation")
+@Label("DAO Operation")
+@Category({"Projects", "Database"})
+@Description("A ProjectDao method call")
+@Enabled(false)
+@StackTrace(false)
+public class DaoOperationEvent extends Event {
+  @Label("Operation")
+  private String operation;
+
+  @Label("Rows Read")
+  private long rowsRead;
+
+  @Label("Rows Written")
+  private long rowsWritten;
+
+  @Label("Failed")
+  private boolean failed;
+
+  public void setOperation(String operation) {
+    this.operation = operation;
+  }
+
+  public void setRowsRead(long rowsRead) {
+    this.rowsRead = rowsRead;
+  }
+
+  public void setRowsWritten(long rowsWritten) {
+    this.rowsWritten = rowsWritten;
+  }
+
+  public void setFailed(boolean failed) {
+    this.failed = failed;
+  }
+}
@@ -0,0 +1,63 @@
+package projects.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * One statement execution. For a query the event lasts until the driver has the result: until
+ * the execute call returns for a buffered result set, or until the first row arrives for a
+ * streamed one, so the time the caller spends consuming the rows is not included. The row count
+ * is that of the rows read before the result set was closed.
+ */
+@Name("projects.Query")
+@Label("SQL Statement")
+@Category({"Projects", "Database"})
+@Description("Execution of a prepared statement on a pooled connection")
+@Enabled(false)
+@StackTrace(false)
+public class QueryEvent extends Event {
+  @Label("SQL")
+  @Description("The statement text with IN lists collapsed, identical for every call of the same "
+      + "DAO query")
+  private String sql;
+
+  @Label("Kind")
+  @Description("query, update or batch")
+  private String kind;
+
+  @Label("Rows")
+  @Description("Rows read for a query, rows changed for an update, parameter sets for a batch")
+  private long rows;
+
+  @Label("Connection ID")
+  @Description("The MySQL server thread ID, as in SHOW PROCESSLIST and performance_schema")
+  private long connectionId;
+
+  @Label("Failed")
+  private boolean failed;
+
+  public void setSql(String sql) {
+    this.sql = sql;
+  }
+
+  public void setKind(String kind) {
+    this.kind = kind;
+  }
+
+  public void setRows(long rows) {
+    this.rows = rows;
+  }
+
+  public void setConnectionId(long connectionId) {
+    this.connectionId = connectionId;
+  }
+
+  public void setFailed(boolean failed) {
+    this.failed = failed;
+  }
+}
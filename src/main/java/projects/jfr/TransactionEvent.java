@@ -0,0 +1,61 @@
+package projects.jfr;
+
+import java.sql.Connection;
+import java.util.Objects;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A transaction boundary: turning auto-commit off, a commit or a rollback. The duration is the
+ * round trip to the server, so a slow commit (waiting on the redo log flush) shows up here.
+ */
+@Name("projects.Transaction")
+@Label("Transaction")
+@Category({"Projects", "Database"})
+@Description("A transaction start, commit or rollback issued by DaoBase")
+@Enabled(false)
+@StackTrace(false)
+public class TransactionEvent extends Event {
+  @Label("Action")
+  private String action;
+
+  @Label("Connection ID")
+  @Description("The MySQL server thread ID, as in SHOW PROCESSLIST and performance_schema")
+  private long connectionId;
+
+  /**
+   * Begins an event if the event type is enabled in the running recording.
+   *
+   * @param action "start", "commit", "rollback", "start read only" or "end read only".
+   * @param conn The connection the transaction runs on.
+   * @return The begun event, or null if it is disabled.
+   */
+  public static TransactionEvent begin(String action, Connection conn) {
+    TransactionEvent event = new TransactionEvent();
+
+    if (!event.isEnabled()) {
+      return null;
+    }
+
+    event.action = action;
+    event.connectionId = ConnectionIds.of(conn);
+    event.begin();
+
+    return event;
+  }
+
+  /**
+   * Ends and records an event returned by {@link #begin(String, Connection)}; does nothing for
+   * null.
+   */
+  public static void end(TransactionEvent event) {
+    if (Objects.nonNull(event)) {
+      event.commit();
+    }
+  }
+}
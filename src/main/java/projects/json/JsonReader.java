@@ -0,0 +1,517 @@
+package projects.json;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Objects;
+import projects.exception.JsonException;
+
+/**
+ * A pull parser for JSON text. Values are read one token at a time in document order, so an
+ * arbitrarily large document is read with a small, fixed buffer. The API follows the usual
+ * streaming style:
+ *
+ * <pre>
+ * reader.beginObject();
+ * while (reader.hasNext()) {
+ *   switch (reader.nextName()) {
+ *     case "projectName":
+ *       project.setProjectName(reader.nextString());
+ *       break;
+ *     default:
+ *       reader.skipValue();
+ *   }
+ * }
+ * reader.endObject();
+ * </pre>
+ *
+ * Reading a value of the wrong type, or malformed input, throws a {@link JsonException} that
+ * names the character offset. {@code null} is accepted wherever a string or number is read and
+ * returned as null.
+ */
+public class JsonReader implements AutoCloseable {
+  private static final int BUFFER_SIZE = 8192;
+
+  /* Container states kept on the stack. */
+  private static final int EMPTY_ARRAY = 1;
+  private static final int NONEMPTY_ARRAY = 2;
+  private static final int EMPTY_OBJECT = 3;
+  private static final int DANGLING_NAME = 4;
+  private static final int NONEMPTY_OBJECT = 5;
+  private static final int EMPTY_DOCUMENT = 6;
+  private static final int NONEMPTY_DOCUMENT = 7;
+
+  private final Reader in;
+  private final char[] buffer = new char[BUFFER_SIZE];
+  private int pos;
+  private int limit;
+  private long consumed;
+
+  private int[] stack = new int[32];
+  private int depth = 1;
+
+  /* The token found by peek() but not consumed yet, or null. */
+  private JsonToken peeked;
+
+  /* The text of the last NAME, STRING, NUMBER or BOOLEAN token. */
+  private final StringBuilder text = new StringBuilder();
+
+  public JsonReader(Reader in) {
+    this.in = in;
+    stack[0] = EMPTY_DOCUMENT;
+  }
+
+  public static JsonReader of(String json) {
+    return new JsonReader(new StringReader(json));
+  }
+
+  /**
+   * @return The type of the next token without consuming it.
+   */
+  public JsonToken peek() {
+    if (Objects.isNull(peeked)) {
+      peeked = readToken();
+    }
+
+    return peeked;
+  }
+
+  public void beginObject() {
+    expect(JsonToken.BEGIN_OBJECT);
+    push(EMPTY_OBJECT);
+  }
+
+  public void endObject() {
+    expect(JsonToken.END_OBJECT);
+    depth--;
+  }
+
+  public void beginArray() {
+    expect(JsonToken.BEGIN_ARRAY);
+    push(EMPTY_ARRAY);
+  }
+
+  public void endArray() {
+    expect(JsonToken.END_ARRAY);
+    depth--;
+  }
+
+  /**
+   * @return True if the current array or object has another element.
+   */
+  public boolean hasNext() {
+    JsonToken token = peek();
+    return token != JsonToken.END_OBJECT && token != JsonToken.END_ARRAY
+        && token != JsonToken.END_DOCUMENT;
+  }
+
+  public String nextName() {
+    expect(JsonToken.NAME);
+    return takeText();
+  }
+
+  /**
+   * @return The next string, or the text of the next number, or null for a JSON null.
+   */
+  public String nextString() {
+    JsonToken token = peek();
+
+    if (token == JsonToken.NULL) {
+      peeked = null;
+      return null;
+    }
+
+    if (token != JsonToken.STRING && token != JsonToken.NUMBER) {
+      throw error("Expected a string but found " + token);
+    }
+
+    peeked = null;
+    return takeText();
+  }
+
+  /**
+   * @return The next number, or null for a JSON null. A string holding a number is accepted too.
+   */
+  public BigDecimal nextBigDecimal() {
+    String number = nextString();
+
+    if (Objects.isNull(number)) {
+      return null;
+    }
+
+    try {
+      return new BigDecimal(number);
+    } catch (NumberFormatException e) {
+      throw error("Expected a number but found \"" + number + "\"");
+    }
+  }
+
+  /**
+   * @return The next integer, or null for a JSON null.
+   */
+  public Integer nextInteger() {
+    BigDecimal value = nextBigDecimal();
+
+    if (Objects.isNull(value)) {
+      return null;
+    }
+
+    try {
+      return value.intValueExact();
+    } catch (ArithmeticException e) {
+      throw error("Expected an integer but found " + value);
+    }
+  }
+
+  public Boolean nextBoolean() {
+    JsonToken token = peek();
+
+    if (token == JsonToken.NULL) {
+      peeked = null;
+      return null;
+    }
+
+    expect(JsonToken.BOOLEAN);
+    return Boolean.valueOf(takeText());
+  }
+
+  public void nextNull() {
+    expect(JsonToken.NULL);
+  }
+
+  /**
+   * Skips the next value, including everything nested in it.
+   */
+  public void skipValue() {
+    int skipDepth = 0;
+
+    do {
+      switch (peek()) {
+        case BEGIN_ARRAY:
+          beginArray();
+          skipDepth++;
+          break;
+
+        case BEGIN_OBJECT:
+          beginObject();
+          skipDepth++;
+          break;
+
+        case END_ARRAY:
+          endArray();
+          skipDepth--;
+          break;
+
+        case END_OBJECT:
+          endObject();
+          skipDepth--;
+          break;
+
+        case NAME:
+          nextName();
+          break;
+
+        case END_DOCUMENT:
+          throw error("Unexpected end of input");
+
+        default:
+          peeked = null;
+          takeText();
+      }
+    } while (skipDepth > 0);
+  }
+
+  @Override
+  public void close() throws IOException {
+    in.close();
+  }
+
+  private String takeText() {
+    return text.toString();
+  }
+
+  private void expect(JsonToken expected) {
+    JsonToken token = peek();
+
+    if (token != expected) {
+      throw error("Expected " + expected + " but found " + token);
+    }
+
+    peeked = null;
+  }
+
+  private void push(int state) {
+    if (depth == stack.length) {
+      stack = Arrays.copyOf(stack, depth * 2);
+    }
+
+    stack[depth++] = state;
+  }
+
+  private JsonToken readToken() {
+    int state = stack[depth - 1];
+
+    switch (state) {
+      case EMPTY_ARRAY: {
+        stack[depth - 1] = NONEMPTY_ARRAY;
+        int c = nextNonWhitespace();
+
+        if (c == ']') {
+          return JsonToken.END_ARRAY;
+        }
+
+        unread(c);
+        break;
+      }
+
+      case NONEMPTY_ARRAY: {
+        int c = nextNonWhitespace();
+
+        if (c == ']') {
+          return JsonToken.END_ARRAY;
+        }
+
+        if (c != ',') {
+          throw error("Expected ',' or ']'");
+        }
+        break;
+      }
+
+      case EMPTY_OBJECT:
+      case NONEMPTY_OBJECT: {
+        stack[depth - 1] = DANGLING_NAME;
+        int c = nextNonWhitespace();
+
+        if (c == '}') {
+          return JsonToken.END_OBJECT;
+        }
+
+        if (state == NONEMPTY_OBJECT) {
+          if (c != ',') {
+            throw error("Expected ',' or '}'");
+          }
+
+          c = nextNonWhitespace();
+        }
+
+        if (c != '"') {
+          throw error("Expected a name");
+        }
+
+        readString();
+        return JsonToken.NAME;
+      }
+
+      case DANGLING_NAME:
+        stack[depth - 1] = NONEMPTY_OBJECT;
+
+        if (nextNonWhitespace() != ':') {
+          throw error("Expected ':'");
+        }
+        break;
+
+      case EMPTY_DOCUMENT:
+        stack[depth - 1] = NONEMPTY_DOCUMENT;
+        break;
+
+      case NONEMPTY_DOCUMENT:
+        if (nextNonWhitespace() != -1) {
+          throw error("Expected end of input");
+        }
+
+        return JsonToken.END_DOCUMENT;
+
+      default:
+        throw new IllegalStateException("Corrupt reader state " + state);
+    }
+
+    return readValue();
+  }
+
+  private JsonToken readValue() {
+    int c = nextNonWhitespace();
+
+    switch (c) {
+      case '{':
+        return JsonToken.BEGIN_OBJECT;
+
+      case '[':
+        return JsonToken.BEGIN_ARRAY;
+
+      case '"':
+        readString();
+        return JsonToken.STRING;
+
+      case 't':
+        readLiteral("true", c);
+        return JsonToken.BOOLEAN;
+
+      case 'f':
+        readLiteral("false", c);
+        return JsonToken.BOOLEAN;
+
+      case 'n':
+        readLiteral("null", c);
+        return JsonToken.NULL;
+
+      case -1:
+        throw error("Unexpected end of input");
+
+      default:
+        if (c == '-' || (c >= '0' && c <= '9')) {
+          readNumber(c);
+          return JsonToken.NUMBER;
+        }
+
+        throw error("Unexpected character '" + (char) c + "'");
+    }
+  }
+
+  private void readString() {
+    text.setLength(0);
+
+    while (true) {
+      int c = nextChar();
+
+      if (c == -1) {
+        throw error("Unterminated string");
+      }
+
+      if (c == '"') {
+        return;
+      }
+
+      if (c == '\\') {
+        text.append(readEscape());
+      } else {
+        text.append((char) c);
+      }
+    }
+  }
+
+  private char readEscape() {
+    int c = nextChar();
+
+    switch (c) {
+      case '"':
+      case '\\':
+      case '/':
+        return (char) c;
+      case 'b':
+        return '\b';
+      case 'f':
+        return '\f';
+      case 'n':
+        return '\n';
+      case 'r':
+        return '\r';
+      case 't':
+        return '\t';
+      case 'u':
+        int value = 0;
+
+        for (int index = 0; index < 4; index++) {
+          int digit = Character.digit(nextChar(), 16);
+
+          if (digit < 0) {
+            throw error("Invalid \\u escape");
+          }
+
+          value = (value << 4) | digit;
+        }
+
+        return (char) value;
+      default:
+        throw error("Invalid escape");
+    }
+  }
+
+  private void readNumber(int first) {
+    text.setLength(0);
+    text.append((char) first);
+
+    while (true) {
+      int c = peekChar();
+
+      if ((c >= '0' && c <= '9') || c == '.' || c == 'e' || c == 'E' || c == '+' || c == '-') {
+        text.append((char) c);
+        pos++;
+        consumed++;
+      } else {
+        return;
+      }
+    }
+  }
+
+  private void readLiteral(String literal, int first) {
+    text.setLength(0);
+    text.append((char) first);
+
+    for (int index = 1; index < literal.length(); index++) {
+      if (nextChar() != literal.charAt(index)) {
+        throw error("Expected " + literal);
+      }
+
+      text.append(literal.charAt(index));
+    }
+  }
+
+  private int nextNonWhitespace() {
+    while (true) {
+      int c = nextChar();
+
+      if (c != ' ' && c != '\t' && c != '\n' && c != '\r') {
+        return c;
+      }
+    }
+  }
+
+  private void unread(int c) {
+    // only ever called right after nextChar() returned c, so c is still in the buffer
+    if (c != -1) {
+      pos--;
+      consumed--;
+    }
+  }
+
+  private int nextChar() {
+    int c = peekChar();
+
+    if (c != -1) {
+      pos++;
+      consumed++;
+    }
+
+    return c;
+  }
+
+  private int peekChar() {
+    if (pos == limit && !fill()) {
+      return -1;
+    }
+
+    return buffer[pos];
+  }
+
+  private boolean fill() {
+    try {
+      limit = in.read(buffer, 0, buffer.length);
+      pos = 0;
+
+      if (limit <= 0) {
+        limit = 0;
+        return false;
+      }
+
+      return true;
+    } catch (IOException e) {
+      throw new JsonException("Error reading JSON input", e);
+    }
+  }
+
+  private JsonException error(String message) {
+    return new JsonException(message + " at offset " + consumed);
+  }
+}
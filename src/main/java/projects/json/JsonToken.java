@@ -0,0 +1,9 @@
+package projects.json;
+
+/**
+ * The kinds of token returned by {@link JsonReader#peek()}.
+ */
+public enum JsonToken {
+  BEGIN_ARRAY, END_ARRAY, BEGIN_OBJECT, END_OBJECT, NAME, STRING, NUMBER, BOOLEAN, NULL,
+  END_DOCUMENT
+}
@@ -0,0 +1,235 @@
+package projects.json;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Objects;
+import projects.exception.JsonException;
+
+/**
+ * Writes compact JSON text one token at a time, the counterpart of {@link JsonReader}. Nothing is
+ * buffered beyond the underlying writer, so documents of any size can be written.
+ *
+ * <pre>
+ * writer.beginObject();
+ * writer.name("projectName").value(project.getProjectName());
+ * writer.endObject();
+ * </pre>
+ *
+ * A null value is written as {@code null}. Calls in an order that can't produce valid JSON, such
+ * as a value without a name inside an object, throw a {@link JsonException}.
+ */
+public class JsonWriter implements AutoCloseable {
+  /* Container states kept on the stack. */
+  private static final int EMPTY_ARRAY = 1;
+  private static final int NONEMPTY_ARRAY = 2;
+  private static final int EMPTY_OBJECT = 3;
+  private static final int DANGLING_NAME = 4;
+  private static final int NONEMPTY_OBJECT = 5;
+  private static final int EMPTY_DOCUMENT = 6;
+  private static final int NONEMPTY_DOCUMENT = 7;
+
+  private static final String[] CONTROL_ESCAPES = new String[0x20];
+
+  static {
+    for (int c = 0; c < CONTROL_ESCAPES.length; c++) {
+      CONTROL_ESCAPES[c] = String.format("\\u%04x", c);
+    }
+
+    CONTROL_ESCAPES['\b'] = "\\b";
+    CONTROL_ESCAPES['\t'] = "\\t";
+    CONTROL_ESCAPES['\n'] = "\\n";
+    CONTROL_ESCAPES['\f'] = "\\f";
+    CONTROL_ESCAPES['\r'] = "\\r";
+  }
+
+  private final Writer out;
+  private int[] stack = new int[32];
+  private int depth = 1;
+
+  public JsonWriter(Writer out) {
+    this.out = out;
+    stack[0] = EMPTY_DOCUMENT;
+  }
+
+  public JsonWriter beginObject() throws IOException {
+    beforeValue();
+    push(EMPTY_OBJECT);
+    out.write('{');
+    return this;
+  }
+
+  public JsonWriter endObject() throws IOException {
+    return close(EMPTY_OBJECT, NONEMPTY_OBJECT, '}');
+  }
+
+  public JsonWriter beginArray() throws IOException {
+    beforeValue();
+    push(EMPTY_ARRAY);
+    out.write('[');
+    return this;
+  }
+
+  public JsonWriter endArray() throws IOException {
+    return close(EMPTY_ARRAY, NONEMPTY_ARRAY, ']');
+  }
+
+  public JsonWriter name(String name) throws IOException {
+    int state = stack[depth - 1];
+
+    if (state == NONEMPTY_OBJECT) {
+      out.write(',');
+    } else if (state != EMPTY_OBJECT) {
+      throw new JsonException("A name can only be written inside an object");
+    }
+
+    stack[depth - 1] = DANGLING_NAME;
+    writeString(name);
+    out.write(':');
+    return this;
+  }
+
+  public JsonWriter value(String value) throws IOException {
+    if (Objects.isNull(value)) {
+      return nullValue();
+    }
+
+    beforeValue();
+    writeString(value);
+    return this;
+  }
+
+  public JsonWriter value(Integer value) throws IOException {
+    if (Objects.isNull(value)) {
+      return nullValue();
+    }
+
+    beforeValue();
+    out.write(value.toString());
+    return this;
+  }
+
+  public JsonWriter value(BigDecimal value) throws IOException {
+    if (Objects.isNull(value)) {
+      return nullValue();
+    }
+
+    beforeValue();
+    out.write(value.toPlainString());
+    return this;
+  }
+
+  public JsonWriter value(Boolean value) throws IOException {
+    if (Objects.isNull(value)) {
+      return nullValue();
+    }
+
+    beforeValue();
+    out.write(value ? "true" : "false");
+    return this;
+  }
+
+  public JsonWriter nullValue() throws IOException {
+    beforeValue();
+    out.write("null");
+    return this;
+  }
+
+  /**
+   * Ends the current top-level value with a newline, so the next value starts a new document.
+   * This is how newline-delimited JSON is written.
+   */
+  public void newline() throws IOException {
+    if (depth != 1) {
+      throw new JsonException("A newline can only be written between documents");
+    }
+
+    out.write('\n');
+    stack[0] = EMPTY_DOCUMENT;
+  }
+
+  public void flush() throws IOException {
+    out.flush();
+  }
+
+  @Override
+  public void close() throws IOException {
+    out.close();
+  }
+
+  private JsonWriter close(int empty, int nonEmpty, char bracket) throws IOException {
+    int state = stack[depth - 1];
+
+    if (state != empty && state != nonEmpty) {
+      throw new JsonException("Nesting problem: '" + bracket + "' doesn't close the open value");
+    }
+
+    depth--;
+    out.write(bracket);
+    return this;
+  }
+
+  private void push(int state) {
+    if (depth == stack.length) {
+      stack = Arrays.copyOf(stack, depth * 2);
+    }
+
+    stack[depth++] = state;
+  }
+
+  /*
+   * Writes the separator the next value needs and records that the container is not empty.
+   */
+  private void beforeValue() throws IOException {
+    switch (stack[depth - 1]) {
+      case EMPTY_DOCUMENT:
+        stack[depth - 1] = NONEMPTY_DOCUMENT;
+        break;
+      case EMPTY_ARRAY:
+        stack[depth - 1] = NONEMPTY_ARRAY;
+        break;
+      case NONEMPTY_ARRAY:
+        out.write(',');
+        break;
+      case DANGLING_NAME:
+        stack[depth - 1] = NONEMPTY_OBJECT;
+        break;
+      case NONEMPTY_DOCUMENT:
+        throw new JsonException("Only one top-level value can be written per document");
+      default:
+        throw new JsonException("A value inside an object needs a name first");
+    }
+  }
+
+  private void writeString(String value) throws IOException {
+    out.write('"');
+
+    int start = 0;
+    int length = value.length();
+
+    for (int index = 0; index < length; index++) {
+      char c = value.charAt(index);
+      String escape;
+
+      if (c < 0x20) {
+        escape = CONTROL_ESCAPES[c];
+      } else if (c == '"') {
+        escape = "\\\"";
+      } else if (c == '\\') {
+        escape = "\\\\";
+      } else if (c == '\u2028' || c == '\u2029') {
+        escape = c == '\u2028' ? "\\u2028" : "\\u2029";
+      } else {
+        continue;
+      }
+
+      out.write(value, start, index - start);
+      out.write(escape);
+      start = index + 1;
+    }
+
+    out.write(value, start, length - start);
+    out.write('"');
+  }
+}
@@ -0,0 +1,267 @@
+package projects.json;
+
+import java.io.IOException;
+import java.util.Objects;
+import projects.entity.Category;
+import projects.entity.Material;
+import projects.entity.Project;
+import projects.entity.Step;
+
+/**
+ * Maps a project aggregate to and from its JSON form, one object per project with nested
+ * {@code materials}, {@code steps} and {@code categories} arrays. Property names are the entity
+ * field names:
+ *
+ * <pre>
+ * {"projectId": 7, "projectName": "Bookshelf", "estimatedHours": 12.50, "actualHours": null,
+ *  "difficulty": 3, "notes": "...", "version": 0,
+ *  "materials": [{"materialId": 1, "materialName": "Pine board", "numRequired": 4, "cost": 9.99,
+ *                 "version": 0}],
+ *  "steps": [{"stepId": 3, "stepText": "Cut the boards", "stepOrder": 1, "version": 0}],
+ *  "categories": [{"categoryId": 2, "categoryName": "Woodworking"}]}
+ * </pre>
+ *
+ * Unknown properties are skipped when reading, and any property may be missing. Writing always
+ * includes every property, with null for missing values.
+ */
+public final class ProjectJson {
+  private ProjectJson() {
+  }
+
+  /**
+   * Reads one project object, including its children.
+   */
+  public static Project readProject(JsonReader reader) {
+    Project project = new Project();
+
+    reader.beginObject();
+
+    while (reader.hasNext()) {
+      switch (reader.nextName()) {
+        case "projectId":
+          project.setProjectId(reader.nextInteger());
+          break;
+        case "projectName":
+          project.setProjectName(reader.nextString());
+          break;
+        case "estimatedHours":
+          project.setEstimatedHours(reader.nextBigDecimal());
+          break;
+        case "actualHours":
+          project.setActualHours(reader.nextBigDecimal());
+          break;
+        case "difficulty":
+          project.setDifficulty(reader.nextInteger());
+          break;
+        case "notes":
+          project.setNotes(reader.nextString());
+          break;
+        case "version":
+          project.setVersion(reader.nextInteger());
+          break;
+        case "materials":
+          if (nextIsArray(reader)) {
+            while (reader.hasNext()) {
+              project.getMaterials().add(readMaterial(reader));
+            }
+            reader.endArray();
+          }
+          break;
+        case "steps":
+          if (nextIsArray(reader)) {
+            while (reader.hasNext()) {
+              project.getSteps().add(readStep(reader));
+            }
+            reader.endArray();
+          }
+          break;
+        case "categories":
+          if (nextIsArray(reader)) {
+            while (reader.hasNext()) {
+              project.getCategories().add(readCategory(reader));
+            }
+            reader.endArray();
+          }
+          break;
+        default:
+          reader.skipValue();
+      }
+    }
+
+    reader.endObject();
+
+    for (Material material : project.getMaterials()) {
+      if (Objects.isNull(material.getProjectId())) {
+        material.setProjectId(project.getProjectId());
+      }
+    }
+
+    for (Step step : project.getSteps()) {
+      if (Objects.isNull(step.getProjectId())) {
+        step.setProjectId(project.getProjectId());
+      }
+    }
+
+    return project;
+  }
+
+  public static Material readMaterial(JsonReader reader) {
+    Material material = new Material();
+
+    reader.beginObject();
+
+    while (reader.hasNext()) {
+      switch (reader.nextName()) {
+        case "materialId":
+          material.setMaterialId(reader.nextInteger());
+          break;
+        case "projectId":
+          material.setProjectId(reader.nextInteger());
+          break;
+        case "materialName":
+          material.setMaterialName(reader.nextString());
+          break;
+        case "numRequired":
+          material.setNumRequired(reader.nextInteger());
+          break;
+        case "cost":
+          material.setCost(reader.nextBigDecimal());
+          break;
+        case "version":
+          material.setVersion(reader.nextInteger());
+          break;
+        default:
+          reader.skipValue();
+      }
+    }
+
+    reader.endObject();
+    return material;
+  }
+
+  public static Step readStep(JsonReader reader) {
+    Step step = new Step();
+
+    reader.beginObject();
+
+    while (reader.hasNext()) {
+      switch (reader.nextName()) {
+        case "stepId":
+          step.setStepId(reader.nextInteger());
+          break;
+        case "projectId":
+          step.setProjectId(reader.nextInteger());
+          break;
+        case "stepText":
+          step.setStepText(reader.nextString());
+          break;
+        case "stepOrder":
+          step.setStepOrder(reader.nextInteger());
+          break;
+        case "version":
+          step.setVersion(reader.nextInteger());
+          break;
+        default:
+          reader.skipValue();
+      }
+    }
+
+    reader.endObject();
+    return step;
+  }
+
+  public static Category readCategory(JsonReader reader) {
+    Category category = new Category();
+
+    reader.beginObject();
+
+    while (reader.hasNext()) {
+      switch (reader.nextName()) {
+        case "categoryId":
+          category.setCategoryId(reader.nextInteger());
+          break;
+        case "categoryName":
+          category.setCategoryName(reader.nextString());
+          break;
+        default:
+          reader.skipValue();
+      }
+    }
+
+    reader.endObject();
+    return category;
+  }
+
+  /**
+   * Writes one project object, including its children.
+   */
+  public static void writeProject(JsonWriter writer, Project project) throws IOException {
+    writer.beginObject();
+    writer.name("projectId").value(project.getProjectId());
+    writer.name("projectName").value(project.getProjectName());
+    writer.name("estimatedHours").value(project.getEstimatedHours());
+    writer.name("actualHours").value(project.getActualHours());
+    writer.name("difficulty").value(project.getDifficulty());
+    writer.name("notes").value(project.getNotes());
+    writer.name("version").value(project.getVersion());
+
+    writer.name("materials").beginArray();
+    for (Material material : project.getMaterials()) {
+      writeMaterial(writer, material);
+    }
+    writer.endArray();
+
+    writer.name("steps").beginArray();
+    for (Step step : project.getSteps()) {
+      writeStep(writer, step);
+    }
+    writer.endArray();
+
+    writer.name("categories").beginArray();
+    for (Category category : project.getCategories()) {
+      writeCategory(writer, category);
+    }
+    writer.endArray();
+
+    writer.endObject();
+  }
+
+  public static void writeMaterial(JsonWriter writer, Material material) throws IOException {
+    writer.beginObject();
+    writer.name("materialId").value(material.getMaterialId());
+    writer.name("materialName").value(material.getMaterialName());
+    writer.name("numRequired").value(material.getNumRequired());
+    writer.name("cost").value(material.getCost());
+    writer.name("version").value(material.getVersion());
+    writer.endObject();
+  }
+
+  public static void writeStep(JsonWriter writer, Step step) throws IOException {
+    writer.beginObject();
+    writer.name("stepId").value(step.getStepId());
+    writer.name("stepText").value(step.getStepText());
+    writer.name("stepOrder").value(step.getStepOrder());
+    writer.name("version").value(step.getVersion());
+    writer.endObject();
+  }
+
+  public static void writeCategory(JsonWriter writer, Category category) throws IOException {
+    writer.beginObject();
+    writer.name("categoryId").value(category.getCategoryId());
+    writer.name("categoryName").value(category.getCategoryName());
+    writer.endObject();
+  }
+
+  /*
+   * Starts reading an array and returns true, or consumes a null and returns false.
+   */
+  private static boolean nextIsArray(JsonReader reader) {
+    if (reader.peek() == JsonToken.NULL) {
+      reader.nextNull();
+      return false;
+    }
+
+    reader.beginArray();
+    return true;
+  }
+}
@@ -0,0 +1,118 @@
+package projects.metrics;
+
+import java.util.Objects;
+import projects.jfr.DaoOperationEvent;
+
+/**
+ * Times one DAO operation and counts the rows it reads and writes. Open it in the same
+ * try-with-resources block as the connection so the time spent waiting for the connection is
+ * included:
+ *
+ * <pre>
+ * try (DaoOperation op = operation("fetchProjectById");
+ *     Connection conn = DbConnection.getConnection()) {
+ *   ...
+ *   op.rowsRead(rows);
+ *   op.success();
+ * }
+ * </pre>
+ *
+ * An operation closed without {@link #success()} is recorded as failed. When metrics are disabled
+ * and no flight recording has the operation event enabled, {@link #start(String)} returns a shared
+ * instance that does nothing and never reads the clock.
+ *
+ * An operation belongs to the thread that started it and is not thread-safe.
+ */
+public class DaoOperation implements AutoCloseable {
+  private static final DaoOperation DISABLED = new DaoOperation(null, null, null, 0);
+
+  private final MetricsRegistry registry;
+  private final DaoOperationEvent event;
+  private final String name;
+  private final long startNanos;
+  private long rowsRead;
+  private long rowsWritten;
+  private boolean succeeded;
+  private boolean closed;
+
+  private DaoOperation(MetricsRegistry registry, DaoOperationEvent event, String name,
+      long startNanos) {
+    this.registry = registry;
+    this.event = event;
+    this.name = name;
+    this.startNanos = startNanos;
+  }
+
+  /**
+   * Starts timing an operation with the registry currently installed in {@link Metrics} and, if
+   * the {@code projects.DaoOperation} event is enabled in a running flight recording, begins a
+   * {@link DaoOperationEvent}.
+   */
+  public static DaoOperation start(String name) {
+    MetricsRegistry registry = Metrics.registry();
+    DaoOperationEvent event = new DaoOperationEvent();
+    boolean metricsEnabled = registry.isEnabled();
+    boolean eventEnabled = event.isEnabled();
+
+    if (!metricsEnabled && !eventEnabled) {
+      return DISABLED;
+    }
+
+    if (eventEnabled) {
+      event.setOperation(name);
+      event.begin();
+    }
+
+    return new DaoOperation(metricsEnabled ? registry : null, eventEnabled ? event : null, name,
+        metricsEnabled ? System.nanoTime() : 0);
+  }
+
+  /*
+   * The setters leave the shared disabled instance untouched so that threads don't write to the
+   * same object.
+   */
+  public void rowsRead(long rows) {
+    if (this != DISABLED) {
+      rowsRead += rows;
+    }
+  }
+
+  public void rowsWritten(long rows) {
+    if (this != DISABLED) {
+      rowsWritten += rows;
+    }
+  }
+
+  /**
+   * Marks the operation as completed normally. Call it last, just before returning.
+   */
+  public void success() {
+    if (this != DISABLED) {
+      succeeded = true;
+    }
+  }
+
+  /**
+   * Records the operation. Later calls do nothing.
+   */
+  @Override
+  public void close() {
+    if (this == DISABLED || closed) {
+      return;
+    }
+
+    closed = true;
+
+    if (Objects.nonNull(registry)) {
+      registry.recordOperation(name, System.nanoTime() - startNanos, rowsRead, rowsWritten,
+          !succeeded);
+    }
+
+    if (Objects.nonNull(event)) {
+      event.setRowsRead(rowsRead);
+      event.setRowsWritten(rowsWritten);
+      event.setFailed(!succeeded);
+      event.commit();
+    }
+  }
+}
@@ -0,0 +1,97 @@
+package projects.metrics;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps a {@link LatencyHistogram} and counters per operation in memory. Lookups of an existing
+ * operation are a single {@link ConcurrentHashMap#get(Object)}, and all counters are
+ * {@link LongAdder}s, so concurrent DAO calls don't contend with each other.
+ */
+public class InMemoryMetricsRegistry implements MetricsRegistry {
+  static final String CONNECTION_ACQUIRE = "connection.acquire";
+
+  private final Map<String, OperationMetrics> operations = new ConcurrentHashMap<>();
+  private final LatencyHistogram connectionAcquire = new LatencyHistogram();
+  private final LongAdder commits = new LongAdder();
+  private final LongAdder rollbacks = new LongAdder();
+
+  @Override
+  public boolean isEnabled() {
+    return true;
+  }
+
+  @Override
+  public void recordOperation(String operation, long durationNanos, long rowsRead,
+      long rowsWritten, boolean failed) {
+    OperationMetrics metrics = operations.get(operation);
+
+    if (Objects.isNull(metrics)) {
+      metrics = operations.computeIfAbsent(operation, name -> new OperationMetrics());
+    }
+
+    metrics.latency.record(durationNanos);
+    metrics.rowsRead.add(rowsRead);
+    metrics.rowsWritten.add(rowsWritten);
+
+    if (failed) {
+      metrics.errors.increment();
+    }
+  }
+
+  @Override
+  public void recordConnectionAcquire(long durationNanos) {
+    connectionAcquire.record(durationNanos);
+  }
+
+  @Override
+  public void recordCommit() {
+    commits.increment();
+  }
+
+  @Override
+  public void recordRollback() {
+    rollbacks.increment();
+  }
+
+  /**
+   * @return The current values of all metrics, operations sorted by name.
+   */
+  public MetricsSnapshot snapshot() {
+    List<OperationStats> stats = new ArrayList<>();
+
+    operations.forEach((name, metrics) -> stats.add(new OperationStats(name, metrics.latency,
+        metrics.errors.sum(), metrics.rowsRead.sum(), metrics.rowsWritten.sum())));
+
+    stats.sort(Comparator.comparing(OperationStats::getOperation));
+
+    return new MetricsSnapshot(stats,
+        new OperationStats(CONNECTION_ACQUIRE, connectionAcquire, 0, 0, 0), commits.sum(),
+        rollbacks.sum());
+  }
+
+  /**
+   * Clears all histograms and counters.
+   */
+  public void reset() {
+    operations.clear();
+    connectionAcquire.reset();
+    commits.reset();
+    rollbacks.reset();
+  }
+
+  /**
+   * The metrics of one operation.
+   */
+  private static class OperationMetrics {
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder rowsRead = new LongAdder();
+    private final LongAdder rowsWritten = new LongAdder();
+  }
+}
@@ -0,0 +1,190 @@
+package projects.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanOperationInfo;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.ReflectionException;
+
+/**
+ * Publishes an {@link InMemoryMetricsRegistry} as the MBean {@value #OBJECT_NAME}. Every
+ * operation gets a set of read-only attributes named {@code <operation>.<stat>}, for example
+ * {@code fetchProjectById.p99Micros}; operations that run for the first time show up the next time
+ * a JMX client reads the MBean info. The MBean also has a {@code dump} operation that returns the
+ * text table and a {@code reset} operation.
+ */
+public class JmxMetricsExporter implements DynamicMBean {
+  public static final String OBJECT_NAME = "projects:type=DaoMetrics";
+
+  private static final Logger LOG = Logger.getLogger(JmxMetricsExporter.class.getName());
+  private static final String[] STATS = {"count", "errors", "rowsRead", "rowsWritten",
+      "meanMicros", "p50Micros", "p90Micros", "p99Micros", "p999Micros", "maxMicros"};
+
+  private final InMemoryMetricsRegistry registry;
+
+  private JmxMetricsExporter(InMemoryMetricsRegistry registry) {
+    this.registry = registry;
+  }
+
+  /**
+   * Registers the registry with the platform MBean server, replacing an earlier registration. A
+   * failure is logged, not thrown; metrics still work without JMX.
+   */
+  public static void register(InMemoryMetricsRegistry registry) {
+    try {
+      MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+      ObjectName name = new ObjectName(OBJECT_NAME);
+
+      if (server.isRegistered(name)) {
+        server.unregisterMBean(name);
+      }
+
+      server.registerMBean(new JmxMetricsExporter(registry), name);
+    } catch (JMException e) {
+      LOG.log(Level.WARNING, "Could not register " + OBJECT_NAME, e);
+    }
+  }
+
+  @Override
+  public Object getAttribute(String attribute) throws AttributeNotFoundException {
+    MetricsSnapshot snapshot = registry.snapshot();
+
+    switch (attribute) {
+      case "commits":
+        return snapshot.getCommits();
+
+      case "rollbacks":
+        return snapshot.getRollbacks();
+
+      default:
+        int dot = attribute.lastIndexOf('.');
+
+        if (dot > 0) {
+          String operation = attribute.substring(0, dot);
+          String stat = attribute.substring(dot + 1);
+
+          for (OperationStats stats : allOperations(snapshot)) {
+            if (stats.getOperation().equals(operation)) {
+              return valueOf(stats, stat, attribute);
+            }
+          }
+        }
+
+        throw new AttributeNotFoundException(attribute);
+    }
+  }
+
+  @Override
+  public AttributeList getAttributes(String[] attributes) {
+    AttributeList values = new AttributeList();
+
+    for (String attribute : attributes) {
+      try {
+        values.add(new Attribute(attribute, getAttribute(attribute)));
+      } catch (AttributeNotFoundException e) {
+        // JMX convention: attributes that can't be read are left out of the list
+      }
+    }
+
+    return values;
+  }
+
+  @Override
+  public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+    throw new AttributeNotFoundException("All attributes are read-only: " + attribute.getName());
+  }
+
+  @Override
+  public AttributeList setAttributes(AttributeList attributes) {
+    return new AttributeList();
+  }
+
+  @Override
+  public Object invoke(String actionName, Object[] params, String[] signature)
+      throws ReflectionException {
+    switch (actionName) {
+      case "dump":
+        return registry.snapshot().format();
+
+      case "reset":
+        registry.reset();
+        return null;
+
+      default:
+        throw new ReflectionException(new NoSuchMethodException(actionName));
+    }
+  }
+
+  @Override
+  public MBeanInfo getMBeanInfo() {
+    List<MBeanAttributeInfo> attributes = new ArrayList<>();
+
+    attributes.add(longAttribute("commits", "Transactions committed"));
+    attributes.add(longAttribute("rollbacks", "Transactions rolled back"));
+
+    for (OperationStats stats : allOperations(registry.snapshot())) {
+      for (String stat : STATS) {
+        attributes.add(longAttribute(stats.getOperation() + "." + stat,
+            stat + " of " + stats.getOperation()));
+      }
+    }
+
+    MBeanOperationInfo[] operations = {
+        new MBeanOperationInfo("dump", "All metrics as a text table", null, String.class.getName(),
+            MBeanOperationInfo.INFO),
+        new MBeanOperationInfo("reset", "Clears all metrics", null, "void",
+            MBeanOperationInfo.ACTION)};
+
+    return new MBeanInfo(getClass().getName(), "DAO latency and throughput metrics",
+        attributes.toArray(new MBeanAttributeInfo[0]), null, operations, null);
+  }
+
+  private List<OperationStats> allOperations(MetricsSnapshot snapshot) {
+    List<OperationStats> all = new ArrayList<>(snapshot.getOperations());
+    all.add(snapshot.getConnectionAcquire());
+    return all;
+  }
+
+  private MBeanAttributeInfo longAttribute(String name, String description) {
+    return new MBeanAttributeInfo(name, "long", description, true, false, false);
+  }
+
+  private long valueOf(OperationStats stats, String stat, String attribute)
+      throws AttributeNotFoundException {
+    switch (stat) {
+      case "count":
+        return stats.getCount();
+      case "errors":
+        return stats.getErrors();
+      case "rowsRead":
+        return stats.getRowsRead();
+      case "rowsWritten":
+        return stats.getRowsWritten();
+      case "meanMicros":
+        return stats.getMeanMicros();
+      case "p50Micros":
+        return stats.getP50Micros();
+      case "p90Micros":
+        return stats.getP90Micros();
+      case "p99Micros":
+        return stats.getP99Micros();
+      case "p999Micros":
+        return stats.getP999Micros();
+      case "maxMicros":
+        return stats.getMaxMicros();
+      default:
+        throw new AttributeNotFoundException(attribute);
+    }
+  }
+}
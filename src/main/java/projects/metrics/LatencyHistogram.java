@@ -0,0 +1,128 @@
+package projects.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A fixed-size, lock-free histogram of durations in nanoseconds with the same log-linear bucket
+ * layout as HdrHistogram: values below 64 get a bucket each, and every power of two above that is
+ * split into 32 equal buckets. Every recorded value is therefore reported with a relative error
+ * of at most 1/32 (about 3%), from nanoseconds up to the largest trackable value (about 36
+ * minutes); larger values are counted in the last bucket.
+ *
+ * Recording is a couple of shifts and one atomic increment, so it can sit on every DAO call.
+ * Percentiles are computed from the live counts and are approximate while values are still being
+ * recorded.
+ */
+public final class LatencyHistogram {
+  private static final int SUB_BUCKET_BITS = 5;
+  private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+  private static final int LINEAR_LIMIT = SUB_BUCKET_COUNT << 1;
+  private static final int HIGHEST_BIT = 41;
+  private static final int BUCKET_COUNT =
+      LINEAR_LIMIT + (HIGHEST_BIT - SUB_BUCKET_BITS - 1) * SUB_BUCKET_COUNT;
+
+  private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+  private final LongAdder total = new LongAdder();
+  private final LongAdder sum = new LongAdder();
+  private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+  /**
+   * Records one duration. Negative values are recorded as zero.
+   */
+  public void record(long nanos) {
+    long value = Math.max(nanos, 0);
+
+    counts.incrementAndGet(indexOf(value));
+    total.increment();
+    sum.add(value);
+    max.accumulate(value);
+  }
+
+  public long getCount() {
+    return total.sum();
+  }
+
+  public long getMaxNanos() {
+    return max.get();
+  }
+
+  public long getMeanNanos() {
+    long count = total.sum();
+    return count == 0 ? 0 : sum.sum() / count;
+  }
+
+  /**
+   * @param percentile A percentile between 0 and 100, e.g. 99.9.
+   * @return The smallest bucket upper bound at or below which the given percentage of the recorded
+   *         values fall, capped at the largest value recorded; 0 if nothing has been recorded.
+   */
+  public long getValueAtPercentile(double percentile) {
+    long[] snapshot = new long[BUCKET_COUNT];
+    long count = 0;
+
+    for (int index = 0; index < BUCKET_COUNT; index++) {
+      snapshot[index] = counts.get(index);
+      count += snapshot[index];
+    }
+
+    if (count == 0) {
+      return 0;
+    }
+
+    long rank = Math.max(1, (long) Math.ceil(Math.min(percentile, 100.0) / 100.0 * count));
+    long seen = 0;
+
+    for (int index = 0; index < BUCKET_COUNT; index++) {
+      seen += snapshot[index];
+
+      if (seen >= rank) {
+        return Math.min(highestValueIn(index), max.get());
+      }
+    }
+
+    return max.get();
+  }
+
+  /**
+   * Clears all counts. Values recorded concurrently with a reset may be partly lost.
+   */
+  public void reset() {
+    for (int index = 0; index < BUCKET_COUNT; index++) {
+      counts.set(index, 0);
+    }
+
+    total.reset();
+    sum.reset();
+    max.reset();
+  }
+
+  static int indexOf(long value) {
+    if (value < LINEAR_LIMIT) {
+      return (int) value;
+    }
+
+    int topBit = 63 - Long.numberOfLeadingZeros(value);
+
+    if (topBit >= HIGHEST_BIT) {
+      return BUCKET_COUNT - 1;
+    }
+
+    int shift = topBit - SUB_BUCKET_BITS;
+    int subBucket = (int) (value >>> shift) - SUB_BUCKET_COUNT;
+
+    return LINEAR_LIMIT + (shift - 1) * SUB_BUCKET_COUNT + subBucket;
+  }
+
+  static long highestValueIn(int index) {
+    if (index < LINEAR_LIMIT) {
+      return index;
+    }
+
+    int shift = (index - LINEAR_LIMIT) / SUB_BUCKET_COUNT + 1;
+    long subBucket = (index - LINEAR_LIMIT) % SUB_BUCKET_COUNT + SUB_BUCKET_COUNT;
+
+    return ((subBucket + 1) << shift) - 1;
+  }
+}
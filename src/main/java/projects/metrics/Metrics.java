@@ -0,0 +1,55 @@
+package projects.metrics;
+
+import java.util.Objects;
+
+/**
+ * Holds the {@link MetricsRegistry} the DAO layer reports to. Metrics are off unless the
+ * {@code projects.metrics.enabled} system property is true, in which case an
+ * {@link InMemoryMetricsRegistry} is installed; with {@code projects.metrics.jmx} also true it is
+ * registered with the platform MBean server as well.
+ */
+public final class Metrics {
+  private static volatile MetricsRegistry registry = initialRegistry();
+
+  private Metrics() {
+  }
+
+  public static MetricsRegistry registry() {
+    return registry;
+  }
+
+  /**
+   * Replaces the registry. Pass {@link MetricsRegistry#NOOP} to turn metrics off.
+   */
+  public static void setRegistry(MetricsRegistry newRegistry) {
+    registry = Objects.requireNonNull(newRegistry);
+  }
+
+  /**
+   * @return A text dump of the current registry, or a note that metrics are off if the registry
+   *         can't produce one.
+   */
+  public static String dump() {
+    MetricsRegistry current = registry;
+
+    if (current instanceof InMemoryMetricsRegistry) {
+      return ((InMemoryMetricsRegistry) current).snapshot().format();
+    }
+
+    return "Metrics are disabled (set -Dprojects.metrics.enabled=true).";
+  }
+
+  private static MetricsRegistry initialRegistry() {
+    if (!Boolean.getBoolean("projects.metrics.enabled")) {
+      return MetricsRegistry.NOOP;
+    }
+
+    InMemoryMetricsRegistry inMemory = new InMemoryMetricsRegistry();
+
+    if (Boolean.getBoolean("projects.metrics.jmx")) {
+      JmxMetricsExporter.register(inMemory);
+    }
+
+    return inMemory;
+  }
+}
@@ -0,0 +1,64 @@
+package projects.metrics;
+
+/**
+ * Receives the measurements taken by the DAO layer. {@link Metrics} holds the registry in use; the
+ * default is {@link #NOOP}, which records nothing, and {@link InMemoryMetricsRegistry} keeps
+ * histograms and counters that can be dumped as text or exported through JMX. Other backends can
+ * be plugged in with {@link Metrics#setRegistry(MetricsRegistry)}.
+ *
+ * Implementations must be thread-safe; every DAO call on every thread reports here.
+ */
+public interface MetricsRegistry {
+  /**
+   * A registry that records nothing. While it is installed the DAO does not even read the clock.
+   */
+  MetricsRegistry NOOP = new MetricsRegistry() {
+    @Override
+    public boolean isEnabled() {
+      return false;
+    }
+
+    @Override
+    public void recordOperation(String operation, long durationNanos, long rowsRead,
+        long rowsWritten, boolean failed) {
+    }
+
+    @Override
+    public void recordConnectionAcquire(long durationNanos) {
+    }
+
+    @Override
+    public void recordCommit() {
+    }
+
+    @Override
+    public void recordRollback() {
+    }
+  };
+
+  /**
+   * @return false if measurements are discarded, so callers can skip taking them.
+   */
+  boolean isEnabled();
+
+  /**
+   * Records one completed DAO operation.
+   *
+   * @param operation The operation name, e.g. "fetchProjectById".
+   * @param durationNanos How long the operation took, including connection acquisition.
+   * @param rowsRead The number of rows read from result sets.
+   * @param rowsWritten The number of rows inserted, updated or deleted.
+   * @param failed True if the operation ended with an exception.
+   */
+  void recordOperation(String operation, long durationNanos, long rowsRead, long rowsWritten,
+      boolean failed);
+
+  /**
+   * Records how long a caller waited for a pooled connection.
+   */
+  void recordConnectionAcquire(long durationNanos);
+
+  void recordCommit();
+
+  void recordRollback();
+}
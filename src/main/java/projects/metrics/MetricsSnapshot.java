@@ -0,0 +1,72 @@
+package projects.metrics;
+
+import java.util.List;
+
+/**
+ * All DAO metrics at one point in time.
+ */
+public class MetricsSnapshot {
+  private final List<OperationStats> operations;
+  private final OperationStats connectionAcquire;
+  private final long commits;
+  private final long rollbacks;
+
+  MetricsSnapshot(List<OperationStats> operations, OperationStats connectionAcquire, long commits,
+      long rollbacks) {
+    this.operations = List.copyOf(operations);
+    this.connectionAcquire = connectionAcquire;
+    this.commits = commits;
+    this.rollbacks = rollbacks;
+  }
+
+  /**
+   * @return One entry per DAO operation that has run at least once, sorted by name.
+   */
+  public List<OperationStats> getOperations() {
+    return operations;
+  }
+
+  public OperationStats getConnectionAcquire() {
+    return connectionAcquire;
+  }
+
+  public long getCommits() {
+    return commits;
+  }
+
+  public long getRollbacks() {
+    return rollbacks;
+  }
+
+  /**
+   * @return A fixed-width table with one line per operation, followed by the connection and
+   *         transaction counters.
+   */
+  public String format() {
+    StringBuilder text = new StringBuilder();
+    String row = "%-28s %9s %7s %10s %10s %9s %9s %9s %9s %9s %9s%n";
+
+    text.append(String.format(row, "operation", "count", "errors", "rowsRead", "rowsWritten",
+        "mean(us)", "p50(us)", "p90(us)", "p99(us)", "p99.9(us)", "max(us)"));
+
+    for (OperationStats stats : operations) {
+      appendRow(text, row, stats);
+    }
+
+    appendRow(text, row, connectionAcquire);
+    text.append(String.format("transactions: commits=%d, rollbacks=%d%n", commits, rollbacks));
+
+    return text.toString();
+  }
+
+  private void appendRow(StringBuilder text, String row, OperationStats stats) {
+    text.append(String.format(row, stats.getOperation(), stats.getCount(), stats.getErrors(),
+        stats.getRowsRead(), stats.getRowsWritten(), stats.getMeanMicros(), stats.getP50Micros(),
+        stats.getP90Micros(), stats.getP99Micros(), stats.getP999Micros(), stats.getMaxMicros()));
+  }
+
+  @Override
+  public String toString() {
+    return format();
+  }
+}
@@ -0,0 +1,92 @@
+package projects.metrics;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The latency percentiles and counters of one operation at the time the snapshot was taken. All
+ * durations are in microseconds.
+ */
+public class OperationStats {
+  private final String operation;
+  private final long count;
+  private final long errors;
+  private final long rowsRead;
+  private final long rowsWritten;
+  private final long meanMicros;
+  private final long p50Micros;
+  private final long p90Micros;
+  private final long p99Micros;
+  private final long p999Micros;
+  private final long maxMicros;
+
+  OperationStats(String operation, LatencyHistogram latency, long errors, long rowsRead,
+      long rowsWritten) {
+    this.operation = operation;
+    this.count = latency.getCount();
+    this.errors = errors;
+    this.rowsRead = rowsRead;
+    this.rowsWritten = rowsWritten;
+    this.meanMicros = micros(latency.getMeanNanos());
+    this.p50Micros = micros(latency.getValueAtPercentile(50));
+    this.p90Micros = micros(latency.getValueAtPercentile(90));
+    this.p99Micros = micros(latency.getValueAtPercentile(99));
+    this.p999Micros = micros(latency.getValueAtPercentile(99.9));
+    this.maxMicros = micros(latency.getMaxNanos());
+  }
+
+  private static long micros(long nanos) {
+    return TimeUnit.NANOSECONDS.toMicros(nanos);
+  }
+
+  public String getOperation() {
+    return operation;
+  }
+
+  public long getCount() {
+    return count;
+  }
+
+  public long getErrors() {
+    return errors;
+  }
+
+  public long getRowsRead() {
+    return rowsRead;
+  }
+
+  public long getRowsWritten() {
+    return rowsWritten;
+  }
+
+  public long getMeanMicros() {
+    return meanMicros;
+  }
+
+  public long getP50Micros() {
+    return p50Micros;
+  }
+
+  public long getP90Micros() {
+    return p90Micros;
+  }
+
+  public long getP99Micros() {
+    return p99Micros;
+  }
+
+  public long getP999Micros() {
+    return p999Micros;
+  }
+
+  public long getMaxMicros() {
+    return maxMicros;
+  }
+
+  @Override
+  public String toString() {
+    return operation + ": count=" + count + ", errors=" + errors + ", rowsRead=" + rowsRead
+        + ", rowsWritten=" + rowsWritten + ", mean=" + meanMicros + "us, p50=" + p50Micros
+        + "us, p90=" + p90Micros + "us, p99=" + p99Micros + "us, p99.9=" + p999Micros + "us, max="
+        + maxMicros + "us";
+  }
+}
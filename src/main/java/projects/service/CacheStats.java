@@ -0,0 +1,46 @@
+package projects.service;
+
+/**
+ * A snapshot of the project cache counters. The size is current as of the snapshot; the hit, miss
+ * and eviction counts are cumulative.
+ */
+public class CacheStats {
+  private final int size;
+  private final long hits;
+  private final long misses;
+  private final long evictions;
+
+  CacheStats(int size, long hits, long misses, long evictions) {
+    this.size = size;
+    this.hits = hits;
+    this.misses = misses;
+    this.evictions = evictions;
+  }
+
+  public int getSize() {
+    return size;
+  }
+
+  public long getHits() {
+    return hits;
+  }
+
+  public long getMisses() {
+    return misses;
+  }
+
+  public long getEvictions() {
+    return evictions;
+  }
+
+  public double getHitRate() {
+    long requests = hits + misses;
+    return requests == 0 ? 0 : (double) hits / requests;
+  }
+
+  @Override
+  public String toString() {
+    return "size=" + size + ", hits=" + hits + ", misses=" + misses + ", evictions=" + evictions
+        + ", hitRate=" + String.format("%.3f", getHitRate());
+  }
+}
@@ -0,0 +1,48 @@
+package projects.service;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Objects;
+import projects.exception.DbException;
+
+// encodes the position of the last row on a page (its sort key) as an opaque, URL-safe string
+class PageToken {
+  private final String projectName;
+  private final Integer projectId;
+
+  PageToken(String projectName, Integer projectId) {
+    this.projectName = Objects.requireNonNull(projectName);
+    this.projectId = Objects.requireNonNull(projectId);
+  }
+
+  String getProjectName() {
+    return projectName;
+  }
+
+  Integer getProjectId() {
+    return projectId;
+  }
+
+  String encode() {
+    // 4-byte project id followed by the UTF-8 project name
+    byte[] name = projectName.getBytes(StandardCharsets.UTF_8);
+    ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES + name.length);
+
+    buffer.putInt(projectId).put(name);
+
+    return Base64.getUrlEncoder().withoutPadding().encodeToString(buffer.array());
+  }
+
+  static PageToken decode(String token) {
+    try {
+      ByteBuffer buffer = ByteBuffer.wrap(Base64.getUrlDecoder().decode(token));
+      int projectId = buffer.getInt();
+      String projectName = StandardCharsets.UTF_8.decode(buffer).toString();
+
+      return new PageToken(projectName, projectId);
+    } catch (RuntimeException e) {
+      throw new DbException("Invalid page token: " + token, e);
+    }
+  }
+}
@@ -0,0 +1,196 @@
+package projects.service;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import projects.dao.DbSession;
+import projects.dao.ProjectDao;
+import projects.entity.Category;
+import projects.entity.Material;
+import projects.entity.Project;
+import projects.entity.ProjectPage;
+import projects.entity.Step;
+
+/**
+ * A non-blocking facade over {@link ProjectService}. Each call returns at once with a
+ * {@link CompletableFuture}, and the blocking JDBC work runs on an executor.
+ *
+ * On Java 21 and later the executor starts one virtual thread per task. Many thousands of lookups
+ * can then be in flight without a platform thread each; a task waiting for a pooled connection or a
+ * socket read parks its virtual thread, not a carrier thread. On older runtimes, where virtual
+ * threads are unavailable, a fixed pool of daemon threads is used instead. Its size is
+ * {@code projects.async.threads} (default 64). The database connection pool bounds the real
+ * concurrency either way.
+ *
+ * Projects loaded through this facade go through the same cache as the synchronous service.
+ *
+ * Each task runs under the {@link DbSession} of the thread that submitted it, as do the child
+ * queries of a parallel load and the stages that complete with the task. So a caller reads its own
+ * writes whether it made them directly or through this facade, without making other callers'
+ * reads sticky. A facade built with a session of its own runs every task under that session
+ * instead; a write by any of its callers then sends all of their reads to the primary for the
+ * sticky window.
+ */
+public class ProjectAsyncService implements AutoCloseable {
+  private static final Logger LOG = Logger.getLogger(ProjectAsyncService.class.getName());
+
+  private final ProjectService projectService;
+  /* loadInParallel() fills the shared project cache, so it reads from the primary */
+  private final ProjectDao projectDao = ProjectDao.forPrimaryReads();
+  private final ExecutorService executor;
+
+  /*
+   * the child queries of a parallel load run on their own executor: with a fixed thread pool, a
+   * caller task blocked waiting for them must never be holding the thread they need
+   */
+  private final ExecutorService fanOutExecutor;
+
+  /* null to run each task under its caller's session */
+  private final DbSession session;
+
+  public ProjectAsyncService(ProjectService projectService) {
+    this(projectService, null);
+  }
+
+  /**
+   * @param session The session every task runs under, shared by all callers of this facade, or
+   *        null to use each caller's own.
+   */
+  public ProjectAsyncService(ProjectService projectService, DbSession session) {
+    this.projectService = projectService;
+    this.session = session;
+    this.executor = newExecutor("projects-async-");
+    this.fanOutExecutor = newExecutor("projects-async-fan-out-");
+  }
+
+  /**
+   * Loads a project with its children. On a cache miss, the project row and its materials, steps
+   * and categories are queried concurrently, each on its own pooled connection. That takes about
+   * one round trip of latency instead of four.
+   *
+   * Each of the four queries is a single statement in auto-commit mode, so each one is consistent
+   * on its own. They do not share a snapshot, though: a write committed while they run may show up
+   * in some of the child lists and not in others. Use
+   * {@link #fetchProjectByIdConsistent(Integer)} when that matters.
+   *
+   * @param projectId The project ID.
+   * @return A future that completes with the project, or exceptionally with a
+   *         {@link java.util.NoSuchElementException} if it does not exist.
+   */
+  public CompletableFuture<Project> fetchProjectById(Integer projectId) {
+    return submit(() -> projectService.fetchProjectById(projectId, this::loadInParallel), executor);
+  }
+
+  /**
+   * Loads a project with its children on one connection inside one transaction, as
+   * {@link ProjectService#fetchProjectById(Integer)} does. All four queries read the same snapshot.
+   *
+   * @param projectId The project ID.
+   * @return A future that completes with the project.
+   */
+  public CompletableFuture<Project> fetchProjectByIdConsistent(Integer projectId) {
+    return submit(() -> projectService.fetchProjectById(projectId), executor);
+  }
+
+  public CompletableFuture<List<Project>> fetchProjectsByIds(Collection<Integer> projectIds) {
+    return submit(() -> projectService.fetchProjectsByIds(projectIds), executor);
+  }
+
+  public CompletableFuture<ProjectPage> fetchProjectPage(String pageToken, int pageSize) {
+    return submit(() -> projectService.fetchProjectPage(pageToken, pageSize), executor);
+  }
+
+  public CompletableFuture<Project> addProject(Project project) {
+    return submit(() -> projectService.addProject(project), executor);
+  }
+
+  public CompletableFuture<List<Project>> addProjects(Collection<Project> projects) {
+    return submit(() -> projectService.addProjects(projects), executor);
+  }
+
+  /**
+   * Stops accepting new work. Calls that are already running are allowed to finish.
+   */
+  @Override
+  public void close() {
+    executor.shutdown();
+    fanOutExecutor.shutdown();
+  }
+
+  private Optional<Project> loadInParallel(Integer projectId) {
+    CompletableFuture<Optional<Project>> project =
+        submit(() -> projectDao.fetchProjectWithoutChildren(projectId), fanOutExecutor);
+    CompletableFuture<List<Material>> materials =
+        submit(() -> projectDao.fetchMaterialsForProject(projectId), fanOutExecutor);
+    CompletableFuture<List<Step>> steps =
+        submit(() -> projectDao.fetchStepsForProject(projectId), fanOutExecutor);
+    CompletableFuture<List<Category>> categories =
+        submit(() -> projectDao.fetchCategoriesForProject(projectId), fanOutExecutor);
+
+    try {
+      CompletableFuture.allOf(project, materials, steps, categories).join();
+    } catch (CompletionException e) {
+      throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+    }
+
+    return project.join().map(loaded -> {
+      loaded.getMaterials().addAll(materials.join());
+      loaded.getSteps().addAll(steps.join());
+      loaded.getCategories().addAll(categories.join());
+      return loaded;
+    });
+  }
+
+  private <T> CompletableFuture<T> submit(Supplier<T> work, ExecutorService on) {
+    /*
+     * the future is completed inside call(), so dependent stages that run on completion, such as
+     * a thenCompose() that fetches what the task wrote, still see the caller's session
+     */
+    DbSession caller = Objects.isNull(session) ? DbSession.current() : session;
+    CompletableFuture<T> future = new CompletableFuture<>();
+
+    on.execute(() -> caller.call(() -> {
+      try {
+        future.complete(work.get());
+      } catch (Throwable e) {
+        future.completeExceptionally(new CompletionException(e));
+      }
+
+      return null;
+    }));
+
+    return future;
+  }
+
+  private static ExecutorService newExecutor(String threadNamePrefix) {
+    /*
+     * Executors.newVirtualThreadPerTaskExecutor() is looked up at run time because this project
+     * compiles for Java 17, where it doesn't exist.
+     */
+    try {
+      return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor")
+          .invoke(null);
+    } catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException e) {
+      LOG.log(Level.FINE, "Virtual threads are not available; using a platform thread pool", e);
+    }
+
+    AtomicInteger count = new AtomicInteger();
+
+    return Executors.newFixedThreadPool(Integer.getInteger("projects.async.threads", 64),
+        runnable -> {
+          Thread thread = new Thread(runnable, threadNamePrefix + count.incrementAndGet());
+          thread.setDaemon(true);
+          return thread;
+        });
+  }
+}
@@ -0,0 +1,179 @@
+package projects.service;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import projects.entity.Project;
+
+/**
+ * A bounded read-through cache of fully loaded projects (with materials, steps and categories),
+ * keyed by project ID.
+ * <ul>
+ * <li>Entries are evicted least recently used first once the cache holds {@code maximumSize}
+ * projects, and are reloaded once they are older than the time to live.</li>
+ * <li>Loading is single-flight: when several threads miss on the same ID at once, one of them runs
+ * the loader and the others wait for its result, so the database is queried once.</li>
+ * <li>Projects that don't exist are not cached.</li>
+ * </ul>
+ * The lock only guards the bookkeeping; loads run outside it, so a slow load of one project does not
+ * block lookups of others.
+ *
+ * Cached projects are shared between callers and must be treated as read-only. Anything that writes
+ * a project must call {@link #invalidate(Integer)}.
+ */
+class ProjectCache {
+  private final int maximumSize;
+  private final long timeToLiveNanos;
+
+  /* Access-ordered, so iteration starts at the least recently used entry. */
+  private final Map<Integer, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+  private final ReentrantLock lock = new ReentrantLock();
+
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+
+  ProjectCache(int maximumSize, long timeToLive, TimeUnit unit) {
+    if (maximumSize < 1) {
+      throw new IllegalArgumentException("Invalid cache size: " + maximumSize);
+    }
+
+    this.maximumSize = maximumSize;
+    this.timeToLiveNanos = unit.toNanos(timeToLive);
+  }
+
+  /**
+   * Returns the cached project, loading it with the given loader on a miss.
+   *
+   * @param projectId The project ID.
+   * @param loader Loads a project from the database. Called at most once per miss, no matter how
+   *        many threads are waiting for the same ID.
+   * @return The project, or empty if it does not exist.
+   */
+  Optional<Project> get(Integer projectId, Function<Integer, Optional<Project>> loader) {
+    Entry entry;
+    boolean loading = false;
+
+    lock.lock();
+
+    try {
+      entry = entries.get(projectId);
+
+      if (Objects.nonNull(entry) && entry.isExpired(System.nanoTime())) {
+        entries.remove(projectId);
+        evictions.increment();
+        entry = null;
+      }
+
+      if (Objects.isNull(entry)) {
+        entry = new Entry();
+        entries.put(projectId, entry);
+        loading = true;
+        misses.increment();
+        evictOverflow();
+      } else {
+        hits.increment();
+      }
+    } finally {
+      lock.unlock();
+    }
+
+    if (loading) {
+      load(projectId, entry, loader);
+    }
+
+    try {
+      return entry.project.join();
+    } catch (CompletionException e) {
+      throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+    }
+  }
+
+  void invalidate(Integer projectId) {
+    lock.lock();
+
+    try {
+      entries.remove(projectId);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  void invalidateAll() {
+    lock.lock();
+
+    try {
+      entries.clear();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  CacheStats getStats() {
+    int size;
+
+    lock.lock();
+
+    try {
+      size = entries.size();
+    } finally {
+      lock.unlock();
+    }
+
+    return new CacheStats(size, hits.sum(), misses.sum(), evictions.sum());
+  }
+
+  private void load(Integer projectId, Entry entry, Function<Integer, Optional<Project>> loader) {
+    try {
+      Optional<Project> project = loader.apply(projectId);
+
+      entry.loadedAt = System.nanoTime();
+      entry.project.complete(project);
+
+      if (project.isEmpty()) {
+        removeIfCurrent(projectId, entry);
+      }
+    } catch (RuntimeException e) {
+      removeIfCurrent(projectId, entry);
+      entry.project.completeExceptionally(e);
+    }
+  }
+
+  private void removeIfCurrent(Integer projectId, Entry entry) {
+    // an invalidation during the load may already have replaced or removed the entry
+    lock.lock();
+
+    try {
+      entries.remove(projectId, entry);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void evictOverflow() {
+    Iterator<Entry> eldest = entries.values().iterator();
+
+    while (entries.size() > maximumSize && eldest.hasNext()) {
+      eldest.next();
+      eldest.remove();
+      evictions.increment();
+    }
+  }
+
+  private class Entry {
+    private final CompletableFuture<Optional<Project>> project = new CompletableFuture<>();
+    private volatile long loadedAt;
+
+    private boolean isExpired(long now) {
+      return project.isDone() && now - loadedAt > timeToLiveNanos;
+    }
+  }
+}
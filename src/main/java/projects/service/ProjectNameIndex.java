@@ -0,0 +1,315 @@
+package projects.service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import projects.entity.ProjectSummary;
+
+/**
+ * An in-memory inverted index from the words of project names to project IDs, for prefix lookups
+ * (autocomplete) without a database round trip. Each name is split into lower-case words, and a
+ * query matches a project when every word of the query is the start of some word of its name, so
+ * "oak sh" finds "Oak shed" and "Shelf, oak" but not "Oak bookshelf".
+ *
+ * The index is loaded from the database on first use. Projects added through this process are
+ * added to it as they are written; projects written by other processes show up when the index is
+ * reloaded. The first lookup after the index is older than the refresh interval starts a reload on
+ * a background thread, and lookups keep using the old index until the new one is ready. Additions
+ * and removals made while a reload runs are applied to both, so none is lost when the new index
+ * replaces the old one.
+ *
+ * Thread-safe. Lookups run concurrently with additions and see them as they happen.
+ */
+class ProjectNameIndex {
+  private static final Logger LOG = Logger.getLogger(ProjectNameIndex.class.getName());
+
+  private final Supplier<List<ProjectSummary>> loader;
+  private final long refreshNanos;
+
+  /* one load at a time; a lock rather than a monitor, so a waiting virtual thread isn't pinned */
+  private final ReentrantLock loadLock = new ReentrantLock();
+  private final AtomicBoolean refreshing = new AtomicBoolean();
+
+  /* guards pending, and orders additions and removals with the swap to a newly loaded index */
+  private final ReentrantLock changeLock = new ReentrantLock();
+  private List<Consumer<Snapshot>> pending;
+
+  private volatile Snapshot snapshot;
+  private volatile long refreshDueAt;
+
+  ProjectNameIndex(Supplier<List<ProjectSummary>> loader, long refreshInterval, TimeUnit unit) {
+    this.loader = loader;
+    this.refreshNanos = unit.toNanos(refreshInterval);
+  }
+
+  /**
+   * @return Up to limit projects matching the query: names that start with the whole query first,
+   *         then the others, each group in name order.
+   */
+  List<ProjectSummary> suggest(String query, int limit) {
+    List<String> words = words(query);
+
+    if (words.isEmpty() || limit < 1) {
+      return new ArrayList<>();
+    }
+
+    Snapshot current = current();
+    String lowerQuery = query.trim().toLowerCase(Locale.ROOT);
+    Comparator<ProjectSummary> order = Comparator
+        .comparing((ProjectSummary summary) -> !summary.getProjectName().toLowerCase(Locale.ROOT)
+            .startsWith(lowerQuery))
+        .thenComparing(ProjectSummary::getProjectName)
+        .thenComparing(ProjectSummary::getProjectId);
+
+    /*
+     * the candidates are the projects under the longest query word, usually the most selective;
+     * each is checked against the other words through its name rather than by intersecting id
+     * sets, and only the best limit matches are kept, so a short prefix allocates nothing per
+     * candidate it rejects
+     */
+    String driver = words.stream().max(Comparator.comparingInt(String::length)).get();
+    List<String> others = new ArrayList<>(words);
+    others.remove(driver);
+
+    PriorityQueue<ProjectSummary> best = new PriorityQueue<>(limit + 1, order.reversed());
+    Set<Integer> kept = new HashSet<>();
+
+    for (Set<Integer> projectIds : current.matching(driver)) {
+      for (Integer projectId : projectIds) {
+        String name = current.names.get(projectId);
+
+        if (Objects.isNull(name) || kept.contains(projectId) || !matchesAll(name, others)) {
+          continue;
+        }
+
+        ProjectSummary summary = new ProjectSummary();
+        summary.setProjectId(projectId);
+        summary.setProjectName(name);
+
+        if (best.size() < limit) {
+          best.add(summary);
+          kept.add(projectId);
+        } else if (order.compare(summary, best.peek()) < 0) {
+          kept.remove(best.poll().getProjectId());
+          best.add(summary);
+          kept.add(projectId);
+        }
+      }
+    }
+
+    List<ProjectSummary> matches = new ArrayList<>(best);
+    matches.sort(order);
+    return matches;
+  }
+
+  /**
+   * Adds or renames a project. Does nothing if the index hasn't been loaded yet; the load will
+   * include it.
+   */
+  void add(Integer projectId, String projectName) {
+    change(current -> current.add(projectId, projectName));
+  }
+
+  /**
+   * Removes a deleted project. Does nothing if the index hasn't been loaded yet.
+   */
+  void remove(Integer projectId) {
+    change(current -> current.remove(projectId));
+  }
+
+  /**
+   * Drops the index; the next lookup loads it again.
+   */
+  void clear() {
+    snapshot = null;
+  }
+
+  private void change(Consumer<Snapshot> change) {
+    changeLock.lock();
+
+    try {
+      Snapshot current = snapshot;
+
+      if (Objects.nonNull(current)) {
+        change.accept(current);
+      }
+
+      if (Objects.nonNull(pending)) {
+        pending.add(change);
+      }
+    } finally {
+      changeLock.unlock();
+    }
+  }
+
+  private Snapshot current() {
+    Snapshot current = snapshot;
+
+    if (Objects.isNull(current)) {
+      loadLock.lock();
+
+      try {
+        current = snapshot;
+
+        if (Objects.isNull(current)) {
+          current = load();
+        }
+      } finally {
+        loadLock.unlock();
+      }
+    } else if (System.nanoTime() - refreshDueAt > 0 && refreshing.compareAndSet(false, true)) {
+      Thread thread = new Thread(this::refresh, "projects-name-index-refresh");
+      thread.setDaemon(true);
+      thread.start();
+    }
+
+    return current;
+  }
+
+  private void refresh() {
+    loadLock.lock();
+
+    try {
+      load();
+    } catch (RuntimeException e) {
+      /* the old index stays in use; the next try is one refresh interval away */
+      LOG.log(Level.WARNING, "Reloading the project name index failed", e);
+      refreshDueAt = System.nanoTime() + refreshNanos;
+    } finally {
+      loadLock.unlock();
+      refreshing.set(false);
+    }
+  }
+
+  /*
+   * called with loadLock held; reads every project name, then replays the additions and removals
+   * made during the read before the new index replaces the old one
+   */
+  private Snapshot load() {
+    changeLock.lock();
+
+    try {
+      pending = new ArrayList<>();
+    } finally {
+      changeLock.unlock();
+    }
+
+    Snapshot fresh = new Snapshot();
+
+    try {
+      for (ProjectSummary project : loader.get()) {
+        fresh.add(project.getProjectId(), project.getProjectName());
+      }
+    } catch (RuntimeException e) {
+      changeLock.lock();
+
+      try {
+        pending = null;
+      } finally {
+        changeLock.unlock();
+      }
+
+      throw e;
+    }
+
+    changeLock.lock();
+
+    try {
+      pending.forEach(change -> change.accept(fresh));
+      pending = null;
+      refreshDueAt = System.nanoTime() + refreshNanos;
+      snapshot = fresh;
+      return fresh;
+    } finally {
+      changeLock.unlock();
+    }
+  }
+
+  /* true if every query word is the start of some word of the name */
+  private static boolean matchesAll(String name, List<String> queryWords) {
+    if (queryWords.isEmpty()) {
+      return true;
+    }
+
+    List<String> nameWords = words(name);
+
+    for (String queryWord : queryWords) {
+      if (nameWords.stream().noneMatch(word -> word.startsWith(queryWord))) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  private static List<String> words(String text) {
+    List<String> words = new ArrayList<>();
+
+    for (String word : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+      if (!word.isEmpty()) {
+        words.add(word);
+      }
+    }
+
+    return words;
+  }
+
+  /**
+   * One loaded copy of the index. A reload builds a new one, so lookups never see a half-built
+   * index.
+   */
+  private static class Snapshot {
+    private final NavigableMap<String, Set<Integer>> projectsByWord =
+        new ConcurrentSkipListMap<>();
+    private final Map<Integer, String> names = new ConcurrentHashMap<>();
+
+    private void add(Integer projectId, String name) {
+      unindex(projectId, names.put(projectId, name));
+
+      for (String word : words(name)) {
+        projectsByWord.computeIfAbsent(word, key -> ConcurrentHashMap.newKeySet()).add(projectId);
+      }
+    }
+
+    private void remove(Integer projectId) {
+      unindex(projectId, names.remove(projectId));
+    }
+
+    private void unindex(Integer projectId, String name) {
+      if (Objects.nonNull(name)) {
+        for (String word : words(name)) {
+          Set<Integer> projectIds = projectsByWord.get(word);
+
+          if (Objects.nonNull(projectIds)) {
+            projectIds.remove(projectId);
+          }
+        }
+      }
+    }
+
+    /*
+     * The project ids under every word from the prefix up to, not including, the first string
+     * that doesn't start with it; the highest char sorts after any char that can follow the
+     * prefix. A project with several such words is in several of the sets.
+     */
+    private Iterable<Set<Integer>> matching(String prefix) {
+      return projectsByWord.subMap(prefix, true, prefix + Character.MAX_VALUE, false).values();
+    }
+  }
+}
@@ -1,17 +1,76 @@
 package projects.service;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import projects.dao.FetchMode;
 import projects.dao.ProjectDao;
+import projects.entity.Category;
+import projects.entity.CategoryRollup;
+import projects.entity.Material;
 import projects.entity.Project;
+import projects.entity.ProjectPage;
+import projects.entity.ProjectRollup;
+import projects.entity.ProjectSummary;
+import projects.entity.Step;
+import projects.exception.DbException;
+import projects.exception.PartialInsertException;
 
 // serves as the "middle layer" that passes data back-and-forth between ProjectsApp and ProjectDao
 public class ProjectService {
   private ProjectDao projectDao = new ProjectDao();
 
+  /*
+   * reads from the primary, for loads into projectCache and for reads that start an edit; a
+   * lagging replica would otherwise leave an old copy cached for its whole time to live
+   */
+  private ProjectDao primaryDao = ProjectDao.forPrimaryReads();
+
+  /*
+   * fully loaded projects by id; the size and time to live can be set with the
+   * projects.cache.maxSize and projects.cache.ttlSeconds system properties
+   */
+  private ProjectCache projectCache =
+      new ProjectCache(Integer.getInteger("projects.cache.maxSize", 1000),
+          Long.getLong("projects.cache.ttlSeconds", 300), TimeUnit.SECONDS);
+
+  /*
+   * in-memory word prefix index of project names for suggestProjects(); only used if the
+   * projects.nameIndex.enabled system property is true, and reloaded every
+   * projects.nameIndex.refreshSeconds to pick up projects added by other processes; loaded from
+   * the primary, so a lagging replica can't drop a project this process just added
+   */
+  private ProjectNameIndex projectNameIndex = Boolean.getBoolean("projects.nameIndex.enabled")
+      ? new ProjectNameIndex(() -> primaryDao.fetchProjectSummaries(),
+          Long.getLong("projects.nameIndex.refreshSeconds", 300), TimeUnit.SECONDS)
+      : null;
+
   public Project addProject(Project project) {
-    // calls insertProject() on projectDao
-    return projectDao.insertProject(project);
+    // calls insertProject() on projectDao, then drops any stale cache entry for the new id
+    Project dbProject = projectDao.insertProject(project);
+    projectCache.invalidate(dbProject.getProjectId());
+    indexName(dbProject);
+    return dbProject;
+  }
+
+  public List<Project> addProjects(Collection<Project> projects) {
+    /*
+     * calls insertProjects() on projectDao, which writes the aggregates in batches; if a batch
+     * fails, the PartialInsertException lists the projects of the batches committed before it,
+     * and those are cached and indexed like the rest before it is passed on
+     */
+    return invalidateAll(() -> projectDao.insertProjects(projects));
+  }
+
+  public List<Project> addProjects(Collection<Project> projects, int batchSize) {
+    // same as addProjects(), with an explicit number of projects per batch and transaction
+    return invalidateAll(() -> projectDao.insertProjects(projects, batchSize));
   }
 
   public List<Project> fetchAllProjects() {
@@ -19,10 +78,274 @@ public class ProjectService {
     return projectDao.fetchAllProjects();
   }
 
+  public List<ProjectSummary> fetchProjectSummaries() {
+    // calls fetchProjectSummaries() on projectDao; only the id and name of each project are loaded
+    return projectDao.fetchProjectSummaries();
+  }
+
+  public ProjectPage fetchProjectPage(String pageToken, int pageSize) {
+    /*
+     * returns one page of project summaries in name order; pass a null token for the first page and
+     * the returned page's next page token for each following page
+     * 
+     * one extra row is requested to find out whether another page exists without a COUNT query
+     */
+    if (pageSize < 1) {
+      throw new DbException("Invalid page size: " + pageSize);
+    }
+
+    PageToken after = Objects.isNull(pageToken) ? null : PageToken.decode(pageToken);
+    List<ProjectSummary> summaries = Objects.isNull(after)
+        ? projectDao.fetchProjectSummariesAfter(null, null, pageSize + 1)
+        : projectDao.fetchProjectSummariesAfter(after.getProjectName(), after.getProjectId(),
+            pageSize + 1);
+
+    if (summaries.size() <= pageSize) {
+      return new ProjectPage(summaries, null);
+    }
+
+    List<ProjectSummary> page = summaries.subList(0, pageSize);
+    ProjectSummary last = page.get(pageSize - 1);
+
+    return new ProjectPage(page,
+        new PageToken(last.getProjectName(), last.getProjectId()).encode());
+  }
+
+  public ProjectPage searchProjects(String query, String pageToken, int pageSize) {
+    /*
+     * returns one page of the projects whose notes or steps match the query, best match first;
+     * pass a null token for the first page and the returned page's next page token for each
+     * following page
+     */
+    if (pageSize < 1) {
+      throw new DbException("Invalid page size: " + pageSize);
+    }
+
+    int offset = 0;
+
+    if (Objects.nonNull(pageToken)) {
+      SearchPageToken token = SearchPageToken.decode(pageToken);
+
+      if (!token.isFor(query)) {
+        throw new DbException("The page token belongs to a different search: " + pageToken);
+      }
+
+      offset = token.getOffset();
+    }
+
+    List<ProjectSummary> summaries = projectDao.searchProjects(query, offset, pageSize + 1);
+
+    if (summaries.size() <= pageSize) {
+      return new ProjectPage(summaries, null);
+    }
+
+    return new ProjectPage(summaries.subList(0, pageSize),
+        new SearchPageToken(query, offset + pageSize).encode());
+  }
+
+  public List<ProjectSummary> suggestProjects(String prefix, int limit) {
+    /*
+     * returns up to limit projects for autocomplete: with the name index enabled, projects having
+     * a word in their name that starts with each word of prefix, matched in memory; otherwise
+     * projects whose name starts with prefix, from project_name_idx
+     */
+    if (Objects.nonNull(projectNameIndex)) {
+      return projectNameIndex.suggest(prefix, limit);
+    }
+
+    return projectDao.fetchProjectSummariesByNamePrefix(prefix, limit);
+  }
+
+  public Stream<Project> streamAllProjects() {
+    /*
+     * calls streamAllProjects() on projectDao; the stream holds a database connection until it is
+     * read to the end or closed, so use it in a try-with-resources block
+     */
+    return projectDao.streamAllProjects();
+  }
+
+  public Stream<Project> streamProjectAggregates() {
+    /*
+     * calls streamProjectAggregates() on projectDao; every project comes with its materials, steps
+     * and categories, and the stream holds four database connections until it is read to the end
+     * or closed, so use it in a try-with-resources block
+     */
+    return projectDao.streamProjectAggregates();
+  }
+
+  public List<Project> fetchProjectsByIds(Collection<Integer> projectIds) {
+    /*
+     * calls fetchProjectsByIds() on projectDao, which loads all of the projects and their children
+     * in a fixed number of queries; missing ids are left out of the result
+     */
+    return projectDao.fetchProjectsByIds(projectIds);
+  }
+
   public Project fetchProjectById(Integer projectId) {
-    // calls fetchProjectById() on projectDao, and throws an exception if the project doesn't exist
-    return projectDao.fetchProjectById(projectId).orElseThrow(() -> new NoSuchElementException(
+    /*
+     * returns the cached project, or calls fetchProjectById() on primaryDao and caches the result;
+     * throws an exception if the project doesn't exist
+     * 
+     * the returned project is shared with other callers through the cache, so it must not be
+     * modified
+     */
+    return fetchProjectById(projectId, primaryDao::fetchProjectById);
+  }
+
+  public Project fetchProjectById(Integer projectId, FetchMode fetchMode) {
+    /*
+     * same as fetchProjectById(), with the project loaded the way fetchMode says on a cache miss;
+     * a cached project is returned as is, whichever mode loaded it
+     */
+    return fetchProjectById(projectId, id -> primaryDao.fetchProjectById(id, fetchMode));
+  }
+
+  Project fetchProjectById(Integer projectId, Function<Integer, Optional<Project>> loader) {
+    // same as fetchProjectById(), with the given loader, which must read the primary, on a miss
+    return projectCache.get(projectId, loader).orElseThrow(() -> new NoSuchElementException(
+        "Project with project ID=" + projectId + " does not exist."));
+  }
+
+  public Project fetchProjectForUpdate(Integer projectId) {
+    /*
+     * calls fetchProjectById() on primaryDao, bypassing the cache, so the caller gets a copy of
+     * its own to change and pass to modifyProject(); throws an exception if the project doesn't
+     * exist
+     */
+    return primaryDao.fetchProjectById(projectId).orElseThrow(() -> new NoSuchElementException(
         "Project with project ID=" + projectId + " does not exist."));
   }
 
+  public Project fetchProjectRowForUpdate(Integer projectId) {
+    /*
+     * calls fetchProjectWithoutChildren() on primaryDao, bypassing the cache, for callers that
+     * only need the project's id and version, such as deleteProject(); throws an exception if the
+     * project doesn't exist
+     */
+    return primaryDao.fetchProjectWithoutChildren(projectId)
+        .orElseThrow(() -> new NoSuchElementException(
+            "Project with project ID=" + projectId + " does not exist."));
+  }
+
+  public Project modifyProject(Project project) {
+    /*
+     * calls updateProject() on projectDao, which writes only the changed columns and throws a
+     * StaleDataException if someone else changed the project since it was read; drops the cached
+     * copy and updates the name index
+     */
+    Project dbProject = projectDao.updateProject(project);
+    projectCache.invalidate(dbProject.getProjectId());
+    indexName(dbProject);
+    return dbProject;
+  }
+
+  public boolean deleteProject(Project project) {
+    // calls deleteProject() on projectDao and forgets the project in the cache and name index
+    boolean deleted = projectDao.deleteProject(project);
+    projectCache.invalidate(project.getProjectId());
+
+    if (Objects.nonNull(projectNameIndex)) {
+      projectNameIndex.remove(project.getProjectId());
+    }
+
+    return deleted;
+  }
+
+  public boolean deleteMaterial(Material material) {
+    // calls deleteMaterial() on projectDao and drops the cached copy of the project
+    return invalidating(material.getProjectId(), projectDao.deleteMaterial(material));
+  }
+
+  public Step appendStep(Integer projectId, String stepText) {
+    // calls appendStep() on projectDao and drops the cached copy of the project
+    return invalidating(projectId, projectDao.appendStep(projectId, stepText));
+  }
+
+  public Step insertStepAfter(Integer projectId, Integer afterStepId, String stepText) {
+    // calls insertStepAfter() on projectDao; a null afterStepId inserts before the first step
+    return invalidating(projectId, projectDao.insertStepAfter(projectId, afterStepId, stepText));
+  }
+
+  public void moveStepAfter(Integer projectId, Integer stepId, Integer afterStepId) {
+    // calls moveStepAfter() on projectDao; a null afterStepId moves the step to the front
+    projectDao.moveStepAfter(projectId, stepId, afterStepId);
+    projectCache.invalidate(projectId);
+  }
+
+  public void reorderSteps(Integer projectId, List<Integer> stepIds) {
+    // calls reorderSteps() on projectDao; stepIds must hold every step of the project once
+    projectDao.reorderSteps(projectId, stepIds);
+    projectCache.invalidate(projectId);
+  }
+
+  public boolean deleteStep(Step step) {
+    /*
+     * calls deleteStep() on projectDao, which throws a StaleDataException if someone else changed
+     * or moved the step since it was read, and drops the cached copy of the project
+     */
+    return invalidating(step.getProjectId(), projectDao.deleteStep(step));
+  }
+
+  public List<ProjectRollup> fetchProjectRollups() {
+    // calls fetchProjectRollups() on projectDao; totals are precomputed, so no children are read
+    return projectDao.fetchProjectRollups();
+  }
+
+  public List<CategoryRollup> fetchCategoryRollups() {
+    // calls fetchCategoryRollups() on projectDao; totals are precomputed, one row per category
+    return projectDao.fetchCategoryRollups();
+  }
+
+  public long rebuildProjectRollups() {
+    // calls rebuildProjectRollups() on projectDao, 500 projects per transaction
+    return projectDao.rebuildProjectRollups(500);
+  }
+
+  public List<Category> fetchAllCategories() {
+    // calls fetchAllCategories() on projectDao, which serves them from its category cache
+    return projectDao.fetchAllCategories();
+  }
+
+  public void refreshCategories() {
+    // calls refreshCategories() on projectDao; needed only if categories are changed outside it
+    projectDao.refreshCategories();
+  }
+
+  public CacheStats getCacheStats() {
+    // hit, miss and eviction counts of the project cache
+    return projectCache.getStats();
+  }
+
+  private void indexName(Project project) {
+    // adds a project that was just written to the name index, if there is one
+    if (Objects.nonNull(projectNameIndex)) {
+      projectNameIndex.add(project.getProjectId(), project.getProjectName());
+    }
+  }
+
+  private <T> T invalidating(Integer projectId, T result) {
+    // drops the cache entry of a project whose children were just written
+    projectCache.invalidate(projectId);
+    return result;
+  }
+
+  private List<Project> invalidateAll(Supplier<List<Project>> insert) {
+    // runs a bulk insert and drops the cache entries of what it committed, even if it failed
+    try {
+      return invalidateAll(insert.get());
+    } catch (PartialInsertException e) {
+      invalidateAll(e.getInserted());
+      throw e;
+    }
+  }
+
+  private List<Project> invalidateAll(List<Project> projects) {
+    // drops the cache entries of projects that were just written
+    projects.forEach(project -> {
+      projectCache.invalidate(project.getProjectId());
+      indexName(project);
+    });
+    return projects;
+  }
+
 }
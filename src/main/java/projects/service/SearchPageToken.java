@@ -0,0 +1,50 @@
+package projects.service;
+
+import java.nio.ByteBuffer;
+import java.util.Base64;
+import projects.exception.DbException;
+
+// encodes the offset of the next page of search results and the query it belongs to
+class SearchPageToken {
+  private final int queryHash;
+  private final int offset;
+
+  SearchPageToken(String query, int offset) {
+    this.queryHash = query.hashCode();
+    this.offset = offset;
+  }
+
+  private SearchPageToken(int queryHash, int offset) {
+    this.queryHash = queryHash;
+    this.offset = offset;
+  }
+
+  int getOffset() {
+    return offset;
+  }
+
+  boolean isFor(String query) {
+    return queryHash == query.hashCode();
+  }
+
+  String encode() {
+    // 4-byte query hash followed by the 4-byte offset
+    ByteBuffer buffer = ByteBuffer.allocate(2 * Integer.BYTES).putInt(queryHash).putInt(offset);
+    return Base64.getUrlEncoder().withoutPadding().encodeToString(buffer.array());
+  }
+
+  static SearchPageToken decode(String token) {
+    try {
+      ByteBuffer buffer = ByteBuffer.wrap(Base64.getUrlDecoder().decode(token));
+      SearchPageToken decoded = new SearchPageToken(buffer.getInt(), buffer.getInt());
+
+      if (decoded.offset < 0 || buffer.hasRemaining()) {
+        throw new IllegalArgumentException("Bad offset or length");
+      }
+
+      return decoded;
+    } catch (RuntimeException e) {
+      throw new DbException("Invalid page token: " + token, e);
+    }
+  }
+}
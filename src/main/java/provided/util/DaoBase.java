@@ -3,23 +3,25 @@
  */
 package provided.util;
 
-import java.lang.reflect.Constructor;
-import java.lang.reflect.Field;
 import java.math.BigDecimal;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
-import java.sql.Time;
-import java.sql.Timestamp;
 import java.sql.Types;
-import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
+import projects.jfr.TransactionEvent;
+import projects.metrics.DaoOperation;
+import projects.metrics.Metrics;
 
 /**
- * This class contains utility methods for the DAO class.
+ * This class contains utility methods for the DAO class. Transaction starts, commits and
+ * rollbacks are also reported as {@code projects.Transaction} flight recorder events and counted
+ * in the metrics registry.
  * 
  * @author Promineo
  *
@@ -34,7 +36,9 @@ public abstract class DaoBase {
    * @throws SQLException Thrown if an error occurs starting the transaction.
    */
   protected void startTransaction(Connection conn) throws SQLException {
+    TransactionEvent event = TransactionEvent.begin("start", conn);
     conn.setAutoCommit(false);
+    TransactionEvent.end(event);
   }
 
   /**
@@ -44,7 +48,10 @@ public abstract class DaoBase {
    * @throws SQLException Thrown if an error occurs committing the transaction.
    */
   protected void commitTransaction(Connection conn) throws SQLException {
+    TransactionEvent event = TransactionEvent.begin("commit", conn);
     conn.commit();
+    TransactionEvent.end(event);
+    Metrics.registry().recordCommit();
   }
 
   /**
@@ -54,7 +61,63 @@ public abstract class DaoBase {
    * @throws SQLException Thrown if an error occurs rolling back the transaction.
    */
   protected void rollbackTransaction(Connection conn) throws SQLException {
+    TransactionEvent event = TransactionEvent.begin("rollback", conn);
     conn.rollback();
+    TransactionEvent.end(event);
+    Metrics.registry().recordRollback();
+  }
+
+  /**
+   * Starts a read-only transaction, for reads that need several statements to see one consistent
+   * snapshot. InnoDB doesn't assign a transaction ID to a read-only transaction or track it as a
+   * writer. Auto-commit stays on, so this costs one round trip where turning auto-commit off and
+   * back on costs two; the transaction must be ended with
+   * {@link #endReadOnlyTransaction(Connection)} rather than {@link Connection#commit()}. A read
+   * that is a single statement needs neither: in auto-commit mode it already runs as a read-only
+   * transaction of its own.
+   * 
+   * @param conn The connection on which to start the transaction.
+   * @throws SQLException Thrown if an error occurs starting the transaction.
+   */
+  protected void startReadOnlyTransaction(Connection conn) throws SQLException {
+    TransactionEvent event = TransactionEvent.begin("start read only", conn);
+
+    try (Statement stmt = conn.createStatement()) {
+      stmt.execute("START TRANSACTION READ ONLY");
+    }
+
+    TransactionEvent.end(event);
+  }
+
+  /**
+   * Ends a transaction started by {@link #startReadOnlyTransaction(Connection)}, whether the reads
+   * succeeded or not; there is nothing to commit or roll back.
+   * 
+   * @param conn The connection on which to end the transaction.
+   * @throws SQLException Thrown if an error occurs ending the transaction.
+   */
+  protected void endReadOnlyTransaction(Connection conn) throws SQLException {
+    TransactionEvent event = TransactionEvent.begin("end read only", conn);
+
+    try (Statement stmt = conn.createStatement()) {
+      stmt.execute("COMMIT");
+    }
+
+    TransactionEvent.end(event);
+  }
+
+  /**
+   * Starts timing a DAO operation for the registry installed in {@link Metrics}. The operation
+   * should be the first resource of the method's try-with-resources block so that it covers
+   * getting the connection, and the method should call {@link DaoOperation#success()} just before
+   * it returns; an operation closed without it is counted as an error. When metrics are disabled
+   * this returns a shared instance that does nothing.
+   * 
+   * @param name The operation name used in the metrics, normally the DAO method name.
+   * @return The running operation.
+   */
+  protected DaoOperation operation(String name) {
+    return DaoOperation.start(name);
   }
 
   /**
@@ -136,6 +199,49 @@ public abstract class DaoBase {
     throw new DaoException("Unsupported class type: " + classType.getName());
   }
 
+  /**
+   * This returns the parameter markers for an IN list of the given size, for example "?, ?, ?" for
+   * three values. The caller binds the values with {@link #setParameter} starting at the index of
+   * the first marker.
+   * 
+   * <pre>
+   * String sql = "SELECT * FROM recipe WHERE recipe_id IN (" + inListMarkers(ids.size()) + ")";
+   * </pre>
+   * 
+   * @param count The number of values in the list. Must be at least one.
+   * @return The comma separated parameter markers
+   */
+  protected String inListMarkers(int count) {
+    if(count < 1) {
+      throw new DaoException("An IN list needs at least one value.");
+    }
+
+    StringBuilder markers = new StringBuilder(count * 3);
+
+    for(int index = 0; index < count; index++) {
+      markers.append(index == 0 ? "?" : ", ?");
+    }
+
+    return markers.toString();
+  }
+
+  /**
+   * This returns the number of IN list markers to use for a list of the given size: the size
+   * rounded up to the next power of two. Binding the extra markers to a value that is already in
+   * the list doesn't change the result, and it means lists of 1 to 1000 values use only 11
+   * distinct SQL strings, so the prepared statements can be cached and reused.
+   * 
+   * @param count The number of values in the list. Must be at least one.
+   * @return The number of markers to generate
+   */
+  protected int inListSize(int count) {
+    if(count < 1) {
+      throw new DaoException("An IN list needs at least one value.");
+    }
+
+    return count == 1 ? 1 : Integer.highestOneBit(count - 1) << 1;
+  }
+
   /**
    * This retrieves the number of child rows and adds one to the value. It is used to set the order
    * of a child row. For a *real* application, a more sophisticated approach is desired. This method
@@ -147,7 +253,11 @@ public abstract class DaoBase {
    * @param idName The name of the parent ID field
    * @return The count of the entities attached to the parent plus one
    * @throws SQLException Thrown if an error occurs.
+   * @deprecated Two concurrent callers get the same number, and the count no longer matches the
+   *             highest order once a row is deleted. Steps use gapped orders kept unique by an
+   *             index instead; see {@code ProjectDao.appendStep}.
    */
+  @Deprecated
   protected Integer getNextSequenceNumber(Connection conn, Integer id, String tableName,
       String idName) throws SQLException {
     String sql = "SELECT COUNT(*) FROM " + tableName + " WHERE " + idName + " = ?";
@@ -166,20 +276,72 @@ public abstract class DaoBase {
   }
 
   /**
-   * This returns the integer primary key value of the last row inserted into the given table. It
-   * allows the ID to be inserted into the entity object after inserting it into the table.
+   * This returns the auto-increment primary key values generated by the statement that was just
+   * executed, in the order the rows were inserted. The statement must have been prepared with
+   * {@link Statement#RETURN_GENERATED_KEYS}. The keys come back with the update count, so no extra
+   * round trip to the database is made.
+   * 
+   * This works for a single-row insert, a multi-row insert (INSERT ... VALUES (...), (...)) and a
+   * batch executed with {@link Statement#executeBatch()}:
+   * 
+   * <pre>
+   * try(PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+   *   ...
+   *   stmt.executeUpdate();
+   *   List&lt;Integer&gt; ids = getGeneratedIds(stmt);
+   * }
+   * </pre>
    * 
-   * The other way of doing this is to call {@link Statement#getGeneratedKeys()}, but this returns a
-   * result set that needs to be parsed for the ID. It's not really any easier than this approach
-   * but should be closer to database-agnostic.
+   * @param stmt The statement that performed the insert
+   * @return The generated primary key values, one per inserted row
+   * @throws SQLException Thrown if an error occurs
+   */
+  protected List<Integer> getGeneratedIds(Statement stmt) throws SQLException {
+    try(ResultSet rs = stmt.getGeneratedKeys()) {
+      List<Integer> ids = new ArrayList<>();
+
+      while(rs.next()) {
+        ids.add(rs.getInt(1));
+      }
+
+      return ids;
+    }
+  }
+
+  /**
+   * This returns the primary key value generated by a single-row insert. See
+   * {@link #getGeneratedIds(Statement)}.
+   * 
+   * @param stmt The statement that performed the insert
+   * @return The generated primary key value
+   * @throws SQLException Thrown if no key was generated
+   */
+  protected Integer getGeneratedId(Statement stmt) throws SQLException {
+    try(ResultSet rs = stmt.getGeneratedKeys()) {
+      if(rs.next()) {
+        return rs.getInt(1);
+      }
+
+      throw new SQLException("Unable to retrieve the primary key value. No generated keys!");
+    }
+  }
+
+  /**
+   * This returns the integer primary key value of the last row inserted on the connection. It
+   * allows the ID to be inserted into the entity object after inserting it into the table.
    * 
    * @param conn The connection
-   * @param table The name of the table on which to get the last inserted primary key value
+   * @param table The name of the table on which to get the last inserted primary key value. It is
+   *        not used; LAST_INSERT_ID() is per connection, not per table.
    * @return The primary key value
    * @throws SQLException Thrown if an error occurs
+   * @deprecated This costs an extra round trip per insert. Prepare the insert with
+   *             {@link Statement#RETURN_GENERATED_KEYS} and call
+   *             {@link #getGeneratedId(Statement)} instead.
    */
+  @Deprecated
   protected Integer getLastInsertId(Connection conn, String table) throws SQLException {
-    String sql = String.format("SELECT LAST_INSERT_ID() FROM %s", table);
+    String sql = "SELECT LAST_INSERT_ID()";
 
     try(Statement stmt = conn.createStatement()) {
       try(ResultSet rs = stmt.executeQuery(sql)) {
@@ -194,17 +356,18 @@ public abstract class DaoBase {
 
   /**
    * This extracts an object of the given type from a result set. The object must have a
-   * zero-argument constructor. It builds an object from a result set using reflection as follows:
+   * zero-argument constructor. The object is built as follows:
    * <ol>
-   * <li>The zero-argument constructor is obtained.</li>
-   * <li>An object of the given class type is created.</li>
-   * <li>A list of fields is obtained using reflection.</li>
-   * <li>The field name is converted from Java naming to SQL naming conventions (camel case to snake
-   * case). Obviously, for this to work, the Java name must match the column name. So, if the Java
-   * name is numServings, the column name must be num_servings.</li>
-   * <li>The value is assigned to the field in the object.</li>
+   * <li>An object of the given class type is created using the zero-argument constructor.</li>
+   * <li>The field names are converted from Java naming to SQL naming conventions (camel case to
+   * snake case). Obviously, for this to work, the Java name must match the column name. So, if the
+   * Java name is numServings, the column name must be num_servings.</li>
+   * <li>The value of each matching column is assigned to the field in the object.</li>
    * </ol>
    * 
+   * The lookups in steps 1 and 2 are done once per class and result set shape and cached (see
+   * {@link #rowMapper(ResultSet, Class)}), so they are not repeated for every row.
+   * 
    * Example: if a query returns values for a recipe, a Recipe object is returned. So:
    * 
    * <pre>
@@ -224,6 +387,9 @@ public abstract class DaoBase {
    * Since the result set does not contain a column named "ingredients", the value is left alone and
    * the list initialization is preserved.
    * 
+   * When reading more than one row, prefer {@link #rowMapper(ResultSet, Class)} so the result set
+   * metadata is only read once.
+   * 
    * @param <T> The Generic for the type of object to create and return.
    * @param rs The result set in which to extract values. The result set must be positioned on the
    *        correct row by the caller.
@@ -232,67 +398,44 @@ public abstract class DaoBase {
    */
   protected <T> T extract(ResultSet rs, Class<T> classType) {
     try {
-      /* Obtain the constructor and create an object of the correct type. */
-      Constructor<T> con = classType.getConstructor();
-      T obj = con.newInstance();
-
-      /* Get the list of fields and loop through them. */
-      for(Field field : classType.getDeclaredFields()) {
-        String colName = camelCaseToSnakeCase(field.getName());
-        Class<?> fieldType = field.getType();
-
-        /*
-         * Set the field accessible flag which means that we can populate even private fields
-         * without using the setter.
-         */
-        field.setAccessible(true);
-        Object fieldValue = null;
-
-        try {
-          fieldValue = rs.getObject(colName);
-        }
-        catch(SQLException e) {
-          /*
-           * An exception caught here means that the field name isn't in the result set. Don't take
-           * any action.
-           */
-        }
-
-        /*
-         * Only set the value in the object if there is a value with the same name in the result
-         * set. This will preserve instance variables (like lists) that are assigned values when the
-         * object is created.
-         */
-        if(Objects.nonNull(fieldValue)) {
-          /*
-           * Convert the following types: Time -> LocalTime, and Timestamp -> LocalDateTime.
-           */
-          if(fieldValue instanceof Time && fieldType.equals(LocalTime.class)) {
-            fieldValue = ((Time)fieldValue).toLocalTime();
-          }
-          else if(fieldValue instanceof Timestamp && fieldType.equals(LocalDateTime.class)) {
-            fieldValue = ((Timestamp)fieldValue).toLocalDateTime();
-          }
-
-          field.set(obj, fieldValue);
-        }
-      }
-
-      return obj;
-
+      return rowMapper(rs, classType).map(rs);
     }
-    catch(Exception e) {
+    catch(SQLException e) {
       throw new DaoException("Unable to create object of type " + classType.getName(), e);
     }
   }
 
+  /**
+   * This returns the cached mapper for the given class and the columns of the given result set. The
+   * constructor, the field setters, the column index for each field and the type conversion for
+   * each column are resolved the first time a class is seen with a particular set of columns. After
+   * that, mapping a row only reads the columns by index and assigns the fields.
+   * 
+   * <pre>
+   * RowMapper&lt;Recipe&gt; mapper = rowMapper(rs, Recipe.class);
+   * 
+   * while(rs.next()) {
+   *   recipes.add(mapper.map(rs));
+   * }
+   * </pre>
+   * 
+   * @param <T> The type of object the mapper creates.
+   * @param rs The result set. Only the metadata is read, so it may be called before the first row.
+   * @param classType The class type of the objects to create.
+   * @return A mapper that can be used for every row in the result set.
+   * @throws SQLException Thrown if the result set metadata cannot be read.
+   */
+  protected <T> RowMapper<T> rowMapper(ResultSet rs, Class<T> classType) throws SQLException {
+    return RowMappers.forResultSet(rs, classType);
+  }
+
   /**
    * This converts a camel case value (rowInsertTime) to snake case (row_insert_time).
    * 
    * @param identifier The name in camel case to convert.
    * @return The name converted to snake case.
    */
-  private String camelCaseToSnakeCase(String identifier) {
+  static String camelCaseToSnakeCase(String identifier) {
     StringBuilder nameBuilder = new StringBuilder();
 
     for(char ch : identifier.toCharArray()) {
@@ -0,0 +1,89 @@
+/**
+ *
+ */
+package provided.util;
+
+import java.lang.invoke.MethodHandle;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Objects;
+import java.util.function.Supplier;
+import provided.util.DaoBase.DaoException;
+
+/**
+ * A compiled plan that maps the current row of a result set to an object. A plan is built once for a
+ * given entity class and result set shape (the list of column labels) by {@link RowMappers} and is
+ * then reused for every row and every later query with the same shape. Column indexes, field setters
+ * and type conversions are all resolved when the plan is built, so mapping a row does no name
+ * lookups, no reflection and never throws for columns the entity doesn't have.
+ *
+ * Obtain a mapper once per result set and call {@link #map(ResultSet)} for each row:
+ *
+ * <pre>
+ * RowMapper&lt;Project&gt; mapper = rowMapper(rs, Project.class);
+ *
+ * while(rs.next()) {
+ *   projects.add(mapper.map(rs));
+ * }
+ * </pre>
+ *
+ * @param <T> The entity type produced by this mapper.
+ * @author Promineo
+ *
+ */
+public final class RowMapper<T> {
+  private final Class<T> classType;
+  private final Supplier<T> constructor;
+  private final int[] columnIndexes;
+  private final ColumnReader[] readers;
+  private final MethodHandle[] setters;
+
+  RowMapper(Class<T> classType, Supplier<T> constructor, int[] columnIndexes,
+      ColumnReader[] readers, MethodHandle[] setters) {
+    this.classType = classType;
+    this.constructor = constructor;
+    this.columnIndexes = columnIndexes;
+    this.readers = readers;
+    this.setters = setters;
+  }
+
+  /**
+   * Creates an object from the row the result set is positioned on. As with
+   * {@link DaoBase#extract(ResultSet, Class)}, fields whose column is missing or SQL NULL keep the
+   * value assigned by the constructor.
+   *
+   * @param rs The result set, positioned on a row by the caller.
+   * @return The populated object.
+   * @throws SQLException Thrown if a column cannot be read.
+   */
+  public T map(ResultSet rs) throws SQLException {
+    T obj = constructor.get();
+
+    for(int index = 0; index < readers.length; index++) {
+      Object value = readers[index].read(rs, columnIndexes[index]);
+
+      if(Objects.nonNull(value)) {
+        try {
+          setters[index].invokeExact((Object)obj, value);
+        }
+        catch(RuntimeException | Error e) {
+          throw e;
+        }
+        catch(Throwable e) {
+          throw new DaoException("Unable to populate object of type " + classType.getName(), e);
+        }
+      }
+    }
+
+    return obj;
+  }
+
+  /**
+   * Reads a single column and converts it to the Java type of the target field. Implementations
+   * return null for SQL NULL.
+   */
+  @FunctionalInterface
+  interface ColumnReader {
+    Object read(ResultSet rs, int columnIndex) throws SQLException;
+  }
+}
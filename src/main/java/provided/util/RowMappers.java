@@ -0,0 +1,214 @@
+/**
+ *
+ */
+package provided.util;
+
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import provided.util.DaoBase.DaoException;
+import provided.util.RowMapper.ColumnReader;
+
+/**
+ * Builds and caches {@link RowMapper} plans. The per-class work (finding the constructor, the
+ * fields, their snake case column names and the right column reader for each field type) is done
+ * once per class. The per-shape work (matching result set columns to fields) is done once per
+ * distinct list of column labels for that class.
+ *
+ * @author Promineo
+ *
+ */
+final class RowMappers {
+  private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+  private static final MethodType SETTER_TYPE =
+      MethodType.methodType(void.class, Object.class, Object.class);
+
+  private static final Map<Class<?>, ClassPlan<?>> PLANS = new ConcurrentHashMap<>();
+
+  private RowMappers() {
+  }
+
+  /**
+   * Returns the mapper for the given class and the shape of the given result set, building and
+   * caching it on first use.
+   *
+   * @param <T> The entity type.
+   * @param rs The result set. Only its metadata is read.
+   * @param classType The entity class. It must have a public zero-argument constructor.
+   * @return The cached mapper.
+   * @throws SQLException Thrown if the result set metadata cannot be read.
+   */
+  @SuppressWarnings("unchecked")
+  static <T> RowMapper<T> forResultSet(ResultSet rs, Class<T> classType) throws SQLException {
+    ClassPlan<T> plan = (ClassPlan<T>)PLANS.computeIfAbsent(classType, ClassPlan::new);
+    ResultSetMetaData meta = rs.getMetaData();
+    int columnCount = meta.getColumnCount();
+    String[] labels = new String[columnCount];
+    StringBuilder shape = new StringBuilder();
+
+    for(int column = 1; column <= columnCount; column++) {
+      labels[column - 1] = meta.getColumnLabel(column).toLowerCase(Locale.ROOT);
+      shape.append(labels[column - 1]).append(',');
+    }
+
+    return plan.mappers.computeIfAbsent(shape.toString(), key -> plan.compile(labels));
+  }
+
+  /**
+   * The class-level part of a plan: everything that doesn't depend on the result set.
+   */
+  private static final class ClassPlan<T> {
+    private final Class<T> classType;
+    private final Supplier<T> constructor;
+    private final Map<String, FieldPlan> fieldsByColumn = new HashMap<>();
+    private final Map<String, RowMapper<T>> mappers = new ConcurrentHashMap<>();
+
+    ClassPlan(Class<T> classType) {
+      this.classType = classType;
+
+      try {
+        constructor = constructorFor(classType);
+        MethodHandles.Lookup fieldLookup = MethodHandles.privateLookupIn(classType, LOOKUP);
+
+        for(Field field : classType.getDeclaredFields()) {
+          int modifiers = field.getModifiers();
+
+          if(Modifier.isStatic(modifiers) || Modifier.isFinal(modifiers) || field.isSynthetic()) {
+            continue;
+          }
+
+          MethodHandle setter = fieldLookup.unreflectSetter(field).asType(SETTER_TYPE);
+          String colName = DaoBase.camelCaseToSnakeCase(field.getName());
+
+          fieldsByColumn.put(colName, new FieldPlan(setter, readerFor(field.getType())));
+        }
+      }
+      catch(Throwable e) {
+        throw new DaoException("Unable to create object of type " + classType.getName(), e);
+      }
+    }
+
+    RowMapper<T> compile(String[] labels) {
+      int[] indexes = new int[labels.length];
+      ColumnReader[] readers = new ColumnReader[labels.length];
+      MethodHandle[] setters = new MethodHandle[labels.length];
+      Set<String> seen = new HashSet<>();
+      int count = 0;
+
+      for(int index = 0; index < labels.length; index++) {
+        FieldPlan field = fieldsByColumn.get(labels[index]);
+
+        /* Like ResultSet.findColumn(), the first column with a given label wins. */
+        if(Objects.nonNull(field) && seen.add(labels[index])) {
+          indexes[count] = index + 1;
+          readers[count] = field.reader;
+          setters[count] = field.setter;
+          count++;
+        }
+      }
+
+      return new RowMapper<>(classType, constructor, Arrays.copyOf(indexes, count),
+          Arrays.copyOf(readers, count), Arrays.copyOf(setters, count));
+    }
+  }
+
+  private static final class FieldPlan {
+    private final MethodHandle setter;
+    private final ColumnReader reader;
+
+    FieldPlan(MethodHandle setter, ColumnReader reader) {
+      this.setter = setter;
+      this.reader = reader;
+    }
+  }
+
+  /**
+   * Creates a {@link Supplier} bound directly to the zero-argument constructor with
+   * {@link LambdaMetafactory}, so creating an instance costs the same as calling {@code new}.
+   */
+  @SuppressWarnings("unchecked")
+  private static <T> Supplier<T> constructorFor(Class<T> classType) throws Throwable {
+    MethodHandle con = LOOKUP.findConstructor(classType, MethodType.methodType(void.class));
+
+    return (Supplier<T>)LambdaMetafactory
+        .metafactory(LOOKUP, "get", MethodType.methodType(Supplier.class),
+            MethodType.methodType(Object.class), con, MethodType.methodType(classType))
+        .getTarget().invokeExact();
+  }
+
+  /**
+   * Picks the column reader for a field type. Typed getters avoid the boxing and driver-side type
+   * dispatch of {@link ResultSet#getObject(int)}; Time and Timestamp columns are converted to
+   * LocalTime and LocalDateTime as {@link DaoBase#extract(ResultSet, Class)} always did.
+   */
+  private static ColumnReader readerFor(Class<?> fieldType) {
+    if(Integer.class.equals(fieldType) || int.class.equals(fieldType)) {
+      return (rs, column) -> {
+        int value = rs.getInt(column);
+        return rs.wasNull() ? null : value;
+      };
+    }
+
+    if(Long.class.equals(fieldType) || long.class.equals(fieldType)) {
+      return (rs, column) -> {
+        long value = rs.getLong(column);
+        return rs.wasNull() ? null : value;
+      };
+    }
+
+    if(Double.class.equals(fieldType) || double.class.equals(fieldType)) {
+      return (rs, column) -> {
+        double value = rs.getDouble(column);
+        return rs.wasNull() ? null : value;
+      };
+    }
+
+    if(Boolean.class.equals(fieldType) || boolean.class.equals(fieldType)) {
+      return (rs, column) -> {
+        boolean value = rs.getBoolean(column);
+        return rs.wasNull() ? null : value;
+      };
+    }
+
+    if(String.class.equals(fieldType)) {
+      return ResultSet::getString;
+    }
+
+    if(BigDecimal.class.equals(fieldType)) {
+      return ResultSet::getBigDecimal;
+    }
+
+    if(LocalTime.class.equals(fieldType)) {
+      return (rs, column) -> rs.getObject(column, LocalTime.class);
+    }
+
+    if(LocalDateTime.class.equals(fieldType)) {
+      return (rs, column) -> rs.getObject(column, LocalDateTime.class);
+    }
+
+    if(LocalDate.class.equals(fieldType)) {
+      return (rs, column) -> rs.getObject(column, LocalDate.class);
+    }
+
+    return ResultSet::getObject;
+  }
+}
@@ -1,3 +1,5 @@
+DROP TABLE IF EXISTS category_rollup;
+DROP TABLE IF EXISTS project_rollup;
 DROP TABLE IF EXISTS material;
 DROP TABLE IF EXISTS step;
 DROP TABLE IF EXISTS project_category;
@@ -11,7 +13,10 @@ CREATE TABLE project (
 	actual_hours DECIMAL(7,2),
 	difficulty INT,
 	notes TEXT,
-	PRIMARY KEY (project_id)
+	version INT NOT NULL DEFAULT 0,
+	PRIMARY KEY (project_id),
+	INDEX project_name_idx (project_name, project_id),
+	FULLTEXT INDEX project_notes_ft (notes)
 );
 
 CREATE TABLE category (
@@ -33,7 +38,10 @@ CREATE TABLE step (
 	project_id INT NOT NULL,
 	step_text TEXT NOT NULL,
 	step_order INT NOT NULL,
+	version INT NOT NULL DEFAULT 0,
 	PRIMARY KEY (step_id),
+	UNIQUE KEY step_order_idx (project_id, step_order),
+	FULLTEXT INDEX step_text_ft (step_text),
 	FOREIGN KEY (project_id) REFERENCES project (project_id) ON DELETE CASCADE
 );
 
@@ -43,6 +51,30 @@ CREATE TABLE material (
 	material_name VARCHAR(128) NOT NULL,
 	num_required INT,
 	cost DECIMAL(7,2),
+	version INT NOT NULL DEFAULT 0,
 	PRIMARY KEY (material_id),
-	FOREIGN KEY (project_id) REFERENCES project (project_id)
-);
\ No newline at end of file
+	FOREIGN KEY (project_id) REFERENCES project (project_id) ON DELETE CASCADE
+);
+
+-- per-project totals, written in the same transaction as the rows they summarize
+CREATE TABLE project_rollup (
+	project_id INT NOT NULL,
+	material_count INT NOT NULL DEFAULT 0,
+	material_cost DECIMAL(15,2) NOT NULL DEFAULT 0,
+	step_count INT NOT NULL DEFAULT 0,
+	PRIMARY KEY (project_id),
+	FOREIGN KEY (project_id) REFERENCES project (project_id) ON DELETE CASCADE
+);
+
+-- per-category totals of the linked projects, written in the same transaction as the links and
+-- the project totals and hours they summarize
+CREATE TABLE category_rollup (
+	category_id INT NOT NULL,
+	project_count INT NOT NULL DEFAULT 0,
+	material_cost DECIMAL(15,2) NOT NULL DEFAULT 0,
+	step_count INT NOT NULL DEFAULT 0,
+	estimated_hours DECIMAL(15,2) NOT NULL DEFAULT 0,
+	actual_hours DECIMAL(15,2) NOT NULL DEFAULT 0,
+	PRIMARY KEY (category_id),
+	FOREIGN KEY (category_id) REFERENCES category (category_id) ON DELETE CASCADE
+);